@@ -0,0 +1,96 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.AnalyticsCache;
+import com.expensetracker.service.AnalyticsService;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import com.expensetracker.service.RecommendationEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnalyticsServiceBenchmark {
+
+    @Param({"100", "1000"})
+    public int users;
+
+    @Param({"10", "1000"})
+    public int expensesPerUser;
+
+    @Param({"8", "64"})
+    public int categories;
+
+    @Param({"OBJECT"})
+    public ExpenseStore.Engine engine;
+
+    private Path dir;
+    private AnalyticsService analyticsService;
+    private List<User> userList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        ExpenseRepository repository = BenchmarkData.expenseRepository(dir, ExpenseRepository.SnapshotFormat.JSON);
+        repository.saveExpenses(BenchmarkData.expenses(users, expensesPerUser, categories));
+        ExpenseService expenseService = new ExpenseService(repository, engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        // No rules file in dir, so the bundled rules apply
+        RecommendationEngine recommendationEngine = new RecommendationEngine(dir.resolve("rules.json").toString(), 0,
+                new SimpleMeterRegistry());
+        analyticsService = new AnalyticsService(expenseService,
+                new AnalyticsCache(expenseService, recommendationEngine, users, 300), recommendationEngine,
+                new SimpleMeterRegistry());
+        userList = BenchmarkData.users(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Map<String, Double> getCategorySpending() {
+        return analyticsService.getCategorySpending(randomUser().getId());
+    }
+
+    @Benchmark
+    public List<String> getSpendingRecommendations() {
+        User user = randomUser();
+        return analyticsService.getSpendingRecommendations(user.getId(), user);
+    }
+
+    // Served from the analytics cache after the first call per user
+    @Benchmark
+    public Map<String, Object> getUserAnalytics() {
+        return analyticsService.getUserAnalytics(randomUser());
+    }
+
+    private User randomUser() {
+        return userList.get(ThreadLocalRandom.current().nextInt(userList.size()));
+    }
+}
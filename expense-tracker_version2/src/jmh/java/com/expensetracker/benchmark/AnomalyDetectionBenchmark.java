@@ -0,0 +1,89 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.service.AnomalySettings;
+import com.expensetracker.service.ExpenseAnomaly;
+import com.expensetracker.service.SpendingAnomalyDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// What anomaly detection adds to each insert and delete, measured on its own because a write's
+// persistence costs (see ExpenseServiceBenchmark.addExpense with -p anomalies=true,false) are
+// orders of magnitude larger and hide it. The statistics start from a rebuilt ledger, as after
+// startup; rebuild is that startup cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnomalyDetectionBenchmark {
+    private static final int POOL = 1 << 16;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"100"})
+    public int expensesPerUser;
+
+    @Param({"8", "64"})
+    public int categories;
+
+    private List<Expense> ledger;
+    private SpendingAnomalyDetector detector;
+    private Expense[] incoming;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ledger = BenchmarkData.expenses(users, expensesPerUser, categories);
+        detector = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        detector.rebuild(ledger);
+        Random random = new Random(7);
+        incoming = new Expense[POOL];
+        long id = ledger.size() + 1L;
+        for (int i = 0; i < POOL; i++) {
+            incoming[i] = BenchmarkData.expense(random, id++, 1 + random.nextInt(users), categories);
+        }
+    }
+
+    @Benchmark
+    public ExpenseAnomaly add() {
+        return detector.add(next());
+    }
+
+    // Leaves the statistics as they were, so the measurement doesn't drift with the count
+    @Benchmark
+    public ExpenseAnomaly addThenRemove() {
+        Expense expense = next();
+        ExpenseAnomaly anomaly = detector.add(expense);
+        detector.remove(expense);
+        return anomaly;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SpendingAnomalyDetector rebuild() {
+        SpendingAnomalyDetector rebuilt = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        rebuilt.rebuild(ledger);
+        return rebuilt;
+    }
+
+    private Expense next() {
+        Expense expense = incoming[cursor];
+        cursor = (cursor + 1) & (POOL - 1);
+        return expense;
+    }
+}
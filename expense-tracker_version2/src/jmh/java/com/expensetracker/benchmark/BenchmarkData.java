@@ -0,0 +1,109 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.H2Storage;
+import com.expensetracker.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Deterministic data generators shared by the benchmarks: users x expenses-per-user x category cardinality
+public final class BenchmarkData {
+    private static final long SEED = 42;
+
+    private BenchmarkData() {}
+
+    // Expenses interleaved across users in id order, the way they accumulate in a live ledger
+    public static List<Expense> expenses(int users, int expensesPerUser, int categories) {
+        Random random = new Random(SEED);
+        List<Expense> expenses = new ArrayList<>(users * expensesPerUser);
+        long id = 1;
+        for (int round = 0; round < expensesPerUser; round++) {
+            for (long userId = 1; userId <= users; userId++) {
+                expenses.add(expense(random, id++, userId, categories));
+            }
+        }
+        return expenses;
+    }
+
+    public static Expense expense(Random random, long id, long userId, int categories) {
+        Expense expense = new Expense("Expense " + id, 1 + random.nextInt(50_000) / 100.0,
+                category(random.nextInt(categories)));
+        expense.setId(id);
+        expense.setUserId(userId);
+        return expense;
+    }
+
+    public static String category(int index) {
+        return "Category " + index;
+    }
+
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setFirstName("First" + id);
+            user.setLastName("Last" + id);
+            user.setUsername("user" + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setPassword("password" + id);
+            user.setMonthlyIncome(5_000.0);
+            user.setMonthlyExpenseLimit(3_000.0);
+            users.add(user);
+        }
+        return users;
+    }
+
+    public static Path tempDir() {
+        try {
+            return Files.createTempDirectory("expense-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ExpenseRepository expenseRepository(Path dir, ExpenseRepository.SnapshotFormat format) {
+        return expenseRepository(dir, format, true, 1);
+    }
+
+    public static ExpenseRepository expenseRepository(Path dir, ExpenseRepository.SnapshotFormat format,
+                                                      boolean journal, int shards) {
+        // Compaction stays in the measurement at its production threshold
+        return new ExpenseRepository(dir.resolve("expenses.json").toString(), format, journal,
+                ExpenseRepository.FsyncPolicy.INTERVAL, 1000, 1000, shards);
+    }
+
+    // The H2 counterpart of INTERVAL fsync: commits reach the file within a second
+    public static H2Storage h2Storage(Path dir) {
+        return new H2Storage(dir.resolve("expense-tracker").toString(), 8, 1000);
+    }
+
+    public static UserRepository userRepository(Path dir) {
+        return new UserRepository(dir.resolve("users.json").toString());
+    }
+
+    // Keep any stray console output out of the forked benchmark JVM's timings
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Deletes are destructive, so each iteration reloads a fresh ledger and deletes a fixed
+// batch of existing ids; the reported time covers the whole batch of BATCH deletes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = ExpenseDeleteBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = ExpenseDeleteBenchmark.BATCH)
+public class ExpenseDeleteBenchmark {
+    static final int BATCH = 1000;
+
+    @Param({"100", "1000"})
+    public int users;
+
+    @Param({"100", "1000"})
+    public int expensesPerUser;
+
+    @Param({"8"})
+    public int categories;
+
+    @Param({"OBJECT", "COLUMNAR"})
+    public ExpenseStore.Engine engine;
+
+    private Path dir;
+    private List<Expense> ledger;
+    private ExpenseService expenseService;
+    private List<Long> idsToDelete;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        BenchmarkData.silenceStdout();
+        ledger = BenchmarkData.expenses(users, expensesPerUser, categories);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        dir = BenchmarkData.tempDir();
+        ExpenseRepository repository = BenchmarkData.expenseRepository(dir, ExpenseRepository.SnapshotFormat.JSON);
+        repository.saveExpenses(ledger);
+        expenseService = new ExpenseService(repository, engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+
+        idsToDelete = new ArrayList<>(ledger.size());
+        for (Expense expense : ledger) {
+            idsToDelete.add(expense.getId());
+        }
+        Collections.shuffle(idsToDelete, new Random(cursor));
+        cursor = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void deleteExpense() {
+        expenseService.deleteExpense(idsToDelete.get(cursor++));
+    }
+}
@@ -0,0 +1,110 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseMutation;
+import com.expensetracker.repository.ExpenseRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cold load and full snapshot rewrite in both snapshot formats and across shard counts, plus the
+// write a single mutation costs when the journal is off (only the user's shard is rewritten) and
+// a single user's read for lazy loading.
+// bytesWritten / writes in the secondary results is the write amplification per mutation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExpenseRepositoryBenchmark {
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"10", "1000"})
+    public int expensesPerUser;
+
+    @Param({"8"})
+    public int categories;
+
+    @Param({"JSON", "BINARY"})
+    public ExpenseRepository.SnapshotFormat format;
+
+    @Param({"1", "4", "16"})
+    public int shards;
+
+    private Path dir;
+    private ExpenseRepository repository;
+    private ExpenseRepository unjournaled;
+    private List<Expense> ledger;
+    private long nextUser;
+    private final Random random = new Random(42);
+    private long nextId;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WriteCounters {
+        public long bytesWritten;
+        public long writes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        repository = BenchmarkData.expenseRepository(dir.resolve("journaled"), format, true, shards);
+        unjournaled = BenchmarkData.expenseRepository(dir.resolve("unjournaled"), format, false, shards);
+        ledger = BenchmarkData.expenses(users, expensesPerUser, categories);
+        repository.saveExpenses(ledger);
+        unjournaled.saveExpenses(ledger);
+        nextId = ledger.size() + 1L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public List<Expense> loadExpenses() {
+        return repository.loadExpenses();
+    }
+
+    @Benchmark
+    public void saveExpenses() {
+        repository.saveExpenses(ledger);
+    }
+
+    // Lazy loading's cost of a user's first access: one shard parsed, the other users' rows dropped
+    @Benchmark
+    public List<Expense> loadUser() {
+        return repository.loadUser(nextUser++ % users + 1);
+    }
+
+    // An add and its delete, so the shard stays the same size
+    @Benchmark
+    public void mutateOneUsersShard(WriteCounters counters) {
+        long userId = nextUser++ % users + 1;
+        Expense expense = BenchmarkData.expense(random, nextId++, userId, categories);
+        long before = unjournaled.getBytesWritten();
+        unjournaled.applyMutations(List.of(ExpenseMutation.add(expense)));
+        unjournaled.applyMutations(List.of(ExpenseMutation.delete(expense.getId(), userId)));
+        counters.bytesWritten += unjournaled.getBytesWritten() - before;
+        counters.writes += 2;
+    }
+}
@@ -0,0 +1,109 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.ExpenseSearchResult;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Searching one heavy user's descriptions through the inverted index, against the contains()
+// scan over every row that search would otherwise need
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExpenseSearchBenchmark {
+    private static final String[] MERCHANTS = {"Starbucks", "Walmart", "Target", "Costco", "Shell", "Uber",
+            "Lyft", "Amazon", "Netflix", "Spotify", "Safeway", "Kroger", "Chipotle", "Subway", "Ikea",
+            "Verizon", "Comcast", "Delta", "Marriott", "Walgreens"};
+    private static final String[] ITEMS = {"coffee", "groceries", "grocery run", "fuel", "ride home", "ride to work",
+            "subscription", "lunch", "dinner", "furniture", "phone bill", "internet", "flight", "hotel",
+            "pharmacy", "gift", "books", "household supplies", "snacks", "parking"};
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"OBJECT", "COLUMNAR"})
+    public ExpenseStore.Engine engine;
+
+    private Path dir;
+    private ExpenseService expenseService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        Random random = new Random(42);
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            // Invoice-style numbers give the dictionary a long tail of rare words
+            String description = MERCHANTS[random.nextInt(MERCHANTS.length)] + " "
+                    + ITEMS[random.nextInt(ITEMS.length)] + " " + random.nextInt(10_000);
+            Expense expense = new Expense(description, 1 + random.nextInt(50_000) / 100.0, BenchmarkData.category(0));
+            expense.setId(id);
+            expense.setUserId(1L);
+            expenses.add(expense);
+        }
+        ExpenseRepository repository = BenchmarkData.expenseRepository(dir, ExpenseRepository.SnapshotFormat.JSON);
+        repository.saveExpenses(expenses);
+        expenseService = new ExpenseService(repository, engine, GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expenseService.compactOnShutdown();
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    // One word matching about 1 row in 20
+    @Benchmark
+    public ExpenseSearchResult searchWord() {
+        return expenseService.searchExpenses(1L, "coffee", ExpenseSearchResult.DEFAULT_LIMIT);
+    }
+
+    // A short prefix fanning out to several words and thousands of rows
+    @Benchmark
+    public ExpenseSearchResult searchPrefix() {
+        return expenseService.searchExpenses(1L, "gro", ExpenseSearchResult.DEFAULT_LIMIT);
+    }
+
+    // Two words that must both match
+    @Benchmark
+    public ExpenseSearchResult searchTwoWords() {
+        return expenseService.searchExpenses(1L, "uber ride", ExpenseSearchResult.DEFAULT_LIMIT);
+    }
+
+    // What the same query costs without the index
+    @Benchmark
+    public List<Expense> scanContains() {
+        List<Expense> matches = new ArrayList<>();
+        for (Expense expense : expenseService.getExpensesByUserId(1L)) {
+            if (expense.getDescription().toLowerCase(Locale.ROOT).contains("coffee")) {
+                matches.add(expense);
+            }
+        }
+        return matches;
+    }
+}
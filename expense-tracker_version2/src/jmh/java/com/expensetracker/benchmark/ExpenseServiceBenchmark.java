@@ -0,0 +1,93 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.AnomalySettings;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import com.expensetracker.service.LazyLoadingSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExpenseServiceBenchmark {
+
+    @Param({"100", "1000"})
+    public int users;
+
+    @Param({"10", "1000"})
+    public int expensesPerUser;
+
+    @Param({"8"})
+    public int categories;
+
+    @Param({"OBJECT", "COLUMNAR"})
+    public ExpenseStore.Engine engine;
+
+    // Enable with -p groupCommit=true and several threads (-t) to measure batching under contention
+    @Param({"false"})
+    public boolean groupCommit;
+
+    // The added cost of judging each new expense against the user's category statistics
+    @Param({"true", "false"})
+    public boolean anomalies;
+
+    private Path dir;
+    private ExpenseService expenseService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        ExpenseRepository repository = BenchmarkData.expenseRepository(dir, ExpenseRepository.SnapshotFormat.JSON);
+        repository.saveExpenses(BenchmarkData.expenses(users, expensesPerUser, categories));
+        expenseService = new ExpenseService(repository, engine, groupCommit
+                ? new GroupCommitSettings(true, 5, GroupCommitSettings.Acknowledgement.DURABLE)
+                : GroupCommitSettings.disabled(), LazyLoadingSettings.disabled(),
+                anomalies ? AnomalySettings.defaults() : AnomalySettings.disabled(), new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expenseService.compactOnShutdown();
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void addExpense() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Expense expense = new Expense("Benchmark expense", 1 + random.nextInt(50_000) / 100.0,
+                BenchmarkData.category(random.nextInt(categories)));
+        expenseService.addExpense(expense, randomUser());
+    }
+
+    @Benchmark
+    public List<Expense> getExpensesByUserId() {
+        return expenseService.getExpensesByUserId(randomUser());
+    }
+
+    private long randomUser() {
+        return ThreadLocalRandom.current().nextLong(1, users + 1);
+    }
+}
@@ -0,0 +1,148 @@
+package com.expensetracker.benchmark;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// End-to-end load test against a running app, for comparing the platform-thread and
+// virtual-thread modes (spring.threads.virtual.enabled). Not a JMH benchmark: every simulated
+// session registers its own user, then loops over the expenses page, an add, the analytics page
+// and the JSON API until the duration is up. Reports throughput and latency percentiles.
+//
+// Usage, with the app already started in the mode under test:
+//   java -cp <test classpath> com.expensetracker.benchmark.HttpLoadTest [baseUrl] [sessions] [seconds]
+// Start the app with -Djdk.tracePinnedThreads=short to have the JVM report any carrier pinning.
+public class HttpLoadTest {
+
+    private record Result(long[] latenciesNanos, long errors) {}
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:6061";
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        AtomicLong registered = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        List<Future<Result>> futures = new ArrayList<>(sessions);
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                String username = "load-" + run + "-" + i;
+                futures.add(executor.submit(() -> runSession(client, baseUrl, username, deadline, registered)));
+            }
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        long errors = 0;
+        List<long[]> all = new ArrayList<>();
+        for (Future<Result> future : futures) {
+            Result result = future.get();
+            all.add(result.latenciesNanos());
+            errors += result.errors();
+        }
+        long[] latencies = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+        System.out.printf("sessions=%d registered=%d duration=%.1fs requests=%d errors=%d%n",
+                sessions, registered.get(), elapsed, latencies.length, errors);
+        System.out.printf("throughput=%.0f req/s p50=%.1fms p99=%.1fms max=%.1fms%n",
+                latencies.length / elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+    }
+
+    private static Result runSession(HttpClient client, String baseUrl, String username, long deadline,
+                                     AtomicLong registered) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        String cookie;
+        try {
+            HttpResponse<Void> response = client.send(form(baseUrl + "/users/register", null, Map.of(
+                    "username", username, "password", "secret", "email", username + "@example.com",
+                    "firstName", "Load", "lastName", "Test",
+                    "monthlyIncome", "5000", "monthlyExpenseLimit", "3000")),
+                    HttpResponse.BodyHandlers.discarding());
+            cookie = response.headers().firstValue("Set-Cookie").map(c -> c.split(";", 2)[0]).orElse(null);
+            if (cookie == null) {
+                return new Result(new long[0], 1);
+            }
+            registered.incrementAndGet();
+        } catch (Exception e) {
+            return new Result(new long[0], 1);
+        }
+
+        String[] categories = {"Food", "Transport", "Entertainment", "Utilities", "Shopping"};
+        int step = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = switch (step++ % 4) {
+                case 0 -> get(baseUrl + "/expenses", cookie);
+                case 1 -> form(baseUrl + "/expenses/add", cookie, Map.of(
+                        "description", "load " + step,
+                        "category", categories[ThreadLocalRandom.current().nextInt(categories.length)],
+                        "amount", Integer.toString(ThreadLocalRandom.current().nextInt(1, 500))));
+                case 2 -> get(baseUrl + "/analytics", cookie);
+                default -> get(baseUrl + "/api/v1/expenses?size=25", cookie);
+            };
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    errors++;
+                }
+            } catch (Exception e) {
+                errors++;
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private static HttpRequest get(String url, String cookie) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Cookie", cookie).GET().build();
+    }
+
+    private static HttpRequest form(String url, String cookie, Map<String, String> fields) {
+        String body = fields.entrySet().stream()
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (cookie != null) {
+            builder.header("Cookie", cookie);
+        }
+        return builder.build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,84 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.service.ExpenseStore;
+import com.expensetracker.service.LedgerAggregator;
+import com.expensetracker.service.LedgerTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Admin-wide aggregation over the whole in-memory ledger, from one worker up to one per core.
+// The store is filled directly (no files) in chunks, so 10M rows fit in the forked heap.
+// Compare parallelism=1 with the machine's core count to read off the scaling; OBJECT can be
+// passed with -p engine=OBJECT given a bigger heap.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LedgerAggregatorBenchmark {
+    private static final int CHUNK = 1_000_000;
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"8"})
+    public int categories;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"COLUMNAR"})
+    public ExpenseStore.Engine engine;
+
+    private ExpenseStore store;
+    private LedgerAggregator aggregator;
+    private final YearMonth month = YearMonth.of(2024, 6);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        store = ExpenseStore.create(engine);
+        Random random = new Random(42);
+        List<Expense> chunk = new ArrayList<>(CHUNK);
+        for (long id = 1; id <= rows; id++) {
+            chunk.add(BenchmarkData.expense(random, id, 1 + (id - 1) % users, categories));
+            if (chunk.size() == CHUNK || id == rows) {
+                store.addAll(chunk);
+                chunk = new ArrayList<>(CHUNK);
+            }
+        }
+        aggregator = new LedgerAggregator(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aggregator.close();
+    }
+
+    @Benchmark
+    public LedgerTotals aggregate() {
+        return store.withLedgerRows(ledgerRows -> aggregator.aggregate(ledgerRows, month));
+    }
+}
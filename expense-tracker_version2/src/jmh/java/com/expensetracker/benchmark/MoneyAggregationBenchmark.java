@@ -0,0 +1,146 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+import com.expensetracker.service.CategoryTotal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Aggregating amounts held as long cents against the boxed Double amounts they replaced: a
+// plain total, a per-category breakdown and the category percentages analytics shows. The
+// Double side keeps the old representation (rows shaped like the old Expense, each pointing at
+// its own Double, summed into a Map<String, Double>). Run with -prof gc to compare allocation rates.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoneyAggregationBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"8", "64"})
+    public int categories;
+
+    // Expense as it was: the same fields, with the amount boxed
+    private static final class DoubleExpense {
+        private Long id;
+        private String description;
+        private Double amount;
+        private String category;
+        private Long userId;
+        private LocalDate date;
+    }
+
+    private List<Expense> expenses;
+    private List<DoubleExpense> doubleExpenses;
+    private Map<String, Double> doubleSpending;
+    private Map<String, CategoryTotal> centTotals;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expenses = BenchmarkData.expenses(rows, 1, categories);
+        doubleExpenses = new ArrayList<>(rows);
+        for (Expense expense : expenses) {
+            DoubleExpense old = new DoubleExpense();
+            old.id = expense.getId();
+            old.description = expense.getDescription();
+            old.amount = expense.getAmount();
+            old.category = expense.getCategory();
+            old.userId = expense.getUserId();
+            old.date = expense.getDate();
+            doubleExpenses.add(old);
+        }
+        doubleSpending = categorySpendingDouble();
+        centTotals = categoryTotalsCents();
+    }
+
+    @Benchmark
+    public double totalDouble() {
+        double total = 0;
+        for (DoubleExpense expense : doubleExpenses) {
+            total += expense.amount == null ? 0.0 : expense.amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long totalCents() {
+        long total = 0;
+        for (Expense expense : expenses) {
+            total += Money.orZero(expense.getAmountCents());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySpendingDouble() {
+        Map<String, Double> spending = new HashMap<>();
+        for (DoubleExpense expense : doubleExpenses) {
+            spending.merge(expense.category, expense.amount == null ? 0.0 : expense.amount, Double::sum);
+        }
+        return spending;
+    }
+
+    // Dense per-category slots, the way LedgerAggregator sums
+    @Benchmark
+    public Map<String, CategoryTotal> categoryTotalsCents() {
+        Map<String, Integer> slots = new HashMap<>();
+        long[] totals = new long[categories];
+        long[] counts = new long[categories];
+        for (Expense expense : expenses) {
+            Integer slot = slots.get(expense.getCategory());
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(expense.getCategory(), slot);
+            }
+            totals[slot] += Money.orZero(expense.getAmountCents());
+            counts[slot]++;
+        }
+        Map<String, CategoryTotal> result = new HashMap<>();
+        slots.forEach((category, slot) -> result.put(category, new CategoryTotal(totals[slot], counts[slot])));
+        return result;
+    }
+
+    // What AnalyticsService.toPercentages did
+    @Benchmark
+    public Map<String, Double> percentagesDouble() {
+        double totalSpending = doubleSpending.values().stream().mapToDouble(Double::doubleValue).sum();
+        Map<String, Double> percentages = new HashMap<>();
+        for (Map.Entry<String, Double> entry : doubleSpending.entrySet()) {
+            double percentage = totalSpending > 0 ? (entry.getValue() / totalSpending) * 100 : 0;
+            percentages.put(entry.getKey(), Math.round(percentage * 100.0) / 100.0);
+        }
+        return percentages;
+    }
+
+    @Benchmark
+    public Map<String, Double> percentagesCents() {
+        long totalCents = 0;
+        for (CategoryTotal total : centTotals.values()) {
+            totalCents += total.totalCents();
+        }
+        Map<String, Double> percentages = new HashMap<>();
+        for (Map.Entry<String, CategoryTotal> entry : centTotals.entrySet()) {
+            percentages.put(entry.getKey(), Money.percent(entry.getValue().totalCents(), totalCents));
+        }
+        return percentages;
+    }
+}
@@ -0,0 +1,138 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Money;
+import com.expensetracker.service.CategoryTotal;
+import com.expensetracker.service.RecommendationRule;
+import com.expensetracker.service.RecommendationRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of evaluating one user's recommendations as the rules file grows. compiled is
+// RecommendationRules over the user's running aggregates; interpreted walks the rule list
+// the way the hard-coded checks did: percentages map first, then every rule in turn, with
+// messages built by replacing placeholders. Most rules name categories the user doesn't have,
+// as in a shared rules file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecommendationRulesBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    public int rules;
+
+    // Categories the user has spent in, out of the 256 the rules mention
+    @Param({"16"})
+    public int categories;
+
+    private List<RecommendationRule> ruleList;
+    private RecommendationRules compiled;
+    private Map<String, CategoryTotal> categoryTotals;
+    private long totalCents;
+    private final long monthSpentCents = 240_000;
+    private final long incomeCents = 500_000;
+    private final long limitCents = 300_000;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        ruleList = new ArrayList<>(rules);
+        String[] ops = {">", ">=", "<", "<="};
+        for (int i = 0; i < rules; i++) {
+            String op = ops[random.nextInt(ops.length)];
+            double threshold = random.nextInt(100);
+            ruleList.add(switch (i % 10) {
+                case 0 -> new RecommendationRule("income-" + i, RecommendationRule.Metric.INCOME_SPENT, null, op,
+                        threshold, "Spending is " + op + " " + threshold + "% of income");
+                case 1 -> new RecommendationRule("limit-" + i, RecommendationRule.Metric.LIMIT_SPENT, null, op,
+                        threshold, "Spending is " + op + " " + threshold + "% of the limit");
+                case 2 -> new RecommendationRule("any-" + i, RecommendationRule.Metric.CATEGORY_SHARE, null, op,
+                        threshold, "Your {category} spending is {share}% of total");
+                default -> new RecommendationRule("category-" + i, RecommendationRule.Metric.CATEGORY_SHARE,
+                        BenchmarkData.category(random.nextInt(256)), op, threshold,
+                        "{category} is {share}% of your spending");
+            });
+        }
+        compiled = RecommendationRules.compile(ruleList);
+        categoryTotals = new HashMap<>();
+        totalCents = 0;
+        for (int c = 0; c < categories; c++) {
+            long cents = 1_000 + random.nextInt(100_000);
+            categoryTotals.put(BenchmarkData.category(c * (256 / categories)), new CategoryTotal(cents, 10));
+            totalCents += cents;
+        }
+    }
+
+    @Benchmark
+    public List<String> compiled() {
+        return compiled.evaluate(monthSpentCents, incomeCents, limitCents, categoryTotals, totalCents);
+    }
+
+    @Benchmark
+    public List<String> interpreted() {
+        Map<String, Double> percentages = new HashMap<>();
+        for (Map.Entry<String, CategoryTotal> entry : categoryTotals.entrySet()) {
+            percentages.put(entry.getKey(), Money.percent(entry.getValue().totalCents(), totalCents));
+        }
+        double incomePercent = Money.percent(monthSpentCents, incomeCents);
+        double limitPercent = Money.percent(monthSpentCents, limitCents);
+        List<String> messages = new ArrayList<>();
+        for (RecommendationRule rule : ruleList) {
+            switch (rule.metric()) {
+                case INCOME_SPENT -> {
+                    if (holds(rule, incomePercent)) {
+                        messages.add(rule.message());
+                    }
+                }
+                case LIMIT_SPENT -> {
+                    if (holds(rule, limitPercent)) {
+                        messages.add(rule.message());
+                    }
+                }
+                case CATEGORY_SHARE -> {
+                    if (rule.category() == null) {
+                        for (Map.Entry<String, Double> entry : percentages.entrySet()) {
+                            if (holds(rule, entry.getValue())) {
+                                messages.add(rule.message().replace("{category}", entry.getKey())
+                                        .replace("{share}", String.valueOf(entry.getValue())));
+                            }
+                        }
+                    } else {
+                        Double share = percentages.get(rule.category());
+                        if (share != null && holds(rule, share)) {
+                            messages.add(rule.message().replace("{category}", rule.category())
+                                    .replace("{share}", String.valueOf(share)));
+                        }
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    private static boolean holds(RecommendationRule rule, double value) {
+        return switch (rule.op()) {
+            case ">" -> value > rule.threshold();
+            case ">=" -> value >= rule.threshold();
+            case "<" -> value < rule.threshold();
+            default -> value <= rule.threshold();
+        };
+    }
+}
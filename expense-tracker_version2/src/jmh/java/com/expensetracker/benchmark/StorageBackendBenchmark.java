@@ -0,0 +1,128 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseMutation;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseStorage;
+import com.expensetracker.repository.H2Storage;
+import com.expensetracker.repository.UserStorage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The same storage operations against each backend: cold load, one user's read (lazy loading),
+// one added and deleted expense (the journal append vs row writes) and one registration, whose
+// file cost grows with the user count while a row insert doesn't.
+// bytesWritten / writes in the secondary results is the write amplification per mutation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBackendBenchmark {
+
+    public enum Backend { FILE, H2 }
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"100"})
+    public int expensesPerUser;
+
+    @Param({"FILE", "H2"})
+    public Backend backend;
+
+    private Path dir;
+    private ExpenseStorage expenseStorage;
+    private UserStorage userStorage;
+    private List<User> directory;
+    private final Random random = new Random(42);
+    private long nextId;
+    private long nextUser;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WriteCounters {
+        public long bytesWritten;
+        public long writes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        if (backend == Backend.H2) {
+            H2Storage storage = BenchmarkData.h2Storage(dir);
+            expenseStorage = storage;
+            userStorage = storage;
+        } else {
+            // Sharded, as lazy loading is meant to be run
+            expenseStorage = BenchmarkData.expenseRepository(dir, ExpenseRepository.SnapshotFormat.JSON, true, 16);
+            userStorage = BenchmarkData.userRepository(dir);
+        }
+        List<Expense> ledger = BenchmarkData.expenses(users, expensesPerUser, 8);
+        expenseStorage.saveExpenses(ledger);
+        nextId = ledger.size() + 1;
+        directory = new ArrayList<>(BenchmarkData.users(users));
+        userStorage.addUsers(directory, () -> directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (expenseStorage instanceof H2Storage storage) {
+            storage.close();
+        } else {
+            ((ExpenseRepository) expenseStorage).closeJournal();
+        }
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Expense> loadExpenses() {
+        return expenseStorage.loadExpenses();
+    }
+
+    @Benchmark
+    public List<Expense> loadUser() {
+        return expenseStorage.loadUser(nextUser++ % users + 1);
+    }
+
+    @Benchmark
+    public void addAndDeleteExpense(WriteCounters counters) {
+        long userId = nextUser++ % users + 1;
+        Expense expense = BenchmarkData.expense(random, nextId++, userId, 8);
+        long before = expenseStorage.getBytesWritten();
+        // The file backend folds its journal back at the production threshold on its own
+        expenseStorage.applyMutations(List.of(ExpenseMutation.add(expense)));
+        expenseStorage.applyMutations(List.of(ExpenseMutation.delete(expense.getId(), userId)));
+        counters.bytesWritten += expenseStorage.getBytesWritten() - before;
+        counters.writes += 2;
+    }
+
+    @Benchmark
+    public void registerUser() {
+        User user = BenchmarkData.users(1).get(0);
+        user.setId((long) directory.size() + 1);
+        user.setUsername("user" + user.getId());
+        directory.add(user);
+        userStorage.addUsers(List.of(user), () -> directory);
+    }
+}
@@ -0,0 +1,63 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.User;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserServiceBenchmark {
+
+    @Param({"100", "100000"})
+    public int users;
+
+    private Path dir;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceStdout();
+        dir = BenchmarkData.tempDir();
+        UserRepository repository = BenchmarkData.userRepository(dir);
+        repository.saveUsers(BenchmarkData.users(users));
+        userService = new UserService(repository, GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public User loginUser() {
+        int id = ThreadLocalRandom.current().nextInt(1, users + 1);
+        return userService.loginUser("user" + id, "password" + id);
+    }
+
+    @Benchmark
+    public User loginUserWrongPassword() {
+        int id = ThreadLocalRandom.current().nextInt(1, users + 1);
+        return userService.loginUser("user" + id, "wrong");
+    }
+}
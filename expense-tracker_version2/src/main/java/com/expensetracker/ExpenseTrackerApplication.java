@@ -1,13 +1,17 @@
 
 package com.expensetracker;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class ExpenseTrackerApplication {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseTrackerApplication.class);
+
     public static void main(String[] args) {
         SpringApplication.run(ExpenseTrackerApplication.class, args);
-        System.out.println("✅ Expense Tracker Application Started!");
+        log.info("Expense Tracker Application Started!");
     }
 }
\ No newline at end of file
@@ -1,18 +1,63 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.model.User;
+import com.expensetracker.service.AdminAnalyticsService;
+import com.expensetracker.service.AdminReport;
+import com.expensetracker.service.AnalyticsCache;
+import com.expensetracker.service.AnalyticsService;
+import com.expensetracker.service.ExpenseExportService;
+import com.expensetracker.service.ExpenseService;
 import com.expensetracker.service.UserService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/admin")
 public class AdminController {
+    // Upper bound on the top spenders listed, so one request can't ask for the whole user base
+    private static final int MAX_TOP = 1000;
+
     private final UserService userService;
+    private final ExpenseService expenseService;
+    private final ExpenseExportService expenseExportService;
+    private final AnalyticsCache analyticsCache;
+    private final AdminAnalyticsService adminAnalyticsService;
+    private final AnalyticsService analyticsService;
+    // Usernames allowed to read other users' data (admin.usernames); empty means nobody
+    private final Set<String> adminUsernames;
     
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, ExpenseService expenseService,
+                           ExpenseExportService expenseExportService, AnalyticsCache analyticsCache,
+                           AdminAnalyticsService adminAnalyticsService, AnalyticsService analyticsService,
+                           @Value("${admin.usernames:}") String adminUsernames) {
         this.userService = userService;
+        this.expenseService = expenseService;
+        this.expenseExportService = expenseExportService;
+        this.analyticsCache = analyticsCache;
+        this.adminAnalyticsService = adminAnalyticsService;
+        this.analyticsService = analyticsService;
+        this.adminUsernames = Arrays.stream(adminUsernames.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
     }
     
     @GetMapping("/users")
@@ -20,4 +65,74 @@ public class AdminController {
         model.addAttribute("users", userService.getAllUsers());
         return "admin-users";
     }
+    
+    // Write-behind queue depth and batch sizes (null entries when group commit is disabled).
+    // Admins only.
+    @GetMapping("/persistence")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> showPersistenceStats(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("expenses", expenseService.getGroupCommitStats());
+        stats.put("users", userService.getGroupCommitStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Analytics cache hit/miss/eviction/invalidation counters. Admins only.
+    @GetMapping("/analytics-cache")
+    @ResponseBody
+    public ResponseEntity<AnalyticsCache.Stats> showAnalyticsCacheStats(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(analyticsCache.getStats());
+    }
+
+    // Spend by category, top spenders and users over their limit in a month (yyyy-MM, default
+    // this month). top is clamped to 0..MAX_TOP. Admins only.
+    @GetMapping("/analytics")
+    @ResponseBody
+    public ResponseEntity<AdminReport> showAdminAnalytics(@RequestParam(required = false) YearMonth month,
+                                                          @RequestParam(defaultValue = "10") int top,
+                                                          HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(adminAnalyticsService.getReport(month == null ? YearMonth.now() : month,
+                Math.max(0, Math.min(top, MAX_TOP))));
+    }
+
+    // Rule-based recommendations for every user they apply to, keyed by user ID. Admins only.
+    @GetMapping("/recommendations")
+    @ResponseBody
+    public ResponseEntity<Map<Long, List<String>>> showRecommendations(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(analyticsService.evaluateRecommendations(userService.getAllUsers()));
+    }
+
+    // Every user's expenses, streamed; use gzip=true for large extracts. Admins only.
+    @GetMapping("/expenses/export")
+    public ResponseEntity<StreamingResponseBody> exportAllExpenses(
+            @RequestParam(defaultValue = "CSV") ExpenseExportService.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + ExpenseExportService.fileName(format, gzip) + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, ExpenseExportService.contentType(format, gzip))
+                .body(out -> expenseExportService.exportAllExpenses(format, gzip, out));
+    }
+
+    // The signed-in user is named in admin.usernames
+    private boolean isAdmin(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        return user != null && adminUsernames.contains(user.getUsername());
+    }
 }
\ No newline at end of file
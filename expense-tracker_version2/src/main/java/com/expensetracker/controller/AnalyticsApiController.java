@@ -0,0 +1,83 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.User;
+import com.expensetracker.service.AnalyticsService;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.RecommendationEngine;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// JSON API for a signed-in user's analytics, read from the cached analytics map.
+// The ETag adds today's date to the data version because the figures move on without any
+// change to the data: the budget burn-down day by day, the monthly totals with the month.
+// The rules generation changes it when new recommendation rules are loaded.
+@RestController
+@RequestMapping("/api/v1/analytics")
+public class AnalyticsApiController {
+    private final AnalyticsService analyticsService;
+    private final ExpenseService expenseService;
+    private final RecommendationEngine recommendationEngine;
+
+    public AnalyticsApiController(AnalyticsService analyticsService, ExpenseService expenseService,
+                                  RecommendationEngine recommendationEngine) {
+        this.analyticsService = analyticsService;
+        this.expenseService = expenseService;
+        this.recommendationEngine = recommendationEngine;
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<Object> getCategorySpending(HttpSession session, WebRequest request) {
+        return respond(session, request, analytics -> {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("spending", analytics.get("categorySpending"));
+            body.put("percentages", analytics.get("categoryPercentages"));
+            return body;
+        });
+    }
+
+    @GetMapping("/monthly-progress")
+    public ResponseEntity<Object> getMonthlyProgress(HttpSession session, WebRequest request) {
+        return respond(session, request, analytics -> {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("progress", analytics.get("monthlyProgress"));
+            body.put("burnDown", analytics.get("budgetBurnDown"));
+            body.put("trend", analytics.get("monthlyTrend"));
+            return body;
+        });
+    }
+
+    @GetMapping("/recommendations")
+    public ResponseEntity<Object> getRecommendations(HttpSession session, WebRequest request) {
+        return respond(session, request, analytics -> analytics.get("recommendations"));
+    }
+
+    // Recent expenses flagged as unusually large for their category, newest first
+    @GetMapping("/anomalies")
+    public ResponseEntity<Object> getAnomalies(HttpSession session, WebRequest request) {
+        return respond(session, request, analytics -> analytics.get("anomalies"));
+    }
+
+    private ResponseEntity<Object> respond(HttpSession session, WebRequest request,
+                                           Function<Map<String, Object>, Object> select) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String etag = expenseService.getDataVersionTag(user.getId()) + "-" + LocalDate.now()
+                + "-r" + recommendationEngine.getGeneration();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(select.apply(analyticsService.getUserAnalytics(user)));
+    }
+}
@@ -1,9 +1,9 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.User;
-import com.expensetracker.model.Expense;
 import com.expensetracker.service.AnalyticsService;
-import com.expensetracker.service.ExpenseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,66 +13,52 @@ import java.util.*;
 
 @Controller
 public class AnalyticsController {
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsController.class);
+
     private final AnalyticsService analyticsService;
-    private final ExpenseService expenseService;
     
-    public AnalyticsController(AnalyticsService analyticsService, ExpenseService expenseService) {
+    public AnalyticsController(AnalyticsService analyticsService) {
         this.analyticsService = analyticsService;
-        this.expenseService = expenseService;
     }
     
     @GetMapping("/analytics")
+    @SuppressWarnings("unchecked")
     public String showAnalytics(HttpSession session, Model model) {
         User user = (User) session.getAttribute("user");
         if (user == null) return "redirect:/users/login";
         
         try {
-            // Get user expenses for basic calculations
-            List<Expense> expenses = expenseService.getExpensesByUserId(user.getId());
-            
-            // Calculate basic statistics
-            double totalSpent = expenses.stream().mapToDouble(Expense::getAmount).sum();
-            int expensesCount = expenses.size();
-            long categoryCount = expenses.stream().map(Expense::getCategory).distinct().count();
-            double averageExpense = expensesCount > 0 ? totalSpent / expensesCount : 0;
-            
-            // Calculate budget progress
-            double monthlyIncome = user.getMonthlyIncome();
-            double expenseLimit = user.getMonthlyExpenseLimit();
-            double remainingBudget = expenseLimit - totalSpent;
-            double percentageOfLimit = expenseLimit > 0 ? (totalSpent / expenseLimit) * 100 : 0;
-            
-            // Get analytics data
-            Map<String, Double> categorySpending = analyticsService.getCategorySpending(user.getId());
-            Map<String, Double> categoryPercentages = analyticsService.getCategoryPercentage(user.getId());
-            List<String> recommendations = analyticsService.getSpendingRecommendations(user.getId(), user);
-            
-            // Prepare chart data
-            List<String> chartLabels = new ArrayList<>(categorySpending.keySet());
-            List<Double> chartData = new ArrayList<>(categorySpending.values());
+            // Assembled once per change to the user's expenses and then served from AnalyticsCache
+            Map<String, Object> analytics = analyticsService.getUserAnalytics(user);
+            Map<String, Object> monthlyProgress = (Map<String, Object>) analytics.get("monthlyProgress");
             
             // Add all attributes to model
             model.addAttribute("user", user);
-            model.addAttribute("expensesCount", expensesCount);
-            model.addAttribute("totalSpent", totalSpent);
-            model.addAttribute("categoryCount", categoryCount);
-            model.addAttribute("averageExpense", averageExpense);
-            model.addAttribute("remainingBudget", remainingBudget);
-            model.addAttribute("percentageOfLimit", percentageOfLimit);
-            model.addAttribute("categorySpending", categorySpending);
-            model.addAttribute("categoryPercentages", categoryPercentages);
-            model.addAttribute("chartLabels", chartLabels);
-            model.addAttribute("chartData", chartData);
-            model.addAttribute("recommendations", recommendations != null ? recommendations : new ArrayList<>());
+            model.addAttribute("expensesCount", analytics.get("expensesCount"));
+            model.addAttribute("totalSpent", analytics.get("totalSpent"));
+            model.addAttribute("categoryCount", analytics.get("categoryCount"));
+            model.addAttribute("averageExpense", analytics.get("averageExpense"));
+            // Budget progress is for the current month only
+            model.addAttribute("monthSpent", monthlyProgress.get("totalSpent"));
+            model.addAttribute("remainingBudget", monthlyProgress.get("remainingBudget"));
+            model.addAttribute("percentageOfLimit", monthlyProgress.get("percentageOfLimit"));
+            model.addAttribute("categorySpending", analytics.get("categorySpending"));
+            model.addAttribute("categoryPercentages", analytics.get("categoryPercentages"));
+            model.addAttribute("chartLabels", analytics.get("chartLabels"));
+            model.addAttribute("chartData", analytics.get("chartData"));
+            model.addAttribute("monthlyTrend", analytics.get("monthlyTrend"));
+            model.addAttribute("burnDown", analytics.get("budgetBurnDown"));
+            model.addAttribute("recommendations", analytics.getOrDefault("recommendations", new ArrayList<>()));
+            model.addAttribute("anomalies", analytics.getOrDefault("anomalies", new ArrayList<>()));
             
-            System.out.println("✅ Analytics loaded for user: " + user.getUsername());
-            System.out.println("📊 Expenses: " + expensesCount + ", Total: $" + totalSpent + ", Categories: " + categoryCount);
+            log.debug("Analytics loaded for user: {}", user.getUsername());
+            log.debug("Expenses: {}, Total: ${}, Categories: {}", analytics.get("expensesCount"),
+                    analytics.get("totalSpent"), analytics.get("categoryCount"));
             
             return "analytics";
             
         } catch (Exception e) {
-            System.out.println("❌ Error in analytics: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in analytics", e);
             
             // Fallback with basic data
             model.addAttribute("user", user);
@@ -81,13 +67,17 @@ public class AnalyticsController {
             model.addAttribute("totalSpent", 0.0);
             model.addAttribute("categoryCount", 0);
             model.addAttribute("averageExpense", 0.0);
+            model.addAttribute("monthSpent", 0.0);
             model.addAttribute("remainingBudget", user.getMonthlyExpenseLimit());
             model.addAttribute("percentageOfLimit", 0.0);
             model.addAttribute("categorySpending", new HashMap<>());
             model.addAttribute("categoryPercentages", new HashMap<>());
             model.addAttribute("chartLabels", new ArrayList<>());
             model.addAttribute("chartData", new ArrayList<>());
+            model.addAttribute("monthlyTrend", new ArrayList<>());
+            model.addAttribute("burnDown", new HashMap<>());
             model.addAttribute("recommendations", Arrays.asList("Start adding expenses to see analytics!"));
+            model.addAttribute("anomalies", new ArrayList<>());
             
             return "analytics";
         }
@@ -0,0 +1,125 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.service.ExpensePage;
+import com.expensetracker.service.ExpenseQuery;
+import com.expensetracker.service.ExpenseSearchResult;
+import com.expensetracker.service.ExpenseService;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.net.URI;
+import java.util.Map;
+
+// JSON API for a signed-in user's expenses (same session as the pages).
+// GETs carry an ETag built from the user's data version; a matching If-None-Match is
+// answered with 304 before anything is queried or serialized.
+@RestController
+@RequestMapping("/api/v1/expenses")
+public class ExpenseApiController {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseApiController.class);
+
+    private final ExpenseService expenseService;
+
+    public ExpenseApiController(ExpenseService expenseService) {
+        this.expenseService = expenseService;
+    }
+
+    @GetMapping
+    public ResponseEntity<ExpensePage> listExpenses(@RequestParam(required = false) String category,
+                                                    @RequestParam(required = false) Double minAmount,
+                                                    @RequestParam(required = false) Double maxAmount,
+                                                    @RequestParam(defaultValue = "ID") ExpenseQuery.Sort sort,
+                                                    @RequestParam(defaultValue = "DESC") ExpenseQuery.Direction direction,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "25") int size,
+                                                    @RequestParam(required = false) String cursor,
+                                                    HttpSession session, WebRequest request) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String etag = expenseService.getDataVersionTag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ExpenseQuery query = new ExpenseQuery(category, minAmount, maxAmount, sort, direction, page, size, cursor);
+        return ResponseEntity.ok().eTag(etag).body(expenseService.queryExpenses(user.getId(), query));
+    }
+
+    // Ranked matches on description words; every query word must match a word or the start of one
+    @GetMapping("/search")
+    public ResponseEntity<ExpenseSearchResult> searchExpenses(@RequestParam String q,
+                                                              @RequestParam(defaultValue = "50") int limit,
+                                                              HttpSession session, WebRequest request) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String etag = expenseService.getDataVersionTag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(expenseService.searchExpenses(user.getId(), q, limit));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Expense> getExpense(@PathVariable Long id, HttpSession session, WebRequest request) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String etag = expenseService.getDataVersionTag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Expense expense = expenseService.getUserExpense(user.getId(), id);
+        if (expense == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(expense);
+    }
+
+    @PostMapping
+    public ResponseEntity<?> addExpense(@RequestBody Expense expense, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String validationError = expenseService.validateExpense(expense);
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", validationError));
+        }
+        try {
+            expenseService.addExpense(expense, user.getId());
+            return ResponseEntity.created(URI.create("/api/v1/expenses/" + expense.getId())).body(expense);
+        } catch (Exception e) {
+            log.error("API error adding expense: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteExpense(@PathVariable Long id, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // Only the owner may delete; other users' ids look the same as missing ones
+        try {
+            if (!expenseService.deleteUserExpense(user.getId(), id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("API error deleting expense: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,68 +1,107 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
 import com.expensetracker.model.User;
+import com.expensetracker.service.ExpenseExportService;
+import com.expensetracker.service.CategoryTotal;
+import com.expensetracker.service.ExpenseImportService;
+import com.expensetracker.service.ExpensePage;
+import com.expensetracker.service.ExpenseQuery;
+import com.expensetracker.service.ExpenseSearchResult;
 import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ImportResult;
 
 import jakarta.servlet.http.HttpSession;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeSet;
 
-import java.util.List;
 
 @Controller
 @RequestMapping("/expenses")
 public class ExpenseController {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseController.class);
     
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
+    private final ExpenseExportService expenseExportService;
     
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService,
+                             ExpenseImportService expenseImportService,
+                             ExpenseExportService expenseExportService) {
         this.expenseService = expenseService;
+        this.expenseImportService = expenseImportService;
+        this.expenseExportService = expenseExportService;
     }
     
     @GetMapping
-    public String showExpenses(HttpSession session, Model model) {
+    public String showExpenses(@RequestParam(required = false) String category,
+                               @RequestParam(required = false) Double minAmount,
+                               @RequestParam(required = false) Double maxAmount,
+                               @RequestParam(defaultValue = "ID") ExpenseQuery.Sort sort,
+                               @RequestParam(defaultValue = "DESC") ExpenseQuery.Direction direction,
+                               @RequestParam(defaultValue = "0") int page,
+                               @RequestParam(defaultValue = "25") int size,
+                               @RequestParam(required = false) String cursor,
+                               @RequestParam(required = false) String q,
+                               HttpSession session, Model model) {
         try {
             User user = (User) session.getAttribute("user");
             if (user == null) {
                 return "redirect:/users/login";
             }
 
-            List<Expense> expenses = expenseService.getExpensesByUserId(user.getId());
+            ExpenseQuery query = new ExpenseQuery(category, minAmount, maxAmount, sort, direction, page, size, cursor);
+            // A search replaces the filtered page with the best-ranked matches
+            if (q != null && !q.isBlank()) {
+                ExpenseSearchResult search = expenseService.searchExpenses(user.getId(), q,
+                        ExpenseSearchResult.DEFAULT_LIMIT);
+                model.addAttribute("search", search);
+                model.addAttribute("expenses", search.items());
+            } else {
+                ExpensePage expensePage = expenseService.queryExpenses(user.getId(), query);
+                model.addAttribute("expenses", expensePage.items());
+                model.addAttribute("expensePage", expensePage);
+                log.debug("Expenses page {} loaded for: {} ({} of {} matching expenses)", expensePage.page() + 1,
+                        user.getUsername(), expensePage.items().size(), expensePage.totalMatches());
+            }
+
+            // Summary statistics come from the running aggregates, not from the rows on this page
+            Map<String, CategoryTotal> categoryTotals = expenseService.getCategoryTotals(user.getId());
+            int totalExpenses = expenseService.getExpenseCount(user.getId());
+            long totalCents = expenseService.getTotalSpentCents(user.getId());
+            double totalAmount = Money.toAmount(totalCents);
+            double averageExpense = totalExpenses == 0 ? 0 : Money.toAmount(Money.divide(totalCents, totalExpenses));
 
-              double totalAmount = 0.0;
-        for (Expense expense : expenses) {
-            totalAmount += expense.getAmount();
-            System.out.println("💰 Expense: " + expense.getDescription() + " - $" + expense.getAmount());
-        }
-        long categoryCount = expenses.stream()
-                .map(Expense::getCategory)
-                .distinct()
-                .count();
-        
-        double averageExpense = expenses.isEmpty() ? 0 : totalAmount / expenses.size();
-
-         // Debug output
-        System.out.println("🔢 Statistics calculated:");
-        System.out.println("   Total Expenses: " + expenses.size());
-        System.out.println("   Total Amount: $" + totalAmount);
-        System.out.println("   Categories: " + categoryCount);
-        System.out.println("   Average: $" + averageExpense);
-        
-            
             model.addAttribute("user", user);
-            model.addAttribute("expenses", expenses);
+            model.addAttribute("query", query);
+            model.addAttribute("categories", new TreeSet<>(categoryTotals.keySet()));
+            model.addAttribute("totalExpenses", totalExpenses);
+            model.addAttribute("totalAmount", totalAmount);
+            model.addAttribute("categoryCount", categoryTotals.size());
+            model.addAttribute("averageExpense", averageExpense);
+            // Expenses flagged as unusual when added, marked in the table
+            model.addAttribute("anomalies", expenseService.getAnomalies(user.getId()));
             model.addAttribute("newExpense", new Expense());
-
-            System.out.println("✅ Expenses page loaded for: " + user.getUsername() + " with " + expenses.size() + " expenses");
-             System.out.println("💰 Total Amount: $" + totalAmount);
-       
             
             return "expenses";
         } catch (Exception e) {
-            System.out.println("❌ Error loading expenses: " + e.getMessage());
+            log.error("Error loading expenses: {}", e.getMessage());
             return "redirect:/users/login";
         }
     }
@@ -79,7 +118,7 @@ public class ExpenseController {
             model.addAttribute("expense", new Expense());
             return "add-expense";
         } catch (Exception e) {
-            System.out.println("❌ Error loading add expense page: " + e.getMessage());
+            log.error("Error loading add expense page: {}", e.getMessage());
             return "redirect:/users/login";
         }
     }
@@ -88,6 +127,7 @@ public class ExpenseController {
     public String addExpense(@RequestParam String description,
                             @RequestParam String category,
                             @RequestParam Double amount,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
                             HttpSession session,
                             Model model) {
         try {
@@ -120,13 +160,14 @@ public class ExpenseController {
             expense.setDescription(description.trim());
             expense.setCategory(category);
             expense.setAmount(amount);
+            expense.setDate(date);
             
             expenseService.addExpense(expense, user.getId());
             
             return "redirect:/expenses?success=Expense+added+successfully";
             
         } catch (Exception e) {
-            System.out.println("❌ ERROR ADDING EXPENSE: " + e.getMessage());
+            log.error("ERROR ADDING EXPENSE: {}", e.getMessage());
             
             if (session.getAttribute("user") != null) {
                 User user = (User) session.getAttribute("user");
@@ -138,6 +179,57 @@ public class ExpenseController {
         }
     }
 
+    // Bulk import from a CSV (header: description,category,amount[,date]) or JSON-lines upload
+    @PostMapping("/import")
+    public String importExpenses(@RequestParam("file") MultipartFile file,
+                                 @RequestParam(required = false) ExpenseImportService.Format format,
+                                 HttpSession session,
+                                 Model model) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return "redirect:/users/login";
+        }
+        model.addAttribute("user", user);
+        model.addAttribute("expense", new Expense());
+
+        if (file.isEmpty()) {
+            model.addAttribute("error", "Please choose a file to import");
+            return "add-expense";
+        }
+
+        ExpenseImportService.Format importFormat =
+                format != null ? format : ExpenseImportService.formatFor(file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            ImportResult result = expenseImportService.importExpenses(in, importFormat, user.getId());
+            model.addAttribute("importResult", result);
+            if (result.imported() > 0) {
+                model.addAttribute("success", "Imported " + result.imported() + " of " + result.rowsRead() + " expenses");
+            }
+        } catch (Exception e) {
+            log.error("ERROR IMPORTING EXPENSES: {}", e.getMessage());
+            model.addAttribute("error", "Failed to import expenses: " + e.getMessage());
+        }
+        return "add-expense";
+    }
+
+    // Download the signed-in user's expenses; the body is written after the handler returns
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "CSV") ExpenseExportService.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, "/users/login").build();
+        }
+        Long userId = user.getId();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + ExpenseExportService.fileName(format, gzip) + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, ExpenseExportService.contentType(format, gzip))
+                .body(out -> expenseExportService.exportUserExpenses(userId, format, gzip, out));
+    }
+
     @GetMapping("/delete/{id}")
     public String deleteExpense(@PathVariable Long id, HttpSession session) {
         try {
@@ -146,11 +238,14 @@ public class ExpenseController {
                 return "redirect:/users/login";
             }
 
-            expenseService.deleteExpense(id);
+            // Only the owner's expenses can be deleted (and found while lazy loading)
+            if (!expenseService.deleteUserExpense(user.getId(), id)) {
+                return "redirect:/expenses?error=Expense+not+found";
+            }
             return "redirect:/expenses?success=Expense+deleted+successfully";
             
         } catch (Exception e) {
-            System.out.println("❌ Error deleting expense: " + e.getMessage());
+            log.error("Error deleting expense: {}", e.getMessage());
             return "redirect:/expenses?error=Failed+to+delete+expense";
         }
     }
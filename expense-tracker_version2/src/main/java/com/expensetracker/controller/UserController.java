@@ -1,7 +1,10 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.User;
+import com.expensetracker.service.ExpenseService;
 import com.expensetracker.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -11,10 +14,14 @@ import jakarta.servlet.http.HttpSession;
 @Controller
 @RequestMapping("/users")
 public class UserController {
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+
     private final UserService userService;
+    private final ExpenseService expenseService;
     
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ExpenseService expenseService) {
         this.userService = userService;
+        this.expenseService = expenseService;
     }
     
     @GetMapping("/register")
@@ -31,7 +38,7 @@ public class UserController {
             User loggedInUser = userService.loginUser(user.getUsername(), user.getPassword());
             if (loggedInUser != null) {
                 session.setAttribute("user", loggedInUser);
-                System.out.println("✅ Auto-login successful after registration for: " + loggedInUser.getUsername());
+                log.debug("Auto-login successful after registration for: {}", loggedInUser.getUsername());
                 return "redirect:/dashboard"; // ✅ Redirect to dashboard
             } else {
                 model.addAttribute("error", "Registration successful but auto-login failed. Please login manually.");
@@ -61,7 +68,9 @@ public class UserController {
         User user = userService.loginUser(username, password);
         if (user != null) {
             session.setAttribute("user", user);
-            System.out.println("✅ Login successful! Session created for: " + user.getUsername());
+            // With lazy loading, the dashboard finds the user's expenses already in memory
+            expenseService.preload(user.getId());
+            log.debug("Login successful! Session created for: {}", user.getUsername());
             return "redirect:/dashboard";
         } else {
             model.addAttribute("error", "Invalid username or password!");
@@ -74,4 +83,4 @@ public class UserController {
         session.invalidate();
         return "redirect:/users/login";
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,11 +1,26 @@
 package com.expensetracker.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+
+import java.time.LocalDate;
+
 public class Expense {
     private Long id;
     private String description;
-    private Double amount;
+    // In cents (see Money), Money.NONE when unset; JSON and the snapshots keep the decimal amount
+    private long amountCents = Money.NONE;
     private String category;
     private Long userId;
+    // Transaction date, stored as yyyy-MM-dd; null for expenses saved before dates existed
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    @JsonSerialize(using = LocalDateSerializer.class)
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    private LocalDate date;
 
     // Simple constructor
     public Expense() {}
@@ -13,7 +28,7 @@ public class Expense {
     // Constructor for creating expenses
     public Expense(String description, Double amount, String category) {
         this.description = description;
-        this.amount = amount;
+        setAmount(amount);
         this.category = category;
     }
 
@@ -24,15 +39,20 @@ public class Expense {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
     
-    public Double getAmount() { return amount; }
-    public void setAmount(Double amount) { this.amount = amount; }
+    public Double getAmount() { return amountCents == Money.NONE ? null : Money.toAmount(amountCents); }
+    public void setAmount(Double amount) { this.amountCents = amount == null ? Money.NONE : Money.toCents(amount); }
+
+    @JsonIgnore
+    public long getAmountCents() { return amountCents; }
+    @JsonIgnore
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
     
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
     
     public Long getUserId() { return userId; }
-    public void setUserId(Long userId) { 
-        this.userId = userId; 
-        System.out.println("🔍 Setting User ID in Expense model: " + userId);
-    }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
 }
\ No newline at end of file
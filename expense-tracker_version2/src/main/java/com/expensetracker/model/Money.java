@@ -0,0 +1,46 @@
+package com.expensetracker.model;
+
+// Amounts are held and summed as long cents, so totals are exact and need no boxing. Decimal
+// amounts appear only at the edges: JSON fields, form input and what the pages display.
+public final class Money {
+    // Stands in for a missing amount wherever cents are stored as a primitive
+    public static final long NONE = Long.MIN_VALUE;
+    // Largest amount an expense may have (one billion), so totals stay far from overflowing a long
+    public static final long MAX_CENTS = 100_000_000_000L;
+
+    private Money() {}
+
+    // Nearest cent; decimal amounts with at most two places convert exactly. Out of range
+    // amounts saturate (infinity to Long.MAX_VALUE, NaN to 0), so check isValidAmount first
+    // where the amount comes from outside.
+    public static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    // Finite and no further from zero than MAX_CENTS
+    public static boolean isValidAmount(double amount) {
+        return Double.isFinite(amount) && Math.abs(amount) <= toAmount(MAX_CENTS);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    // Missing amounts count as zero in totals
+    public static long orZero(long cents) {
+        return cents == NONE ? 0 : cents;
+    }
+
+    // part / whole as a percentage rounded half up to two places, 0 when whole isn't positive
+    public static double percent(long part, long whole) {
+        if (whole <= 0) {
+            return 0.0;
+        }
+        return Math.floorDiv(part * 20_000 + whole, 2 * whole) / 100.0;
+    }
+
+    // cents / divisor rounded half up to a whole cent
+    public static long divide(long cents, long divisor) {
+        return Math.floorDiv(2 * cents + divisor, 2 * divisor);
+    }
+}
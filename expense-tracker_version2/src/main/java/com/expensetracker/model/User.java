@@ -1,5 +1,7 @@
 package com.expensetracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class User {
     private Long id;
     private String firstName;
@@ -7,8 +9,9 @@ public class User {
     private String username;
     private String email;
     private String password;
-    private Double monthlyIncome;
-    private Double monthlyExpenseLimit;
+    // In cents (see Money); users.json keeps the decimal monthlyIncome and monthlyExpenseLimit
+    private long monthlyIncomeCents;
+    private long monthlyExpenseLimitCents;
     
     public User() {}
     
@@ -25,8 +28,20 @@ public class User {
     public void setEmail(String email) { this.email = email; }
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
-    public double getMonthlyIncome() { return monthlyIncome; }
-    public void setMonthlyIncome(Double monthlyIncome) { this.monthlyIncome = monthlyIncome; }
-    public double getMonthlyExpenseLimit() { return monthlyExpenseLimit; }
-    public void setMonthlyExpenseLimit(Double monthlyExpenseLimit) { this.monthlyExpenseLimit = monthlyExpenseLimit; }
+    public double getMonthlyIncome() { return Money.toAmount(monthlyIncomeCents); }
+    public void setMonthlyIncome(Double monthlyIncome) {
+        this.monthlyIncomeCents = monthlyIncome == null ? 0 : Money.toCents(monthlyIncome);
+    }
+    public double getMonthlyExpenseLimit() { return Money.toAmount(monthlyExpenseLimitCents); }
+    public void setMonthlyExpenseLimit(Double monthlyExpenseLimit) {
+        this.monthlyExpenseLimitCents = monthlyExpenseLimit == null ? 0 : Money.toCents(monthlyExpenseLimit);
+    }
+    @JsonIgnore
+    public long getMonthlyIncomeCents() { return monthlyIncomeCents; }
+    @JsonIgnore
+    public void setMonthlyIncomeCents(long monthlyIncomeCents) { this.monthlyIncomeCents = monthlyIncomeCents; }
+    @JsonIgnore
+    public long getMonthlyExpenseLimitCents() { return monthlyExpenseLimitCents; }
+    @JsonIgnore
+    public void setMonthlyExpenseLimitCents(long monthlyExpenseLimitCents) { this.monthlyExpenseLimitCents = monthlyExpenseLimitCents; }
 }
\ No newline at end of file
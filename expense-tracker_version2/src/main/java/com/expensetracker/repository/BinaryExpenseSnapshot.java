@@ -0,0 +1,200 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact columnar snapshot of the expense ledger.
+//
+// Layout (big-endian):
+//   int magic, int version, int rowCount
+//   long[rowCount]   ids
+//   long[rowCount]   userIds          (Long.MIN_VALUE = null)
+//   long[rowCount]   amounts in cents (Money.NONE = null; version 2 held double amounts, NaN = null)
+//   int[rowCount]    dates as epoch days (Integer.MIN_VALUE = null)
+//   int dictSize, then per entry: int byteLength, UTF-8 bytes
+//   int[rowCount]    category codes   (-1 = null)
+//   int[rowCount]    description byte lengths (-1 = null)
+//   int blobLength, UTF-8 description bytes laid end to end
+//
+// Columns are read with bulk copies out of a memory-mapped file, so loading skips
+// JSON tokenizing entirely and categories are shared String instances per row.
+public final class BinaryExpenseSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(BinaryExpenseSnapshot.class);
+    private static final int MAGIC = 0x45585042;  // "EXPB"
+    private static final int VERSION = 3;
+    // Same layout, with the amount column as double rather than cents; still read
+    private static final int DOUBLE_AMOUNTS_VERSION = 2;
+    private static final long NULL_USER_ID = Long.MIN_VALUE;
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+
+    private BinaryExpenseSnapshot() {}
+
+    public static void write(File file, List<Expense> expenses) throws IOException {
+        int rows = expenses.size();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> categories = new ArrayList<>();
+        int[] categoryCodes = new int[rows];
+        byte[][] descriptions = new byte[rows][];
+        int blobLength = 0;
+
+        for (int i = 0; i < rows; i++) {
+            Expense expense = expenses.get(i);
+            String category = expense.getCategory();
+            if (category == null) {
+                categoryCodes[i] = -1;
+            } else {
+                categoryCodes[i] = dictionary.computeIfAbsent(category, c -> {
+                    categories.add(c);
+                    return categories.size() - 1;
+                });
+            }
+            if (expense.getDescription() != null) {
+                descriptions[i] = expense.getDescription().getBytes(StandardCharsets.UTF_8);
+                blobLength += descriptions[i].length;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            for (Expense expense : expenses) {
+                out.writeLong(expense.getId());
+            }
+            for (Expense expense : expenses) {
+                out.writeLong(expense.getUserId() == null ? NULL_USER_ID : expense.getUserId());
+            }
+            for (Expense expense : expenses) {
+                out.writeLong(expense.getAmountCents());
+            }
+            for (Expense expense : expenses) {
+                out.writeInt(expense.getDate() == null ? NULL_DAY : Math.toIntExact(expense.getDate().toEpochDay()));
+            }
+            out.writeInt(categories.size());
+            for (String category : categories) {
+                byte[] bytes = category.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int code : categoryCodes) {
+                out.writeInt(code);
+            }
+            for (byte[] description : descriptions) {
+                out.writeInt(description == null ? -1 : description.length);
+            }
+            out.writeInt(blobLength);
+            for (byte[] description : descriptions) {
+                if (description != null) {
+                    out.write(description);
+                }
+            }
+        }
+    }
+
+    public static List<Expense> read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary expense snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != DOUBLE_AMOUNTS_VERSION) {
+                throw new IOException("Unsupported binary snapshot version " + version);
+            }
+            int rows = buffer.getInt();
+
+            long[] ids = new long[rows];
+            long[] userIds = new long[rows];
+            long[] amountCents = new long[rows];
+            buffer.asLongBuffer().get(ids);
+            advance(buffer, rows * 8L);
+            buffer.asLongBuffer().get(userIds);
+            advance(buffer, rows * 8L);
+            if (version == DOUBLE_AMOUNTS_VERSION) {
+                double[] amounts = new double[rows];
+                buffer.asDoubleBuffer().get(amounts);
+                for (int i = 0; i < rows; i++) {
+                    amountCents[i] = Double.isNaN(amounts[i]) ? Money.NONE : Money.toCents(amounts[i]);
+                }
+            } else {
+                buffer.asLongBuffer().get(amountCents);
+            }
+            advance(buffer, rows * 8L);
+            int[] epochDays = new int[rows];
+            buffer.asIntBuffer().get(epochDays);
+            advance(buffer, rows * 4L);
+
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer, buffer.getInt());
+            }
+
+            int[] categoryCodes = new int[rows];
+            int[] descriptionLengths = new int[rows];
+            buffer.asIntBuffer().get(categoryCodes);
+            advance(buffer, rows * 4L);
+            buffer.asIntBuffer().get(descriptionLengths);
+            advance(buffer, rows * 4L);
+            buffer.getInt();  // blob length, descriptions follow
+
+            List<Expense> expenses = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                Expense expense = new Expense();
+                expense.setId(ids[i]);
+                expense.setUserId(userIds[i] == NULL_USER_ID ? null : userIds[i]);
+                expense.setAmountCents(amountCents[i]);
+                expense.setDate(epochDays[i] == NULL_DAY ? null : LocalDate.ofEpochDay(epochDays[i]));
+                expense.setCategory(categoryCodes[i] < 0 ? null : dictionary[categoryCodes[i]]);
+                expense.setDescription(descriptionLengths[i] < 0 ? null : readString(buffer, descriptionLengths[i]));
+                expenses.add(expense);
+            }
+            return expenses;
+        }
+    }
+
+    // One-shot conversion of an existing expenses.json into the binary format
+    public static int convertJson(File jsonFile, File binaryFile) throws IOException {
+        Expense[] expenses = new ObjectMapper().readValue(jsonFile, Expense[].class);
+        write(binaryFile, Arrays.asList(expenses));
+        return expenses.length;
+    }
+
+    // Usage: java -cp <classpath> com.expensetracker.repository.BinaryExpenseSnapshot [expenses.json] [expenses.bin]
+    public static void main(String[] args) throws IOException {
+        File jsonFile = new File(args.length > 0 ? args[0] : "expenses.json");
+        File binaryFile = new File(args.length > 1 ? args[1] : "expenses.bin");
+        int rows = convertJson(jsonFile, binaryFile);
+        log.info("Converted {} expenses from {} to {}", rows, jsonFile, binaryFile);
+    }
+
+    private static void advance(ByteBuffer buffer, long bytes) {
+        buffer.position(buffer.position() + Math.toIntExact(bytes));
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,18 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+
+// One journaled change to the ledger: an added expense or a deleted id. The owning user
+// routes the record to its shard; deletes carry it because only the id is journaled.
+public record ExpenseMutation(Type type, Expense expense, Long id, Long userId) {
+
+    public enum Type { ADD, DELETE }
+
+    public static ExpenseMutation add(Expense expense) {
+        return new ExpenseMutation(Type.ADD, expense, expense.getId(), expense.getUserId());
+    }
+
+    public static ExpenseMutation delete(Long id, Long userId) {
+        return new ExpenseMutation(Type.DELETE, null, id, userId);
+    }
+}
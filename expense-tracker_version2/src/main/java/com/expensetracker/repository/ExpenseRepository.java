@@ -1,40 +1,735 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+// Expense files on disk: a snapshot plus a journal of mutations since the last compaction.
+// With expense.storage.shards > 1 the ledger is split by userId hash into that many shards,
+// each with its own snapshot and journal under <base>-shards/, so a mutation only ever
+// rewrites one shard and startup loads the shards in parallel. A layout written with a
+// different shard count (or the single-file layout) is migrated on the first load.
+// Compaction stays in here: a shard whose journal reaches compaction-threshold records is folded
+// into its snapshot from its own files by the append that took it there, so callers only ever
+// load, save and apply mutations. Lazy loading reads one user at a time from their shard.
 @Repository  // ✅ MUST HAVE THIS ANNOTATION
-public class ExpenseRepository {
-    private static final String EXPENSES_FILE = "expenses.json";
+@ConditionalOnProperty(name = "storage.backend", havingValue = "file", matchIfMissing = true)
+public class ExpenseRepository implements ExpenseStorage {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseRepository.class);
+
+    private static final String OP_ADD = "ADD";
+    private static final String OP_DELETE = "DELETE";
+    private static final Pattern SHARD_FILE = Pattern.compile("shard-(\\d+)-of-(\\d+)\\.(json|bin|journal)");
+    // Windows can't open a directory to force it; NTFS journals the rename itself
+    private static final boolean SYNC_DIRECTORIES = !System.getProperty("os.name", "").startsWith("Windows");
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final File expensesFile;
+    private final File shardDir;
+    private final SnapshotFormat snapshotFormat;
+    private final boolean journalEnabled;
+    private final FsyncPolicy fsyncPolicy;
+    // Forces the journals down every fsync-interval-ms under INTERVAL; null otherwise
+    private final ScheduledExecutorService fsyncTimer;
+    private final int compactionThreshold;
+    private final List<Shard> shards;
+    // Loads and full rewrites fan out over the shards; null with a single shard
+    private final ForkJoinPool shardPool;
+    // Snapshot and journal bytes written, for comparing write amplification across layouts
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    // When to force journal appends down to the storage device
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    // JSON keeps expenses.json as the snapshot; BINARY writes the columnar expenses.bin instead
+    public enum SnapshotFormat { JSON, BINARY }
+
+    public ExpenseRepository(@Value("${expense.storage.file:expenses.json}") String expensesFile,
+                             @Value("${expense.storage.snapshot-format:JSON}") SnapshotFormat snapshotFormat,
+                             @Value("${expense.storage.journal.enabled:true}") boolean journalEnabled,
+                             @Value("${expense.storage.journal.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+                             @Value("${expense.storage.journal.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                             @Value("${expense.storage.journal.compaction-threshold:1000}") int compactionThreshold,
+                             @Value("${expense.storage.shards:1}") int shardCount) {
+        String baseName = expensesFile.replaceFirst("\\.json$", "");
+        this.expensesFile = new File(expensesFile);
+        this.shardDir = new File(baseName + "-shards");
+        this.snapshotFormat = snapshotFormat;
+        this.journalEnabled = journalEnabled;
+        this.fsyncPolicy = fsyncPolicy;
+        this.compactionThreshold = compactionThreshold;
+        this.shards = shardCount <= 1 ? List.of(singleFileShard()) : shardLayout(shardCount);
+        this.shardPool = shards.size() > 1
+                ? new ForkJoinPool(Math.min(shards.size(), Runtime.getRuntime().availableProcessors()))
+                : null;
+        // On a timer rather than on the next append, so the last appends before a quiet spell
+        // are on disk within the interval too
+        if (journalEnabled && fsyncPolicy == FsyncPolicy.INTERVAL) {
+            this.fsyncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "expense-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = Math.max(1, fsyncIntervalMs);
+            fsyncTimer.scheduleWithFixedDelay(this::syncJournals, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.fsyncTimer = null;
+        }
+    }
 
+    private Shard singleFileShard() {
+        String baseName = expensesFile.getPath().replaceFirst("\\.json$", "");
+        return new Shard(expensesFile, new File(baseName + ".bin"), new File(baseName + ".journal"));
+    }
+
+    private List<Shard> shardLayout(int count) {
+        List<Shard> layout = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = String.format("shard-%02d-of-%02d", i, count);
+            layout.add(new Shard(new File(shardDir, name + ".json"), new File(shardDir, name + ".bin"),
+                    new File(shardDir, name + ".journal")));
+        }
+        return layout;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Expenses without a user all live in shard 0
+    public int shardOf(Long userId) {
+        return userId == null ? 0 : Math.floorMod(Long.hashCode(userId), shards.size());
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    // Load every shard's snapshot and replay its journal, ordered by id
+    @Override
     public List<Expense> loadExpenses() {
-        try {
-            File file = new File(EXPENSES_FILE);
-            if (file.exists()) {
-                Expense[] expensesArray = objectMapper.readValue(file, Expense[].class);
-                System.out.println("✅ Loaded " + expensesArray.length + " expenses from file");
-                return new ArrayList<>(Arrays.asList(expensesArray));
+        migrateLayout();
+        return load(shards, shard -> shard.load(true));
+    }
+
+    // Every expense as currently on disk, without folding journals or taking part in migration.
+    // Used while lazy loading, where the service only holds some of the users.
+    @Override
+    public List<Expense> readExpenses() {
+        return load(shards, Shard::read);
+    }
+
+    // One shard at a time, each as read() sees it
+    @Override
+    public void readExpenses(Consumer<List<Expense>> part) {
+        for (Shard shard : shards) {
+            part.accept(shard.read());
+        }
+    }
+
+    // One user's expenses as currently on disk. Only their shard is parsed, and the other
+    // users' rows in it are dropped straight away.
+    @Override
+    public List<Expense> loadUser(Long userId) {
+        List<Expense> expenses = shards.get(shardOf(userId)).read();
+        expenses.removeIf(expense -> !Objects.equals(userId, expense.getUserId()));
+        return expenses;
+    }
+
+    // A single file holds every user, so loading one would parse the whole ledger
+    @Override
+    public boolean loadsUsersSeparately() {
+        return shards.size() > 1;
+    }
+
+    // Startup for lazy loading: migrate and fold the files like loadExpenses, but only keep the
+    // highest id. Shards are read one after another so at most one is in memory at a time.
+    @Override
+    public long loadMaxId() {
+        migrateLayout();
+        long maxId = 0;
+        for (Shard shard : shards) {
+            for (Expense expense : shard.load(true)) {
+                maxId = Math.max(maxId, expense.getId());
+            }
+        }
+        return maxId;
+    }
+
+    private List<Expense> load(List<Shard> layout, Function<Shard, List<Expense>> loader) {
+        if (layout.size() == 1) {
+            return loader.apply(layout.get(0));
+        }
+        List<ForkJoinTask<List<Expense>>> tasks = new ArrayList<>(layout.size());
+        for (Shard shard : layout) {
+            tasks.add(pool().submit(() -> loader.apply(shard)));
+        }
+        List<Expense> expenses = new ArrayList<>();
+        for (ForkJoinTask<List<Expense>> task : tasks) {
+            expenses.addAll(task.join());
+        }
+        expenses.sort(Comparator.comparing(Expense::getId));
+        return expenses;
+    }
+
+    // Migrating away from shards reads the old layout with the same fan-out
+    private ForkJoinPool pool() {
+        return shardPool != null ? shardPool : ForkJoinPool.commonPool();
+    }
+
+    // Move the ledger over from the single-file layout or a different shard count. The old files
+    // are renamed to *.migrated only after the new layout is written, so an interrupted migration
+    // simply runs again on the next start.
+    private void migrateLayout() {
+        List<Shard> previous = previousLayout();
+        if (previous.isEmpty()) {
+            return;
+        }
+        List<Expense> expenses = load(previous, shard -> shard.load(false));
+        rewrite(expenses, shard -> true);
+        for (Shard shard : previous) {
+            shard.retire();
+        }
+        log.info("Migrated {} expenses from {} file set(s) to {} shard(s)", expenses.size(), previous.size(),
+                shards.size());
+    }
+
+    private List<Shard> previousLayout() {
+        if (shards.size() > 1) {
+            Shard single = singleFileShard();
+            if (single.exists()) {
+                return List.of(single);
+            }
+        }
+        File[] files = shardDir.listFiles();
+        if (files == null) {
+            return List.of();
+        }
+        Set<Integer> counts = new TreeSet<>();
+        for (File file : files) {
+            Matcher matcher = SHARD_FILE.matcher(file.getName());
+            if (matcher.matches()) {
+                counts.add(Integer.parseInt(matcher.group(2)));
             }
-        } catch (IOException e) {
-            System.out.println("❌ Error loading expenses: " + e.getMessage());
         }
-        return new ArrayList<>();
+        if (shards.size() > 1) {
+            counts.remove(shards.size());
+        }
+        List<Shard> previous = new ArrayList<>();
+        for (int count : counts) {
+            for (Shard shard : shardLayout(count)) {
+                if (shard.exists()) {
+                    previous.add(shard);
+                }
+            }
+        }
+        return previous;
     }
 
+    // Rewrite every shard's snapshot and start fresh journals (full compaction)
+    @Override
     public void saveExpenses(List<Expense> expenses) {
-        try {
-            objectMapper.writeValue(new File(EXPENSES_FILE), expenses);
-            System.out.println("✅ Saved " + expenses.size() + " expenses to file");
-        } catch (IOException e) {
-            System.out.println("❌ Error saving expenses: " + e.getMessage());
+        rewrite(expenses, shard -> true);
+    }
+
+    // Folds every journal that has records into its snapshot, e.g. on shutdown
+    @Override
+    public void flush() {
+        forEachShard(Shard::hasJournalRecords, Shard::fold);
+    }
+
+    private void forEachShard(Predicate<Shard> which, Consumer<Shard> action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Shard shard : shards) {
+            if (!which.test(shard)) {
+                continue;
+            }
+            if (shards.size() == 1) {
+                action.accept(shard);
+            } else {
+                tasks.add(pool().submit(() -> action.accept(shard)));
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private void rewrite(List<Expense> expenses, Predicate<Shard> which) {
+        if (shards.size() == 1) {
+            if (which.test(shards.get(0))) {
+                shards.get(0).save(expenses);
+            }
+            return;
+        }
+        List<List<Expense>> partitions = null;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            if (!which.test(shard)) {
+                continue;
+            }
+            if (partitions == null) {
+                partitions = partition(expenses);
+            }
+            List<Expense> partition = partitions.get(i);
+            tasks.add(pool().submit(() -> shard.save(partition)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private List<List<Expense>> partition(List<Expense> expenses) {
+        List<List<Expense>> partitions = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Expense expense : expenses) {
+            partitions.get(shardOf(expense.getUserId())).add(expense);
+        }
+        return partitions;
+    }
+
+    // With the journal, one append and at most one fsync per shard touched; a shard whose journal
+    // that takes to compaction-threshold records is then folded into its snapshot. Without it,
+    // each shard touched is rewritten with the mutations applied.
+    @Override
+    public void applyMutations(List<ExpenseMutation> mutations) {
+        if (shards.size() == 1) {
+            shards.get(0).apply(mutations);
+            return;
+        }
+        Map<Integer, List<ExpenseMutation>> byShard = new LinkedHashMap<>();
+        for (ExpenseMutation mutation : mutations) {
+            byShard.computeIfAbsent(shardOf(mutation.userId()), i -> new ArrayList<>()).add(mutation);
+        }
+        byShard.forEach((index, shardMutations) -> shards.get(index).apply(shardMutations));
+    }
+
+    private ObjectNode toRecord(ExpenseMutation mutation) {
+        ObjectNode record = objectMapper.createObjectNode();
+        if (mutation.type() == ExpenseMutation.Type.ADD) {
+            record.put("op", OP_ADD);
+            record.set("expense", objectMapper.valueToTree(mutation.expense()));
+        } else {
+            record.put("op", OP_DELETE);
+            record.put("id", mutation.id());
+        }
+        return record;
+    }
+
+    // Forces every journal with unsynced appends down to the storage device
+    public void syncJournals() {
+        for (Shard shard : shards) {
+            shard.sync();
+        }
+    }
+
+    @PreDestroy
+    public void closeJournal() {
+        if (fsyncTimer != null) {
+            fsyncTimer.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.closeJournal();
+        }
+    }
+
+    // One snapshot + journal pair: the whole ledger in the single-file layout, or one shard of it
+    private final class Shard {
+        private final File jsonFile;
+        private final File binaryFile;
+        private final File journalFile;
+
+        // Guards the journal stream and counters. A ReentrantLock rather than a monitor so a
+        // virtual thread blocked on file I/O here parks instead of pinning its carrier.
+        private final ReentrantLock lock = new ReentrantLock();
+        private FileOutputStream journalOut;
+        private int journalEntries;
+        // Appended since the journal was last forced down
+        private boolean unsynced;
+
+        private Shard(File jsonFile, File binaryFile, File journalFile) {
+            this.jsonFile = jsonFile;
+            this.binaryFile = binaryFile;
+            this.journalFile = journalFile;
+        }
+
+        private boolean exists() {
+            return jsonFile.exists() || binaryFile.exists() || journalFile.exists();
+        }
+
+        private List<Expense> load(boolean fold) {
+            List<Expense> expenses = loadSnapshot();
+            if (journalEnabled && journalFile.exists()) {
+                int replayed = replayJournal(expenses);
+                log.info("Replayed {} journal records on top of {}", replayed, journalFile.getName());
+                if (fold) {
+                    // Fold the tail into the snapshot so a torn record never sits in front of new appends
+                    compact(expenses);
+                }
+            }
+            return expenses;
+        }
+
+        // Snapshot plus journal as of now, without rewriting anything. The lock keeps a
+        // concurrent compaction from swapping the snapshot between the two reads. Throws if
+        // either can't be read, so nothing is ever saved over a partial read.
+        private List<Expense> read() {
+            lock.lock();
+            try {
+                List<Expense> expenses = loadSnapshot();
+                if (journalEnabled && journalFile.exists()) {
+                    readJournal(expenses);
+                }
+                return expenses;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // A failed read or write leaves the journal in place to be folded later
+        private void fold() {
+            lock.lock();
+            try {
+                save(read());
+            } catch (RuntimeException e) {
+                log.error("Compaction of {} skipped, journal kept: {}", journalFile.getName(), e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // As fold, over expenses already read
+        private void compact(List<Expense> expenses) {
+            try {
+                save(expenses);
+            } catch (RuntimeException e) {
+                log.error("Compaction of {} skipped, journal kept: {}", journalFile.getName(), e.getMessage());
+            }
+        }
+
+        private void apply(List<ExpenseMutation> mutations) {
+            lock.lock();
+            try {
+                if (!journalEnabled) {
+                    rewriteWith(mutations);
+                    return;
+                }
+                append(mutations);
+                if (journalEntries >= compactionThreshold) {
+                    fold();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Without a journal the snapshot is the only record, so it is rewritten with the mutations applied
+        private void rewriteWith(List<ExpenseMutation> mutations) {
+            Map<Long, Expense> byId = new LinkedHashMap<>();
+            for (Expense expense : read()) {
+                byId.put(expense.getId(), expense);
+            }
+            for (ExpenseMutation mutation : mutations) {
+                if (mutation.type() == ExpenseMutation.Type.ADD) {
+                    byId.put(mutation.expense().getId(), mutation.expense());
+                } else {
+                    byId.remove(mutation.id());
+                }
+            }
+            List<Expense> expenses = new ArrayList<>(byId.values());
+            expenses.sort(Comparator.comparing(Expense::getId));
+            save(expenses);
+        }
+
+        // Rewrite this snapshot and start a fresh journal. Throws if the snapshot can't be written,
+        // as without a journal it is the only record. Unless fsync is NEVER, the snapshot and its
+        // rename are forced down before the journal goes, so a crash can't leave neither on disk.
+        // The other format's snapshot is deleted first: it predates the journal about to go, so
+        // switching snapshot-format back would otherwise load it with only the newer records.
+        private void save(List<Expense> expenses) {
+            lock.lock();
+            try {
+                File target = snapshotFormat == SnapshotFormat.BINARY ? binaryFile : jsonFile;
+                File other = snapshotFormat == SnapshotFormat.BINARY ? jsonFile : binaryFile;
+                File parent = target.getAbsoluteFile().getParentFile();
+                Files.createDirectories(parent.toPath());
+                File tmp = new File(parent, target.getName() + ".tmp");
+                if (snapshotFormat == SnapshotFormat.BINARY) {
+                    BinaryExpenseSnapshot.write(tmp, expenses);
+                } else {
+                    objectMapper.writeValue(tmp, expenses);
+                }
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    force(tmp.toPath(), StandardOpenOption.WRITE);
+                }
+                Files.move(tmp.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(other.toPath());
+                if (fsyncPolicy != FsyncPolicy.NEVER && SYNC_DIRECTORIES) {
+                    force(parent.toPath(), StandardOpenOption.READ);
+                }
+                bytesWritten.addAndGet(target.length());
+                if (journalEnabled) {
+                    truncateJournal();
+                }
+                log.debug("Saved {} expenses to {}", expenses.size(), target.getName());
+            } catch (IOException e) {
+                log.error("Error saving expenses: {}", e.getMessage());
+                throw new RuntimeException("Failed to save expenses: " + e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void force(Path path, StandardOpenOption mode) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, mode)) {
+                channel.force(true);
+            }
+        }
+
+        private boolean hasJournalRecords() {
+            lock.lock();
+            try {
+                return journalEntries > 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void append(List<ExpenseMutation> mutations) {
+            lock.lock();
+            try {
+                if (journalOut == null) {
+                    Files.createDirectories(journalFile.getAbsoluteFile().getParentFile().toPath());
+                    journalOut = new FileOutputStream(journalFile, true);
+                }
+                StringBuilder lines = new StringBuilder();
+                for (ExpenseMutation mutation : mutations) {
+                    lines.append(objectMapper.writeValueAsString(toRecord(mutation))).append('\n');
+                }
+                byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+                journalOut.write(bytes);
+                bytesWritten.addAndGet(bytes.length);
+                journalEntries += mutations.size();
+
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    journalOut.getFD().sync();
+                } else {
+                    unsynced = true;
+                }
+            } catch (IOException e) {
+                log.error("Error appending to expense journal: {}", e.getMessage());
+                throw new RuntimeException("Failed to append to expense journal: " + e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void sync() {
+            lock.lock();
+            try {
+                if (journalOut != null && unsynced) {
+                    journalOut.getFD().sync();
+                    unsynced = false;
+                }
+            } catch (IOException e) {
+                // The timer carries on; the next tick tries again
+                log.error("Error syncing expense journal: {}", e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Reads whichever snapshot exists, so switching snapshot-format loads the other format
+        // until the next compaction writes the new one. If a crash left both, the newer one wins.
+        private List<Expense> loadSnapshot() {
+            try {
+                long binaryModified = binaryFile.exists() ? binaryFile.lastModified() : -1;
+                long jsonModified = jsonFile.exists() ? jsonFile.lastModified() : -1;
+                boolean readBinary = binaryModified > jsonModified || binaryModified == jsonModified
+                        && binaryModified >= 0 && snapshotFormat == SnapshotFormat.BINARY;
+                if (readBinary) {
+                    List<Expense> expenses = BinaryExpenseSnapshot.read(binaryFile);
+                    log.info("Loaded {} expenses from {}", expenses.size(), binaryFile.getName());
+                    return expenses;
+                }
+                if (jsonFile.exists()) {
+                    Expense[] expensesArray = objectMapper.readValue(jsonFile, Expense[].class);
+                    log.info("Loaded {} expenses from {}", expensesArray.length, jsonFile.getName());
+                    return new ArrayList<>(Arrays.asList(expensesArray));
+                }
+            } catch (IOException e) {
+                log.error("Error loading expenses: {}", e.getMessage());
+                throw new RuntimeException("Failed to load expenses: " + e.getMessage());
+            }
+            return new ArrayList<>();
+        }
+
+        private int replayJournal(List<Expense> expenses) {
+            lock.lock();
+            try {
+                return readJournal(expenses);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int readJournal(List<Expense> expenses) {
+            Map<Long, Expense> byId = new LinkedHashMap<>();
+            for (Expense expense : expenses) {
+                byId.put(expense.getId(), expense);
+            }
+            // Concurrent requests can journal a delete just ahead of the add it undoes;
+            // ids are never reused within a journal, so a deleted id stays deleted.
+            Set<Long> deletedIds = new HashSet<>();
+
+            int replayed = 0;
+            try {
+                byte[] journal = Files.readAllBytes(journalFile.toPath());
+                // End of the last whole record; anything after it is cut off before the next append
+                int intact = 0;
+                for (int start = 0; start < journal.length; ) {
+                    int end = start;
+                    while (end < journal.length && journal[end] != '\n') {
+                        end++;
+                    }
+                    if (end == journal.length) {
+                        // No newline: an append cut short by a crash, even if what landed parses
+                        log.warn("Ignoring unterminated journal record in {}", journalFile.getName());
+                        break;
+                    }
+                    String line = new String(journal, start, end - start, StandardCharsets.UTF_8);
+                    start = end + 1;
+                    if (line.isBlank()) {
+                        intact = start;
+                        continue;
+                    }
+                    JsonNode record;
+                    try {
+                        record = objectMapper.readTree(line);
+                    } catch (IOException e) {
+                        // A torn final record from a crash mid-append; everything before it is intact
+                        log.warn("Ignoring unreadable journal record: {}", e.getMessage());
+                        break;
+                    }
+                    intact = start;
+                    String op = record.path("op").asText();
+                    if (OP_ADD.equals(op)) {
+                        Expense expense = objectMapper.treeToValue(record.get("expense"), Expense.class);
+                        if (!deletedIds.contains(expense.getId())) {
+                            byId.put(expense.getId(), expense);
+                        }
+                    } else if (OP_DELETE.equals(op)) {
+                        long id = record.get("id").asLong();
+                        byId.remove(id);
+                        deletedIds.add(id);
+                    }
+                    replayed++;
+                }
+                if (intact < journal.length) {
+                    truncateJournalTo(intact);
+                }
+            } catch (IOException e) {
+                log.error("Error replaying expense journal: {}", e.getMessage());
+                throw new RuntimeException("Failed to replay expense journal: " + e.getMessage());
+            }
+
+            expenses.clear();
+            expenses.addAll(byId.values());
+            journalEntries = replayed;
+            return replayed;
+        }
+
+        // Drops a torn tail, so records appended from here on aren't replayed behind it and lost
+        private void truncateJournalTo(long length) throws IOException {
+            try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+                channel.force(true);
+            }
+            log.warn("Truncated {} to its last intact record at byte {}", journalFile.getName(), length);
+        }
+
+        private void truncateJournal() throws IOException {
+            closeJournal();
+            Files.deleteIfExists(journalFile.toPath());
+            journalEntries = 0;
+        }
+
+        // A migrated layout's files are kept as *.migrated rather than deleted
+        private void retire() {
+            for (File file : List.of(jsonFile, binaryFile, journalFile)) {
+                if (!file.exists()) {
+                    continue;
+                }
+                try {
+                    Files.move(file.toPath(), new File(file.getPath() + ".migrated").toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    log.error("Error retiring migrated file {}: {}", file, e.getMessage());
+                    throw new RuntimeException("Failed to retire migrated file " + file + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private void closeJournal() {
+            lock.lock();
+            try {
+                if (journalOut != null) {
+                    try {
+                        journalOut.getFD().sync();
+                        journalOut.close();
+                    } catch (IOException e) {
+                        log.error("Error closing expense journal: {}", e.getMessage());
+                    }
+                    journalOut = null;
+                    unsynced = false;
+                }
+            } finally {
+                lock.unlock();
+            }
         }
     }
 }
\ No newline at end of file
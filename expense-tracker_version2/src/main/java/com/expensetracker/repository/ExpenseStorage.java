@@ -0,0 +1,54 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Where the ledger is persisted; chosen with storage.backend. ExpenseRepository (file) keeps
+// snapshot files plus a mutation journal, H2Storage (h2) keeps one row per expense in an embedded
+// database. ExpenseService holds the working set in memory and writes through this interface.
+//
+// Every add and delete reaches storage through applyMutations. How a backend keeps them (a
+// journal it compacts into snapshots, rows updated in place) is its own business.
+public interface ExpenseStorage {
+
+    // Every expense, ordered by id, with anything pending folded in (startup)
+    List<Expense> loadExpenses();
+
+    // Every expense as currently stored, ordered by id and without side effects (lazy loading's
+    // cross-user views)
+    List<Expense> readExpenses();
+
+    // As readExpenses, handed over a part at a time (a shard, a page of rows) so a walk over the
+    // whole ledger holds only one part in memory. Each part is ordered by id; the parts aren't.
+    default void readExpenses(Consumer<List<Expense>> part) {
+        part.accept(readExpenses());
+    }
+
+    // One user's expenses as currently stored, ordered by id
+    List<Expense> loadUser(Long userId);
+
+    // Highest stored id, 0 when there are none (lazy loading's startup)
+    long loadMaxId();
+
+    // Whether loadUser reads that user without going through everyone else's expenses. Lazy
+    // loading refuses to start on a backend that can't.
+    default boolean loadsUsersSeparately() {
+        return true;
+    }
+
+    // Replace everything stored with these expenses
+    void saveExpenses(List<Expense> expenses);
+
+    // Apply adds and deletes durably, in order, as one write
+    void applyMutations(List<ExpenseMutation> mutations);
+
+    // Leave what has been applied in its most compact stored form, e.g. before shutdown.
+    // Backends that write in place have nothing to do.
+    default void flush() {
+    }
+
+    // Bytes written so far, for comparing write amplification
+    long getBytesWritten();
+}
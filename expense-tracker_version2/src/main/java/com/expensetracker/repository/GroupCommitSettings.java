@@ -0,0 +1,43 @@
+package com.expensetracker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Shared configuration for the expense and user write-behind stages
+@Component
+public class GroupCommitSettings {
+
+    // DURABLE: the request waits for its batch to be written; IMMEDIATE: it returns once queued
+    public enum Acknowledgement { DURABLE, IMMEDIATE }
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final Acknowledgement acknowledgement;
+    // Follows the web layer: the writers run on virtual threads when request handling does
+    private final boolean virtualThreads;
+
+    @Autowired
+    public GroupCommitSettings(@Value("${persistence.group-commit.enabled:false}") boolean enabled,
+                               @Value("${persistence.group-commit.window-ms:5}") long windowMs,
+                               @Value("${persistence.group-commit.ack:DURABLE}") Acknowledgement acknowledgement,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.acknowledgement = acknowledgement;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public GroupCommitSettings(boolean enabled, long windowMs, Acknowledgement acknowledgement) {
+        this(enabled, windowMs, acknowledgement, false);
+    }
+
+    public static GroupCommitSettings disabled() {
+        return new GroupCommitSettings(false, 0, Acknowledgement.DURABLE);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getWindowMs() { return windowMs; }
+    public Acknowledgement getAcknowledgement() { return acknowledgement; }
+    public boolean isVirtualThreads() { return virtualThreads; }
+}
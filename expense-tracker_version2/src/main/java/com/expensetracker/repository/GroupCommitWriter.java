@@ -0,0 +1,163 @@
+package com.expensetracker.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Write-behind stage between a service and its repository.
+// Callers enqueue mutations and get a future; a single background writer takes everything
+// that arrives within the commit window and hands it to the batch handler as one durable
+// write, then completes every future in the batch. The writer can run on a virtual thread;
+// it only blocks on the queue and on file I/O, neither of which holds a monitor.
+public class GroupCommitWriter<T> {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private final String name;
+    private final long windowMs;
+    private final Consumer<List<T>> batchHandler;
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    private record Pending<T>(List<T> mutations, CompletableFuture<Void> done) {}
+
+    public GroupCommitWriter(String name, long windowMs, Consumer<List<T>> batchHandler) {
+        this(name, windowMs, false, batchHandler);
+    }
+
+    public GroupCommitWriter(String name, long windowMs, boolean virtualThread, Consumer<List<T>> batchHandler) {
+        this.name = name;
+        this.windowMs = windowMs;
+        this.batchHandler = batchHandler;
+        // Virtual threads are always daemon threads
+        Thread.Builder builder = virtualThread ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        this.writerThread = builder.name(name + "-group-commit").unstarted(this::run);
+        this.writerThread.start();
+    }
+
+    // Completes once the batch containing this mutation has been written
+    public CompletableFuture<Void> submit(T mutation) {
+        return submitAll(List.of(mutation));
+    }
+
+    // The mutations are always written together in the same batch
+    public CompletableFuture<Void> submitAll(List<T> mutations) {
+        CompletableFuture<Void> done = enqueue(mutations);
+        if (done == null) {
+            throw new IllegalStateException(name + " group commit writer is stopped");
+        }
+        return done;
+    }
+
+    // Completes once everything submitted before this call has been written. Once stopped there
+    // is nothing left to wait for: close() has already written the queue.
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> done = enqueue(List.of());
+        return done != null ? done : CompletableFuture.completedFuture(null);
+    }
+
+    // Null once stopped. close() can stop the writer between the check and the add, after its
+    // final drain, so running is checked again and the entry taken back out if it is still
+    // queued; if the writer already took it, the final drain writes it.
+    private CompletableFuture<Void> enqueue(List<T> mutations) {
+        if (!running) {
+            return null;
+        }
+        Pending<T> pending = new Pending<>(mutations, new CompletableFuture<>());
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            return null;
+        }
+        return pending.done();
+    }
+
+    // Stop accepting work, write whatever is still queued and wait for the writer to exit
+    public void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public Stats getStats() {
+        long batchCount = batches.get();
+        long committedCount = committed.get();
+        return new Stats(queue.size(), batchCount, committedCount, lastBatchSize, maxBatchSize,
+                batchCount == 0 ? 0.0 : (double) committedCount / batchCount);
+    }
+
+    public record Stats(int queueDepth, long batches, long committed, int lastBatchSize, int maxBatchSize,
+                        double averageBatchSize) {}
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T> first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                // Give concurrent writers the rest of the window to join this batch
+                if (running && windowMs > 0) {
+                    Thread.sleep(windowMs);
+                }
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+                // Shutting down: fall through and flush what is queued
+            }
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending<T>> batch) {
+        List<T> mutations = new ArrayList<>();
+        for (Pending<T> pending : batch) {
+            mutations.addAll(pending.mutations());
+        }
+        try {
+            // A batch made up only of flush() markers has nothing to write
+            if (!mutations.isEmpty()) {
+                batchHandler.accept(mutations);
+                batches.incrementAndGet();
+                committed.addAndGet(mutations.size());
+                lastBatchSize = mutations.size();
+                maxBatchSize = Math.max(maxBatchSize, mutations.size());
+            }
+            for (Pending<T> pending : batch) {
+                pending.done().complete(null);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error committing {} batch of {}: {}", name, mutations.size(), e.getMessage());
+            for (Pending<T> pending : batch) {
+                pending.done().completeExceptionally(e);
+            }
+        }
+    }
+}
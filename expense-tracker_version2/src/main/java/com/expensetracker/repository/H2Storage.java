@@ -0,0 +1,319 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+import com.expensetracker.model.User;
+import jakarta.annotation.PreDestroy;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Users and expenses as rows in an embedded H2 database (one <file>.mv.db, in-process), selected
+// with storage.backend=h2. Every mutation is a row-level write in its own transaction, so there is
+// no journal to compact, and a user's expenses are read through the (user_id, id) index rather
+// than by parsing a file. Commits reach the file within write-delay-ms (H2's WRITE_DELAY): the
+// counterpart of the file backend's INTERVAL fsync.
+// Amounts are BIGINT cents, as ExpenseService holds them.
+// Switching backends doesn't copy data across; the other backend's files are left as they are.
+@Repository
+@ConditionalOnProperty(name = "storage.backend", havingValue = "h2")
+public class H2Storage implements ExpenseStorage, UserStorage {
+    private static final Logger log = LoggerFactory.getLogger(H2Storage.class);
+
+    // JDBC batches are sent in chunks so a full rewrite doesn't buffer the whole ledger twice
+    private static final int BATCH_ROWS = 10_000;
+
+    private static final String EXPENSE_COLUMNS = "id, user_id, description, amount_cents, category, expense_date";
+    private static final String MERGE_EXPENSE =
+            "MERGE INTO expenses (" + EXPENSE_COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String USER_COLUMNS =
+            "id, username, email, password, first_name, last_name, monthly_income_cents, monthly_expense_limit_cents";
+    private static final String MERGE_USER =
+            "MERGE INTO users (" + USER_COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcConnectionPool pool;
+
+    public H2Storage(@Value("${storage.h2.file:data/expense-tracker}") String file,
+                     @Value("${storage.h2.max-connections:8}") int maxConnections,
+                     @Value("${storage.h2.write-delay-ms:500}") int writeDelayMs) {
+        // Spring closes the database on shutdown, after the services' final writes
+        String url = "jdbc:h2:file:" + new File(file).getAbsolutePath()
+                + ";DB_CLOSE_ON_EXIT=FALSE;WRITE_DELAY=" + writeDelayMs;
+        this.pool = JdbcConnectionPool.create(url, "sa", "");
+        pool.setMaxConnections(maxConnections);
+        inTransaction("create the schema", connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS expenses (id BIGINT PRIMARY KEY, user_id BIGINT, "
+                        + "description VARCHAR, amount_cents BIGINT, category VARCHAR, expense_date DATE)");
+                statement.execute("CREATE INDEX IF NOT EXISTS expenses_by_user ON expenses (user_id, id)");
+                statement.execute("CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, username VARCHAR, "
+                        + "email VARCHAR, password VARCHAR, first_name VARCHAR, last_name VARCHAR, "
+                        + "monthly_income_cents BIGINT, monthly_expense_limit_cents BIGINT)");
+                statement.execute("CREATE INDEX IF NOT EXISTS users_by_username ON users (username)");
+            }
+            return null;
+        });
+        log.info("H2 storage opened at {}.mv.db", new File(file).getAbsolutePath());
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private <T> T inTransaction(String what, SqlWork<T> work) {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error trying to {}: {}", what, e.getMessage());
+            throw new RuntimeException("Failed to " + what + ": " + e.getMessage());
+        }
+    }
+
+    // ---- expenses
+
+    @Override
+    public List<Expense> loadExpenses() {
+        return readExpenses();
+    }
+
+    @Override
+    public List<Expense> readExpenses() {
+        return inTransaction("load expenses", connection -> {
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT " + EXPENSE_COLUMNS + " FROM expenses ORDER BY id")) {
+                return readExpenses(select);
+            }
+        });
+    }
+
+    // Pages of BATCH_ROWS rows by id, each read in its own transaction
+    @Override
+    public void readExpenses(Consumer<List<Expense>> part) {
+        long after = Long.MIN_VALUE;
+        while (true) {
+            long from = after;
+            List<Expense> page = inTransaction("load expenses after id " + from, connection -> {
+                try (PreparedStatement select = connection.prepareStatement("SELECT " + EXPENSE_COLUMNS
+                        + " FROM expenses WHERE id > ? ORDER BY id LIMIT " + BATCH_ROWS)) {
+                    select.setLong(1, from);
+                    return readExpenses(select);
+                }
+            });
+            if (page.isEmpty()) {
+                return;
+            }
+            part.accept(page);
+            if (page.size() < BATCH_ROWS) {
+                return;
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+    }
+
+    @Override
+    public List<Expense> loadUser(Long userId) {
+        return inTransaction("load expenses of user " + userId, connection -> {
+            try (PreparedStatement select = connection.prepareStatement("SELECT " + EXPENSE_COLUMNS
+                    + " FROM expenses WHERE user_id " + (userId == null ? "IS NULL" : "= ?") + " ORDER BY id")) {
+                if (userId != null) {
+                    select.setLong(1, userId);
+                }
+                return readExpenses(select);
+            }
+        });
+    }
+
+    @Override
+    public long loadMaxId() {
+        return inTransaction("read the highest expense id", connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM expenses")) {
+                result.next();
+                return result.getLong(1);
+            }
+        });
+    }
+
+    @Override
+    public void saveExpenses(List<Expense> expenses) {
+        inTransaction("save expenses", connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM expenses");
+            }
+            insertExpenses(connection, expenses);
+            return null;
+        });
+    }
+
+    // One transaction; consecutive adds (or deletes) go down as one JDBC batch
+    @Override
+    public void applyMutations(List<ExpenseMutation> mutations) {
+        inTransaction("write " + mutations.size() + " expense mutations", connection -> {
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_EXPENSE);
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM expenses WHERE id = ?")) {
+                ExpenseMutation.Type pending = null;
+                for (ExpenseMutation mutation : mutations) {
+                    if (pending != null && mutation.type() != pending) {
+                        (pending == ExpenseMutation.Type.ADD ? merge : delete).executeBatch();
+                    }
+                    if (mutation.type() == ExpenseMutation.Type.ADD) {
+                        bindExpense(merge, mutation.expense());
+                        merge.addBatch();
+                    } else {
+                        delete.setLong(1, mutation.id());
+                        delete.addBatch();
+                    }
+                    pending = mutation.type();
+                }
+                if (pending != null) {
+                    (pending == ExpenseMutation.Type.ADD ? merge : delete).executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    // H2's own count of bytes written to the database file
+    @Override
+    public long getBytesWritten() {
+        return inTransaction("read storage statistics", connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+                         + "WHERE SETTING_NAME = 'info.FILE_WRITE_BYTES'")) {
+                return result.next() ? Long.parseLong(result.getString(1)) : 0L;
+            }
+        });
+    }
+
+    private static List<Expense> readExpenses(PreparedStatement select) throws SQLException {
+        List<Expense> expenses = new ArrayList<>();
+        try (ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                Expense expense = new Expense();
+                expense.setId(result.getLong(1));
+                long userId = result.getLong(2);
+                expense.setUserId(result.wasNull() ? null : userId);
+                expense.setDescription(result.getString(3));
+                long amountCents = result.getLong(4);
+                expense.setAmountCents(result.wasNull() ? Money.NONE : amountCents);
+                expense.setCategory(result.getString(5));
+                expense.setDate(result.getObject(6, LocalDate.class));
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    private static void insertExpenses(Connection connection, List<Expense> expenses) throws SQLException {
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_EXPENSE)) {
+            int batched = 0;
+            for (Expense expense : expenses) {
+                bindExpense(merge, expense);
+                merge.addBatch();
+                if (++batched == BATCH_ROWS) {
+                    merge.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                merge.executeBatch();
+            }
+        }
+    }
+
+    private static void bindExpense(PreparedStatement statement, Expense expense) throws SQLException {
+        statement.setLong(1, expense.getId());
+        setLong(statement, 2, expense.getUserId());
+        statement.setString(3, expense.getDescription());
+        setLong(statement, 4, expense.getAmountCents() == Money.NONE ? null : expense.getAmountCents());
+        statement.setString(5, expense.getCategory());
+        statement.setObject(6, expense.getDate(), Types.DATE);
+    }
+
+    // ---- users
+
+    @Override
+    public List<User> loadUsers() {
+        return inTransaction("load users", connection -> {
+            List<User> users = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT " + USER_COLUMNS + " FROM users ORDER BY id")) {
+                while (result.next()) {
+                    User user = new User();
+                    user.setId(result.getLong(1));
+                    user.setUsername(result.getString(2));
+                    user.setEmail(result.getString(3));
+                    user.setPassword(result.getString(4));
+                    user.setFirstName(result.getString(5));
+                    user.setLastName(result.getString(6));
+                    // A missing figure is 0, as User holds it
+                    user.setMonthlyIncomeCents(result.getLong(7));
+                    user.setMonthlyExpenseLimitCents(result.getLong(8));
+                    users.add(user);
+                }
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public void addUsers(List<User> added, Supplier<List<User>> directory) {
+        inTransaction("save " + added.size() + " users", connection -> {
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_USER)) {
+                for (User user : added) {
+                    merge.setLong(1, user.getId());
+                    merge.setString(2, user.getUsername());
+                    merge.setString(3, user.getEmail());
+                    merge.setString(4, user.getPassword());
+                    merge.setString(5, user.getFirstName());
+                    merge.setString(6, user.getLastName());
+                    merge.setLong(7, user.getMonthlyIncomeCents());
+                    merge.setLong(8, user.getMonthlyExpenseLimitCents());
+                    merge.addBatch();
+                }
+                merge.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+}
@@ -2,38 +2,69 @@ package com.expensetracker.repository;
 
 import com.expensetracker.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
+// users.json, rewritten whole on every registration (batch) through a temp file, so a crash
+// mid-write leaves the previous file in place
 @Repository
-public class UserRepository {
-    private static final String USERS_FILE = "users.json";
+@ConditionalOnProperty(name = "storage.backend", havingValue = "file", matchIfMissing = true)
+public class UserRepository implements UserStorage {
+    private static final Logger log = LoggerFactory.getLogger(UserRepository.class);
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final File usersFile;
+
+    public UserRepository(@Value("${user.storage.file:users.json}") String usersFile) {
+        this.usersFile = new File(usersFile);
+    }
 
+    // Throws if users.json can't be read, failing startup: an empty directory would be saved
+    // over the file by the next registration
+    @Override
     public List<User> loadUsers() {
         try {
-            File file = new File(USERS_FILE);
-            if (file.exists()) {
-                User[] usersArray = objectMapper.readValue(file, User[].class);
+            if (usersFile.exists()) {
+                User[] usersArray = objectMapper.readValue(usersFile, User[].class);
                 return new ArrayList<>(Arrays.asList(usersArray));
             }
         } catch (IOException e) {
-            System.out.println("❌ Error loading users: " + e.getMessage());
+            log.error("Error loading users: {}", e.getMessage());
+            throw new RuntimeException("Failed to load users: " + e.getMessage());
         }
         return new ArrayList<>();
     }
 
+    @Override
+    public void addUsers(List<User> added, Supplier<List<User>> directory) {
+        saveUsers(directory.get());
+    }
+
+    // Throws if the file can't be written, so UserService takes the registration back
     public void saveUsers(List<User> users) {
         try {
-            objectMapper.writeValue(new File(USERS_FILE), users);
-            System.out.println("✅ Saved " + users.size() + " users to file");
+            File parent = usersFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            File tmp = new File(parent, usersFile.getName() + ".tmp");
+            objectMapper.writeValue(tmp, users);
+            Files.move(tmp.toPath(), usersFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved {} users to file", users.size());
         } catch (IOException e) {
-            System.out.println("❌ Error saving users: " + e.getMessage());
+            log.error("Error saving users: {}", e.getMessage());
+            throw new RuntimeException("Failed to save users: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
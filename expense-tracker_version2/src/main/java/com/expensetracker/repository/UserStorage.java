@@ -0,0 +1,17 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.User;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Where registered users are persisted; chosen with storage.backend alongside ExpenseStorage.
+// UserRepository (file) rewrites users.json, H2Storage (h2) inserts rows.
+public interface UserStorage {
+
+    List<User> loadUsers();
+
+    // Persist newly registered users. directory supplies every user including them, for a backend
+    // that rewrites the whole set; row-level backends never call it.
+    void addUsers(List<User> added, Supplier<List<User>> directory);
+}
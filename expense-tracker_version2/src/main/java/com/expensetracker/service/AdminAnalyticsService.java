@@ -0,0 +1,84 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Admin-wide reports from one parallel pass over the whole ledger, instead of asking
+// AnalyticsService about every user in turn
+@Service
+public class AdminAnalyticsService {
+    private final ExpenseService expenseService;
+    private final UserService userService;
+    private final LedgerAggregator aggregator;
+    private final Timer computeTimer;
+
+    public AdminAnalyticsService(ExpenseService expenseService, UserService userService,
+                                 @Value("${admin.analytics.parallelism:0}") int parallelism,
+                                 MeterRegistry meterRegistry) {
+        this.expenseService = expenseService;
+        this.userService = userService;
+        this.aggregator = new LedgerAggregator(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.computeTimer = Timer.builder("admin.analytics.compute")
+                .description("Time to build the admin-wide report from the ledger")
+                .register(meterRegistry);
+    }
+
+    public AdminReport getReport(YearMonth month, int top) {
+        return computeTimer.record(() -> buildReport(month, top));
+    }
+
+    private AdminReport buildReport(YearMonth month, int top) {
+        LedgerTotals totals = expenseService.scanLedger(rows -> aggregator.aggregate(rows, month));
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : userService.getAllUsers()) {
+            usersById.put(user.getId(), user);
+        }
+
+        List<AdminReport.CategorySpend> categories = new ArrayList<>();
+        totals.categories().forEach((category, total) ->
+                categories.add(new AdminReport.CategorySpend(category, total.total(), total.count())));
+        categories.sort(Comparator.comparingDouble(AdminReport.CategorySpend::total).reversed());
+
+        List<AdminReport.UserSpend> topSpenders = totals.users().stream()
+                .sorted(Comparator.comparingLong(LedgerTotals.UserTotal::totalCents).reversed())
+                .limit(top)
+                .map(user -> new AdminReport.UserSpend(user.userId(), usernameOf(usersById.get(user.userId())),
+                        user.total(), user.count()))
+                .toList();
+
+        // Expenses of users that no longer exist have no limit to be over
+        List<AdminReport.OverLimit> overLimit = new ArrayList<>();
+        for (LedgerTotals.UserTotal user : totals.users()) {
+            User account = usersById.get(user.userId());
+            if (account != null && account.getMonthlyExpenseLimitCents() > 0
+                    && user.monthTotalCents() > account.getMonthlyExpenseLimitCents()) {
+                overLimit.add(new AdminReport.OverLimit(user.userId(), account.getUsername(), user.monthTotal(),
+                        account.getMonthlyExpenseLimit()));
+            }
+        }
+        overLimit.sort(Comparator.comparingDouble((AdminReport.OverLimit o) -> o.spent() - o.limit()).reversed());
+
+        return new AdminReport(month, totals.expenseCount(), totals.totalSpent(), List.copyOf(categories),
+                topSpenders, List.copyOf(overLimit));
+    }
+
+    private static String usernameOf(User user) {
+        return user == null ? null : user.getUsername();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        aggregator.close();
+    }
+}
@@ -0,0 +1,16 @@
+package com.expensetracker.service;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Cross-user report for admins: spend by category and the top spenders over all time, plus the
+// users whose spending in the report month went over their monthly expense limit
+public record AdminReport(YearMonth month, long expenseCount, double totalSpent,
+                          List<CategorySpend> categories, List<UserSpend> topSpenders, List<OverLimit> overLimit) {
+
+    public record CategorySpend(String category, double total, long count) {}
+
+    public record UserSpend(long userId, String username, double total, long count) {}
+
+    public record OverLimit(long userId, String username, double spent, double limit) {}
+}
@@ -0,0 +1,100 @@
+package com.expensetracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Per-user cache of the assembled analytics page data.
+// Bounded by entry count and time-to-live; an entry is dropped as soon as ExpenseService
+// reports a change to that user's expenses or new recommendation rules come into force.
+//
+// Loads run on the caller without going through Caffeine's compute, which would hold a map
+// bin lock for the whole load and pin a virtual thread (and every thread queued behind it)
+// to its carrier. Instead each entry is tagged with what it was built from (the user's data
+// version, the day, the rules generation) and is only served while all three are current,
+// the same triple the analytics API's ETag is made of.
+@Component
+public class AnalyticsCache {
+    private final ExpenseService expenseService;
+    private final RecommendationEngine recommendationEngine;
+    private final Supplier<LocalDate> today;
+    private final Cache<Long, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record Entry(long version, LocalDate day, long rulesGeneration, Map<String, Object> analytics) {}
+
+    @Autowired
+    public AnalyticsCache(ExpenseService expenseService, RecommendationEngine recommendationEngine,
+                          @Value("${analytics.cache.max-size:10000}") long maxSize,
+                          @Value("${analytics.cache.ttl-seconds:300}") long ttlSeconds) {
+        this(expenseService, recommendationEngine, maxSize, ttlSeconds, LocalDate::now);
+    }
+
+    // today is replaced in tests, to cross midnight without waiting for it
+    AnalyticsCache(ExpenseService expenseService, RecommendationEngine recommendationEngine, long maxSize,
+                   long ttlSeconds, Supplier<LocalDate> today) {
+        this.expenseService = expenseService;
+        this.recommendationEngine = recommendationEngine;
+        this.today = today;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        expenseService.addChangeListener(this::invalidate);
+        recommendationEngine.addReloadListener(this::invalidateAll);
+    }
+
+    // A load racing a change for the same user, midnight or a rules reload is tagged with what was
+    // current before it started, so a stale result is never served; concurrent misses for one user
+    // may each run the loader
+    public Map<String, Object> get(Long userId, Function<Long, Map<String, Object>> loader) {
+        long version = expenseService.getDataVersion(userId);
+        LocalDate day = today.get();
+        long rulesGeneration = recommendationEngine.getGeneration();
+        Entry entry = cache.getIfPresent(userId);
+        if (entry != null && entry.version() == version && entry.day().equals(day)
+                && entry.rulesGeneration() == rulesGeneration) {
+            hits.incrementAndGet();
+            return entry.analytics();
+        }
+        misses.incrementAndGet();
+        Map<String, Object> analytics = loader.apply(userId);
+        cache.put(userId, new Entry(version, day, rulesGeneration, analytics));
+        return analytics;
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+        invalidations.incrementAndGet();
+    }
+
+    // Drops every entry, for changes that affect all users (e.g. new recommendation rules)
+    public void invalidateAll() {
+        invalidations.addAndGet(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        return new Stats(cache.estimatedSize(), hitCount, missCount,
+                requests == 0 ? 1.0 : (double) hitCount / requests,
+                cache.stats().evictionCount(), invalidations.get());
+    }
+
+    // evictions are size/TTL removals; invalidations are change events
+    public record Stats(long size, long hits, long misses, double hitRate, long evictions, long invalidations) {}
+}
@@ -1,40 +1,57 @@
 package com.expensetracker.service;
 
-import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
 import com.expensetracker.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
 
     private final ExpenseService expenseService;
+    private final AnalyticsCache analyticsCache;
+    private final RecommendationEngine recommendationEngine;
+    // Only cache misses are timed, so this is the cost of building a user's analytics from scratch
+    private final Timer computeTimer;
 
-    public AnalyticsService(ExpenseService expenseService) {
+    public AnalyticsService(ExpenseService expenseService, AnalyticsCache analyticsCache,
+                            RecommendationEngine recommendationEngine, MeterRegistry meterRegistry) {
         this.expenseService = expenseService;
+        this.analyticsCache = analyticsCache;
+        this.recommendationEngine = recommendationEngine;
+        this.computeTimer = Timer.builder("analytics.compute")
+                .description("Time to assemble a user's analytics on a cache miss")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
     }
 
     // Get category-wise spending breakdown
     public Map<String, Double> getCategorySpending(Long userId) {
         try {
-            System.out.println("🔍 Getting expenses for user ID: " + userId);
-            List<Expense> userExpenses = expenseService.getExpensesByUserId(userId);
-            System.out.println("📊 Found " + userExpenses.size() + " expenses for analytics");
+            log.debug("Getting category totals for user ID: {}", userId);
+            Map<String, CategoryTotal> categoryTotals = expenseService.getCategoryTotals(userId);
+            log.debug("Found {} categories for analytics", categoryTotals.size());
             
-            if (userExpenses.isEmpty()) {
-                System.out.println("⚠️ No expenses found for user " + userId);
+            if (categoryTotals.isEmpty()) {
+                log.debug("No expenses found for user {}", userId);
                 return new HashMap<>();
             }
             
-            return userExpenses.stream()
-                    .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.summingDouble(Expense::getAmount)
-                    ));
+            Map<String, Double> spending = new HashMap<>();
+            for (Map.Entry<String, CategoryTotal> entry : categoryTotals.entrySet()) {
+                spending.put(entry.getKey(), entry.getValue().total());
+            }
+            return spending;
         } catch (Exception e) {
-            System.out.println("❌ Error in getCategorySpending for user " + userId + ": " + e.getMessage());
+            log.error("Error in getCategorySpending for user {}: {}", userId, e.getMessage());
             return new HashMap<>();
         }
     }
@@ -42,22 +59,28 @@ public class AnalyticsService {
     // Get spending percentages for each category
     public Map<String, Double> getCategoryPercentages(Long userId) {
         try {
-            Map<String, Double> categorySpending = getCategorySpending(userId);
-            double totalSpending = categorySpending.values().stream().mapToDouble(Double::doubleValue).sum();
-            
-            Map<String, Double> percentages = new HashMap<>();
-            for (Map.Entry<String, Double> entry : categorySpending.entrySet()) {
-                double percentage = totalSpending > 0 ? (entry.getValue() / totalSpending) * 100 : 0;
-                percentages.put(entry.getKey(), Math.round(percentage * 100.0) / 100.0);
-            }
-            
-            return percentages;
+            return toPercentages(expenseService.getCategoryTotals(userId));
         } catch (Exception e) {
-            System.out.println("❌ Error in getCategoryPercentages for user " + userId + ": " + e.getMessage());
+            log.error("Error in getCategoryPercentages for user {}: {}", userId, e.getMessage());
             return new HashMap<>();
         }
     }
 
+    // Shares of the summed cents, rounded once to two places
+    private Map<String, Double> toPercentages(Map<String, CategoryTotal> categoryTotals) {
+        long totalCents = 0;
+        for (CategoryTotal total : categoryTotals.values()) {
+            totalCents += total.totalCents();
+        }
+
+        Map<String, Double> percentages = new HashMap<>();
+        for (Map.Entry<String, CategoryTotal> entry : categoryTotals.entrySet()) {
+            percentages.put(entry.getKey(), Money.percent(entry.getValue().totalCents(), totalCents));
+        }
+        
+        return percentages;
+    }
+
     // Generate personalized recommendations
     public List<String> getSpendingRecommendations(Long userId, User user) {
         try {
@@ -74,8 +97,8 @@ public class AnalyticsService {
             }
             
             // Check if financial data is configured (not the default 0.0 values)
-            double monthlyIncome = user.getMonthlyIncome();
-            double expenseLimit = user.getMonthlyExpenseLimit();
+            long monthlyIncome = user.getMonthlyIncomeCents();
+            long expenseLimit = user.getMonthlyExpenseLimitCents();
             
             // Check if financial data is configured (not the default 0.0 values)
             if (monthlyIncome <= 0 || expenseLimit <= 0) {
@@ -83,84 +106,104 @@ public class AnalyticsService {
                 return recommendations;
             }
             
-            Map<String, Double> percentages = getCategoryPercentages(userId);
-            Map<String, Double> spending = getCategorySpending(userId);
-            
-            double totalSpending = spending.values().stream().mapToDouble(Double::doubleValue).sum();
-        
-            // Recommendation 1: Overall spending vs income
-            if (totalSpending > monthlyIncome * 0.8) {
-                recommendations.add("⚠️ You're spending over 80% of your income. Consider reducing non-essential expenses.");
-            }
-            
-            if (totalSpending > expenseLimit) {
-                recommendations.add("🚨 You've exceeded your monthly expense limit! Immediate action needed.");
-            }
-            
-            // Recommendation 2: High spending categories
-            for (Map.Entry<String, Double> entry : percentages.entrySet()) {
-                if (entry.getValue() > 40) {
-                    recommendations.add("📊 Your " + entry.getKey() + " spending is " + entry.getValue() + 
-                                      "% of total. This seems high - consider budgeting for this category.");
-                }
-            }
-            
-            // Recommendation 3: Specific category advice
-            if (percentages.getOrDefault("Entertainment", 0.0) > 20) {
-                recommendations.add("🎬 Entertainment spending is high. Look for free alternatives.");
-            }
-            
-            if (percentages.getOrDefault("Shopping", 0.0) > 25) {
-                recommendations.add("🛍️ Shopping expenses are significant. Consider a 24-hour cooling off period before purchases.");
-            }
-            
-            if (percentages.getOrDefault("Food", 0.0) > 30) {
-                recommendations.add("🍽️ Food expenses are substantial. Meal planning could help reduce costs.");
-            }
-            
-            // Recommendation 4: Positive reinforcement
-            if (totalSpending < monthlyIncome * 0.5) {
-                recommendations.add("✅ Great job! You're spending less than 50% of your income.");
-            }
+            // The rules read the running aggregates; see recommendation-rules.json
+            recommendations.addAll(evaluateRules(recommendationEngine.getRules(), userId, monthlyIncome, expenseLimit));
             
             return recommendations;
             
         } catch (Exception e) {
-            System.out.println("❌ Error in getSpendingRecommendations for user " + userId + ": " + e.getMessage());
+            log.error("Error in getSpendingRecommendations for user {}: {}", userId, e.getMessage());
             List<String> fallback = new ArrayList<>();
             fallback.add("💡 Start tracking your expenses to get personalized recommendations");
             return fallback;
         }
     }
 
-    // Get monthly progress
+    // Rule-based recommendations for many users against one version of the rules, e.g. for a
+    // batch over the whole user base. Users without a configured income and limit, or with
+    // nothing to recommend, are left out. This month's spending for all of them comes from one
+    // scan of the ledger, so a batch doesn't load (or, while lazy loading, evict) users one by one.
+    public Map<Long, List<String>> evaluateRecommendations(Collection<User> users) {
+        RecommendationRules rules = recommendationEngine.getRules();
+        Set<Long> configured = new HashSet<>();
+        for (User user : users) {
+            if (user.getMonthlyIncomeCents() > 0 && user.getMonthlyExpenseLimitCents() > 0) {
+                configured.add(user.getId());
+            }
+        }
+        Map<Long, List<String>> recommendations = new LinkedHashMap<>();
+        if (configured.isEmpty()) {
+            return recommendations;
+        }
+        Map<Long, Map<String, CategoryTotal>> monthSpending = scanMonthSpending(configured, YearMonth.now());
+        for (User user : users) {
+            if (!configured.contains(user.getId())) {
+                continue;
+            }
+            try {
+                Map<String, CategoryTotal> categories = monthSpending.getOrDefault(user.getId(), Map.of());
+                long totalCents = 0;
+                for (CategoryTotal total : categories.values()) {
+                    totalCents += total.totalCents();
+                }
+                List<String> messages = rules.evaluate(totalCents, user.getMonthlyIncomeCents(),
+                        user.getMonthlyExpenseLimitCents(), categories, totalCents);
+                if (!messages.isEmpty()) {
+                    recommendations.put(user.getId(), messages);
+                }
+            } catch (Exception e) {
+                log.error("Error evaluating recommendations for user {}: {}", user.getId(), e.getMessage());
+            }
+        }
+        return recommendations;
+    }
+
+    // Per-category spending in the month for each of the users, from one pass over the ledger
+    private Map<Long, Map<String, CategoryTotal>> scanMonthSpending(Set<Long> userIds, YearMonth month) {
+        int monthStart = Math.toIntExact(month.atDay(1).toEpochDay());
+        int monthEnd = Math.toIntExact(month.plusMonths(1).atDay(1).toEpochDay());
+        return expenseService.scanLedger(rows -> {
+            Map<Long, Map<String, CategoryTotal>> spending = new HashMap<>();
+            rows.scan(0, rows.slots(), (userId, cents, epochDay, category) -> {
+                if (epochDay >= monthStart && epochDay < monthEnd && userIds.contains(userId)) {
+                    spending.computeIfAbsent(userId, id -> new HashMap<>())
+                            .merge(category, new CategoryTotal(cents, 1),
+                                    (total, row) -> total.plus(row.totalCents()));
+                }
+            });
+            return spending;
+        });
+    }
+
+    // Income and limit are monthly, so every input, category shares included, is this month's spending
+    private List<String> evaluateRules(RecommendationRules rules, Long userId, long monthlyIncome, long expenseLimit) {
+        MonthlyRollup month = expenseService.getMonthlyRollup(userId, YearMonth.now());
+        return rules.evaluate(month.totalCents(), monthlyIncome, expenseLimit, month.categories(), month.totalCents());
+    }
+
+    // Get monthly progress (spending in the current calendar month against the monthly figures)
     public Map<String, Object> getMonthlyProgress(Long userId, User user) {
         try {
             Map<String, Object> progress = new HashMap<>();
-            double totalSpent = expenseService.getExpensesByUserId(userId).stream()
-                    .mapToDouble(Expense::getAmount)
-                    .sum();
-            
-            // Since these are primitives (double), they can't be null
-            double monthlyIncome = user.getMonthlyIncome();
-            double expenseLimit = user.getMonthlyExpenseLimit();
+            long totalSpent = expenseService.getMonthlyRollup(userId, YearMonth.now()).totalCents();
             
-            progress.put("totalSpent", totalSpent);
-            progress.put("monthlyIncome", monthlyIncome);
-            progress.put("expenseLimit", expenseLimit);
-            progress.put("remainingBudget", expenseLimit - totalSpent);
+            // In cents, so the remaining budget and percentages are exact
+            long monthlyIncome = user.getMonthlyIncomeCents();
+            long expenseLimit = user.getMonthlyExpenseLimitCents();
             
-            // Safe division to avoid divide by zero
-            double percentageOfIncome = monthlyIncome > 0 ? (totalSpent / monthlyIncome) * 100 : 0;
-            double percentageOfLimit = expenseLimit > 0 ? (totalSpent / expenseLimit) * 100 : 0;
+            progress.put("totalSpent", Money.toAmount(totalSpent));
+            progress.put("monthlyIncome", Money.toAmount(monthlyIncome));
+            progress.put("expenseLimit", Money.toAmount(expenseLimit));
+            progress.put("remainingBudget", Money.toAmount(expenseLimit - totalSpent));
             
-            progress.put("percentageOfIncome", Math.round(percentageOfIncome * 100.0) / 100.0);
-            progress.put("percentageOfLimit", Math.round(percentageOfLimit * 100.0) / 100.0);
+            // Money.percent is 0 for a zero income or limit
+            progress.put("percentageOfIncome", Money.percent(totalSpent, monthlyIncome));
+            progress.put("percentageOfLimit", Money.percent(totalSpent, expenseLimit));
             
             return progress;
             
         } catch (Exception e) {
-            System.out.println("❌ Error in getMonthlyProgress for user " + userId + ": " + e.getMessage());
+            log.error("Error in getMonthlyProgress for user {}: {}", userId, e.getMessage());
             Map<String, Object> fallback = new HashMap<>();
             fallback.put("totalSpent", 0.0);
             fallback.put("monthlyIncome", 0.0);
@@ -172,24 +215,133 @@ public class AnalyticsService {
         }
     }
 
-    // Alternative method for user analytics
+    // Month-over-month totals for the last `months` months (oldest first), read from the rollups
+    public List<Map<String, Object>> getMonthlyTrend(Long userId, int months) {
+        List<Map<String, Object>> trend = new ArrayList<>();
+        try {
+            YearMonth current = YearMonth.now();
+            NavigableMap<YearMonth, MonthlyRollup> rollups = expenseService.getMonthlyRollups(userId)
+                    .subMap(current.minusMonths(months - 1L), true, current, true);
+            long previousTotal = 0;
+            for (YearMonth month = current.minusMonths(months - 1L); !month.isAfter(current); month = month.plusMonths(1)) {
+                MonthlyRollup rollup = rollups.get(month);
+                long total = rollup == null ? 0 : rollup.totalCents();
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("month", month.toString());
+                point.put("total", Money.toAmount(total));
+                point.put("count", rollup == null ? 0L : rollup.count());
+                // Percentage change against the month before; null when there is nothing to compare with
+                point.put("change", previousTotal == 0 ? null : Money.percent(total - previousTotal, previousTotal));
+                trend.add(point);
+                previousTotal = total;
+            }
+        } catch (Exception e) {
+            log.error("Error in getMonthlyTrend for user {}: {}", userId, e.getMessage());
+        }
+        return trend;
+    }
+
+    // How fast this month's budget is being used: spend so far, daily rate, and the month-end
+    // projection at that rate
+    public Map<String, Object> getBudgetBurnDown(Long userId, User user) {
+        Map<String, Object> burnDown = new HashMap<>();
+        try {
+            LocalDate today = LocalDate.now();
+            YearMonth month = YearMonth.from(today);
+            long spent = expenseService.getMonthlyRollup(userId, month).totalCents();
+            long expenseLimit = user.getMonthlyExpenseLimitCents();
+            int daysElapsed = today.getDayOfMonth();
+            int daysRemaining = month.lengthOfMonth() - daysElapsed;
+            long dailyAverage = Money.divide(spent, daysElapsed);
+            long projected = Money.divide(spent * month.lengthOfMonth(), daysElapsed);
+            long remaining = expenseLimit - spent;
+
+            burnDown.put("month", month.toString());
+            burnDown.put("spent", Money.toAmount(spent));
+            burnDown.put("expenseLimit", Money.toAmount(expenseLimit));
+            burnDown.put("daysElapsed", daysElapsed);
+            burnDown.put("daysRemaining", daysRemaining);
+            burnDown.put("dailyAverage", Money.toAmount(dailyAverage));
+            burnDown.put("projectedSpend", Money.toAmount(projected));
+            burnDown.put("dailyAllowance", daysRemaining > 0 && remaining > 0
+                    ? Money.toAmount(Money.divide(remaining, daysRemaining)) : 0.0);
+            burnDown.put("onTrack", expenseLimit <= 0 || projected <= expenseLimit);
+        } catch (Exception e) {
+            log.error("Error in getBudgetBurnDown for user {}: {}", userId, e.getMessage());
+        }
+        return burnDown;
+    }
+
+    // The user's most recent expenses flagged as unusual for their category, newest first
+    public List<Map<String, Object>> getRecentAnomalies(Long userId, int limit) {
+        List<Map<String, Object>> recent = new ArrayList<>();
+        try {
+            List<ExpenseAnomaly> anomalies = new ArrayList<>(expenseService.getAnomalies(userId).values());
+            for (int i = anomalies.size() - 1; i >= 0 && recent.size() < limit; i--) {
+                ExpenseAnomaly anomaly = anomalies.get(i);
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("expenseId", anomaly.expenseId());
+                point.put("description", anomaly.description());
+                point.put("category", anomaly.category());
+                point.put("date", anomaly.date() == null ? null : anomaly.date().toString());
+                point.put("amount", anomaly.amount());
+                point.put("typicalAmount", anomaly.typicalAmount());
+                point.put("ratio", anomaly.ratio());
+                recent.add(point);
+            }
+        } catch (Exception e) {
+            log.error("Error in getRecentAnomalies for user {}: {}", userId, e.getMessage());
+        }
+        return recent;
+    }
+
+    // Everything the analytics page shows for a user, served from AnalyticsCache until the
+    // user's expenses change. The returned map is shared between requests and read-only.
     public Map<String, Object> getUserAnalytics(User user) {
+        if (user == null) {
+            log.error("Cannot generate analytics for null user");
+            return Map.of();
+        }
+        return analyticsCache.get(user.getId(), userId -> computeTimer.record(() -> buildUserAnalytics(user)));
+    }
+
+    private Map<String, Object> buildUserAnalytics(User user) {
         Map<String, Object> analytics = new HashMap<>();
         try {
-            if (user != null) {
-                Long userId = user.getId();
-                analytics.put("categorySpending", getCategorySpending(userId));
-                analytics.put("categoryPercentages", getCategoryPercentages(userId));
-                analytics.put("recommendations", getSpendingRecommendations(userId, user));
-                analytics.put("monthlyProgress", getMonthlyProgress(userId, user));
-                System.out.println("✅ User analytics generated for: " + user.getUsername());
-            } else {
-                System.out.println("❌ Cannot generate analytics for null user");
+            Long userId = user.getId();
+            Map<String, CategoryTotal> categoryTotals = expenseService.getCategoryTotals(userId);
+            Map<String, Double> categorySpending = getCategorySpending(userId);
+            int expensesCount = expenseService.getExpenseCount(userId);
+            long totalSpent = expenseService.getTotalSpentCents(userId);
+
+            // Lifetime summary from the running aggregates
+            analytics.put("expensesCount", expensesCount);
+            analytics.put("totalSpent", Money.toAmount(totalSpent));
+            analytics.put("categoryCount", categorySpending.size());
+            analytics.put("averageExpense", expensesCount > 0 ? Money.toAmount(Money.divide(totalSpent, expensesCount)) : 0.0);
+
+            // Chart series, labels and values in the same order
+            List<String> chartLabels = new ArrayList<>();
+            List<Double> chartData = new ArrayList<>();
+            for (Map.Entry<String, Double> entry : categorySpending.entrySet()) {
+                chartLabels.add(entry.getKey());
+                chartData.add(entry.getValue());
             }
+            analytics.put("chartLabels", List.copyOf(chartLabels));
+            analytics.put("chartData", List.copyOf(chartData));
+
+            analytics.put("categorySpending", categorySpending);
+            analytics.put("categoryPercentages", toPercentages(categoryTotals));
+            analytics.put("recommendations", getSpendingRecommendations(userId, user));
+            analytics.put("monthlyProgress", getMonthlyProgress(userId, user));
+            analytics.put("monthlyTrend", getMonthlyTrend(userId, 6));
+            analytics.put("budgetBurnDown", getBudgetBurnDown(userId, user));
+            analytics.put("anomalies", getRecentAnomalies(userId, 10));
+            log.debug("User analytics generated for: {}", user.getUsername());
         } catch (Exception e) {
-            System.out.println("❌ Error generating user analytics: " + e.getMessage());
+            log.error("Error generating user analytics: {}", e.getMessage());
         }
-        return analytics;
+        return Collections.unmodifiableMap(analytics);
     }
 
     // Alias method for getCategoryPercentages
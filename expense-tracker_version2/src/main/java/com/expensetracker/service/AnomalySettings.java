@@ -0,0 +1,40 @@
+package com.expensetracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// When enabled, ExpenseService flags an added expense that is far above what the user usually
+// spends in its category: at least min-ratio times their mean there and min-z-score standard
+// deviations above it, once the category has min-samples earlier expenses to judge by
+@Component
+public class AnomalySettings {
+
+    private final boolean enabled;
+    private final int minSamples;
+    private final double minRatio;
+    private final double minZScore;
+
+    public AnomalySettings(@Value("${expense.anomaly.enabled:true}") boolean enabled,
+                           @Value("${expense.anomaly.min-samples:5}") int minSamples,
+                           @Value("${expense.anomaly.min-ratio:3.0}") double minRatio,
+                           @Value("${expense.anomaly.min-z-score:3.0}") double minZScore) {
+        this.enabled = enabled;
+        this.minSamples = Math.max(2, minSamples);
+        this.minRatio = minRatio;
+        this.minZScore = minZScore;
+    }
+
+    // The values the properties default to
+    public static AnomalySettings defaults() {
+        return new AnomalySettings(true, 5, 3.0, 3.0);
+    }
+
+    public static AnomalySettings disabled() {
+        return new AnomalySettings(false, 5, 3.0, 3.0);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int getMinSamples() { return minSamples; }
+    public double getMinRatio() { return minRatio; }
+    public double getMinZScore() { return minZScore; }
+}
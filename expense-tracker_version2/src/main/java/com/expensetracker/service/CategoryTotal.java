@@ -0,0 +1,20 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+
+// Running spend (in cents) and expense count for one user's category
+public record CategoryTotal(long totalCents, long count) {
+
+    public CategoryTotal plus(long cents) {
+        return new CategoryTotal(totalCents + cents, count + 1);
+    }
+
+    // Returns null once the last expense is gone so the category disappears from the breakdown
+    public CategoryTotal minus(long cents) {
+        return count <= 1 ? null : new CategoryTotal(totalCents - cents, count - 1);
+    }
+
+    public double total() {
+        return Money.toAmount(totalCents);
+    }
+}
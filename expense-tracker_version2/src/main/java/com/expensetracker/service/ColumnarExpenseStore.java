@@ -0,0 +1,409 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Struct-of-arrays expense store: every field lives in a primitive column indexed by row,
+// categories are dictionary-coded, and Expense objects are only materialized when read.
+// A row costs roughly 32 bytes plus its description instead of an Expense with three boxed
+// fields and its own category reference.
+//
+// Writers are serialized on a StampedLock because they share the columns. Readers use
+// optimistic reads and only fall back to the read lock if a write overlapped them.
+public class ColumnarExpenseStore implements ExpenseStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NULL_USER_ID = NO_USER;
+    private static final int NULL_DAY = NO_DATE;
+    // Id left in a freed row, so scans can skip it without an index lookup
+    private static final long FREE_ROW_ID = Long.MIN_VALUE;
+    // Rows materialized per read-lock hold while walking the store
+    private static final int VISIT_CHUNK = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Row columns; rows freed by remove are reused by later adds
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] userIds = new long[INITIAL_CAPACITY];
+    // In cents, Money.NONE for a missing amount
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    private final LongIntHashMap rowsById = new LongIntHashMap();
+    private final Map<Long, UserRows> rowsByUser = new ConcurrentHashMap<>();
+    private final List<String> categoryDictionary = new ArrayList<>();
+    private final Map<String, Integer> categoryCodesByName = new HashMap<>();
+
+    private static final class UserRows {
+        private int[] rows = new int[8];
+        private int count;
+        private long totalCents;
+        private final Map<String, CategoryTotal> categoryTotals = new HashMap<>();
+        private final MonthlyRollups monthlyRollups = new MonthlyRollups();
+
+        private void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+
+        private void remove(int row) {
+            for (int i = 0; i < count; i++) {
+                if (rows[i] == row) {
+                    System.arraycopy(rows, i + 1, rows, i, count - i - 1);
+                    count--;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void add(Expense expense) {
+        long stamp = lock.writeLock();
+        try {
+            insert(expense);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addAll(List<Expense> expenses) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(rowCount + expenses.size());
+            for (Expense expense : expenses) {
+                insert(expense);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Expense remove(Long id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = rowsById.remove(id);
+            if (row < 0) {
+                return null;
+            }
+            Expense expense = materialize(row);
+            if (userIds[row] != NULL_USER_ID) {
+                UserRows user = rowsByUser.get(userIds[row]);
+                user.remove(row);
+                long cents = Money.orZero(amounts[row]);
+                user.totalCents -= cents;
+                if (categoryCodes[row] >= 0) {
+                    user.categoryTotals.computeIfPresent(categoryDictionary.get(categoryCodes[row]),
+                            (category, current) -> current.minus(cents));
+                }
+                user.monthlyRollups.unrecord(expense.getDate(), expense.getCategory(), cents);
+            }
+            freeRow(row);
+            return expense;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int removeUser(Long userId) {
+        long stamp = lock.writeLock();
+        try {
+            UserRows user = rowsByUser.remove(userId);
+            if (user == null) {
+                return 0;
+            }
+            for (int i = 0; i < user.count; i++) {
+                int row = user.rows[i];
+                rowsById.remove(ids[row]);
+                freeRow(row);
+            }
+            return user.count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Expense findById(Long id) {
+        return read(() -> {
+            int row = rowsById.get(id);
+            return row < 0 ? null : materialize(row);
+        });
+    }
+
+    @Override
+    public List<Expense> findByUserId(Long userId) {
+        return read(() -> {
+            UserRows user = rowsByUser.get(userId);
+            if (user == null) {
+                return List.of();
+            }
+            List<Expense> expenses = new ArrayList<>(user.count);
+            for (int i = 0; i < user.count; i++) {
+                expenses.add(materialize(user.rows[i]));
+            }
+            return expenses;
+        });
+    }
+
+    @Override
+    public Map<String, CategoryTotal> getCategoryTotals(Long userId) {
+        return read(() -> {
+            UserRows user = rowsByUser.get(userId);
+            return user == null ? Map.of() : Map.copyOf(user.categoryTotals);
+        });
+    }
+
+    @Override
+    public long getTotalCents(Long userId) {
+        return read(() -> {
+            UserRows user = rowsByUser.get(userId);
+            return user == null ? 0L : user.totalCents;
+        });
+    }
+
+    // Rollups live in a concurrent map, so no stamp is needed to read them
+    @Override
+    public NavigableMap<YearMonth, MonthlyRollup> getMonthlyRollups(Long userId) {
+        UserRows user = rowsByUser.get(userId);
+        return user == null ? Collections.emptyNavigableMap() : user.monthlyRollups.view();
+    }
+
+    @Override
+    public int getExpenseCount(Long userId) {
+        return read(() -> {
+            UserRows user = rowsByUser.get(userId);
+            return user == null ? 0 : user.count;
+        });
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        long stamp = lock.readLock();
+        try {
+            // Row order is not id order once freed rows are reused, so walk the ids in order
+            long[] liveIds = new long[rowsById.size()];
+            int n = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (rowsById.get(ids[row]) == row) {
+                    liveIds[n++] = ids[row];
+                }
+            }
+            Arrays.sort(liveIds, 0, n);
+            List<Expense> all = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                all.add(materialize(rowsById.get(liveIds[i])));
+            }
+            return all;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return read(rowsById::size);
+    }
+
+    // Rows are copied out a chunk at a time under the read lock and handed to the action after
+    // it is released, so a slow consumer (an HTTP response) never holds up writers
+    @Override
+    public void forEachExpense(Consumer<Expense> action) {
+        List<Expense> chunk = new ArrayList<>(VISIT_CHUNK);
+        int next = 0;
+        while (true) {
+            long stamp = lock.readLock();
+            try {
+                for (; next < rowCount && chunk.size() < VISIT_CHUNK; next++) {
+                    if (rowsById.get(ids[next]) == next) {
+                        chunk.add(materialize(next));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunk.forEach(action);
+            chunk.clear();
+        }
+    }
+
+    @Override
+    public void forEachExpense(Long userId, Consumer<Expense> action) {
+        List<Expense> chunk = new ArrayList<>(VISIT_CHUNK);
+        int next = 0;
+        while (true) {
+            long stamp = lock.readLock();
+            try {
+                UserRows user = rowsByUser.get(userId);
+                for (; user != null && next < user.count && chunk.size() < VISIT_CHUNK; next++) {
+                    chunk.add(materialize(user.rows[next]));
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunk.forEach(action);
+            chunk.clear();
+        }
+    }
+
+    // Holds the read lock for the whole scan, which may run on other threads: a StampedLock isn't
+    // owned by a thread, and writers stay out until the scan returns. The columns are read in place.
+    @Override
+    public <T> T withLedgerRows(Function<LedgerRows, T> scan) {
+        long stamp = lock.readLock();
+        try {
+            long[] ids = this.ids;
+            long[] userIds = this.userIds;
+            long[] amounts = this.amounts;
+            int[] epochDays = this.epochDays;
+            int[] categoryCodes = this.categoryCodes;
+            String[] categories = categoryDictionary.toArray(new String[0]);
+            int slots = rowCount;
+            return scan.apply(new LedgerRows() {
+                @Override
+                public int slots() {
+                    return slots;
+                }
+
+                @Override
+                public void scan(int from, int to, RowSink sink) {
+                    for (int row = from; row < to; row++) {
+                        if (ids[row] == FREE_ROW_ID) {
+                            continue;
+                        }
+                        sink.accept(userIds[row], Money.orZero(amounts[row]), epochDays[row],
+                                categoryCodes[row] < 0 ? null : categories[categoryCodes[row]]);
+                    }
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Caller holds the write lock and has already unindexed the row
+    private void freeRow(int row) {
+        ids[row] = FREE_ROW_ID;
+        descriptions[row] = null;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    // Caller holds the write lock
+    private void insert(Expense expense) {
+        int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            ensureCapacity(rowCount + 1);
+            row = rowCount++;
+        }
+        ids[row] = expense.getId();
+        userIds[row] = expense.getUserId() == null ? NULL_USER_ID : expense.getUserId();
+        amounts[row] = expense.getAmountCents();
+        epochDays[row] = expense.getDate() == null ? NULL_DAY : Math.toIntExact(expense.getDate().toEpochDay());
+        categoryCodes[row] = encodeCategory(expense.getCategory());
+        descriptions[row] = expense.getDescription();
+        rowsById.put(expense.getId(), row);
+
+        if (expense.getUserId() != null) {
+            UserRows user = rowsByUser.computeIfAbsent(expense.getUserId(), id -> new UserRows());
+            user.add(row);
+            long cents = Money.orZero(expense.getAmountCents());
+            user.totalCents += cents;
+            if (expense.getCategory() != null) {
+                user.categoryTotals.merge(expense.getCategory(), new CategoryTotal(cents, 1),
+                        (current, added) -> current.plus(cents));
+            }
+            user.monthlyRollups.record(expense.getDate(), expense.getCategory(), cents);
+        }
+    }
+
+    private int encodeCategory(String category) {
+        if (category == null) {
+            return -1;
+        }
+        return categoryCodesByName.computeIfAbsent(category, c -> {
+            categoryDictionary.add(c);
+            return categoryDictionary.size() - 1;
+        });
+    }
+
+    private Expense materialize(int row) {
+        Expense expense = new Expense();
+        expense.setId(ids[row]);
+        expense.setUserId(userIds[row] == NULL_USER_ID ? null : userIds[row]);
+        expense.setAmountCents(amounts[row]);
+        expense.setDate(epochDays[row] == NULL_DAY ? null : LocalDate.ofEpochDay(epochDays[row]));
+        expense.setCategory(categoryCodes[row] < 0 ? null : categoryDictionary.get(categoryCodes[row]));
+        expense.setDescription(descriptions[row]);
+        return expense;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        amounts = Arrays.copyOf(amounts, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, newCapacity);
+        descriptions = Arrays.copyOf(descriptions, newCapacity);
+    }
+
+    // Optimistic read; a reader racing a writer can see torn state or even throw, in which
+    // case the stamp is invalid anyway and the read is retried under the read lock.
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // fall through to a locked read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
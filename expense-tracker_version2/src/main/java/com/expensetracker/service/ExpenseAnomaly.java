@@ -0,0 +1,24 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+
+import java.time.LocalDate;
+
+// An expense flagged when it was added as far above the user's usual spend in its category.
+// typicalCents is the category's mean over the expenses before it.
+public record ExpenseAnomaly(Long expenseId, String description, String category, LocalDate date,
+                             long amountCents, long typicalCents) {
+
+    public double amount() {
+        return Money.toAmount(amountCents);
+    }
+
+    public double typicalAmount() {
+        return Money.toAmount(typicalCents);
+    }
+
+    // How many times the typical amount, to one decimal place
+    public double ratio() {
+        return typicalCents <= 0 ? 0 : Math.round(amountCents * 10.0 / typicalCents) / 10.0;
+    }
+}
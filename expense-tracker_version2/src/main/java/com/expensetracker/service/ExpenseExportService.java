@@ -0,0 +1,93 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+// Writes expenses as CSV or JSON lines straight to an output stream.
+// Each expense is serialized by a Jackson SequenceWriter as the store hands it over, so memory
+// use stays constant however large the ledger is. Rows are not sorted.
+@Service
+public class ExpenseExportService {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseExportService.class);
+
+    public enum Format { CSV, JSONL }
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addNumberColumn("id")
+            .addNumberColumn("userId")
+            .addColumn("date")
+            .addColumn("description")
+            .addColumn("category")
+            .addNumberColumn("amount")
+            .build()
+            .withHeader();
+
+    private final ExpenseService expenseService;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ExpenseExportService(ExpenseService expenseService) {
+        this.expenseService = expenseService;
+    }
+
+    public static String fileName(Format format, boolean gzip) {
+        return "expenses" + (format == Format.CSV ? ".csv" : ".jsonl") + (gzip ? ".gz" : "");
+    }
+
+    public static String contentType(Format format, boolean gzip) {
+        if (gzip) {
+            return "application/gzip";
+        }
+        return format == Format.CSV ? "text/csv" : "application/x-ndjson";
+    }
+
+    // One user's expenses
+    public long exportUserExpenses(Long userId, Format format, boolean gzip, OutputStream out) throws IOException {
+        return export(action -> expenseService.forEachExpense(userId, action), format, gzip, out);
+    }
+
+    // Every user's expenses, for admins
+    public long exportAllExpenses(Format format, boolean gzip, OutputStream out) throws IOException {
+        return export(expenseService::forEachExpense, format, gzip, out);
+    }
+
+    private long export(Consumer<Consumer<Expense>> source, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+        long[] rows = new long[1];
+        try (SequenceWriter writer = openWriter(format, target)) {
+            source.accept(expense -> {
+                try {
+                    writer.write(expense);
+                    rows[0]++;
+                } catch (IOException e) {
+                    // Usually the client went away; stop walking the store
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported {} expenses as {}{}", rows[0], format, gzip ? " (gzip)" : "");
+        return rows[0];
+    }
+
+    private SequenceWriter openWriter(Format format, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            return csvMapper.writerFor(Expense.class).with(CSV_SCHEMA).writeValues(out);
+        }
+        return objectMapper.writerFor(Expense.class).withRootValueSeparator("\n").writeValues(out);
+    }
+}
@@ -0,0 +1,164 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bulk import of expenses from CSV (with a header row) or JSON lines.
+// The upload is read record by record with Jackson's streaming readers, so only the parsed
+// expenses are held in memory, never the file itself. Each row gets the same validation as a
+// single add; valid rows are committed together through ExpenseService.addExpenses.
+@Service
+public class ExpenseImportService {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    public enum Format { CSV, JSONL }
+
+    private final ExpenseService expenseService;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ExpenseImportService(ExpenseService expenseService) {
+        this.expenseService = expenseService;
+    }
+
+    // Picks the format from the file extension; anything that isn't .jsonl/.json is read as CSV
+    public static Format formatFor(String filename) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".json") ? Format.JSONL : Format.CSV;
+    }
+
+    public ImportResult importExpenses(InputStream in, Format format, Long userId) {
+        List<Expense> valid = new ArrayList<>();
+        List<ImportResult.RowError> errors = new ArrayList<>();
+        long rowsRead = 0;
+        long errorCount = 0;
+
+        try (MappingIterator<?> rows = openReader(in, format)) {
+            while (true) {
+                Object row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    row = rows.nextValue();
+                } catch (IOException | RuntimeException e) {
+                    // The stream itself is malformed; nothing after this point can be trusted
+                    throw new RuntimeException("Unreadable input after row " + rowsRead + ": " + e.getMessage());
+                }
+                rowsRead++;
+
+                String error;
+                Expense expense = new Expense();
+                try {
+                    readFields(row, expense);
+                    error = expenseService.validateExpense(expense);
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+
+                if (error == null) {
+                    valid.add(expense);
+                } else {
+                    errorCount++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(new ImportResult.RowError(rowsRead, error));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading import: {}", e.getMessage());
+            throw new RuntimeException("Failed to read import: " + e.getMessage());
+        }
+
+        expenseService.addExpenses(valid, userId);
+        log.info("Import for user ID {}: {} rows, {} imported, {} rejected",
+                userId, rowsRead, valid.size(), errorCount);
+        return new ImportResult(rowsRead, valid.size(), errorCount, errors);
+    }
+
+    private MappingIterator<?> openReader(InputStream in, Format format) throws IOException {
+        if (format == Format.CSV) {
+            CsvSchema schema = CsvSchema.emptySchema().withHeader();
+            return csvMapper.readerFor(Map.class).with(schema)
+                    .with(CsvParser.Feature.IGNORE_TRAILING_UNMAPPABLE)
+                    .readValues(in);
+        }
+        return objectMapper.readerFor(JsonNode.class).readValues(in);
+    }
+
+    // Copies description, category and amount out of a CSV row or JSON object; keys are case-insensitive
+    private void readFields(Object row, Expense expense) {
+        if (row instanceof JsonNode node) {
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                JsonNode value = field.getValue();
+                setField(expense, field.getKey(), value.isNull() ? null : value.asText());
+            }
+        } else {
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) row).entrySet()) {
+                setField(expense, String.valueOf(field.getKey()), (String) field.getValue());
+            }
+        }
+    }
+
+    private void setField(Expense expense, String key, String value) {
+        switch (key.trim().toLowerCase(Locale.ROOT)) {
+            case "description" -> expense.setDescription(value == null ? null : value.trim());
+            case "category" -> expense.setCategory(value == null ? null : value.trim());
+            case "amount" -> expense.setAmount(parseAmount(value));
+            case "date" -> expense.setDate(parseDate(value));
+            default -> { }  // extra columns in bank exports are ignored
+        }
+    }
+
+    // ISO yyyy-MM-dd; rows without a date are dated on import like a form add
+    private LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (expected yyyy-MM-dd): " + value);
+        }
+    }
+
+    // NaN and Infinity parse as doubles but aren't amounts
+    private Double parseAmount(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+        if (!Money.isValidAmount(amount)) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+        return amount;
+    }
+}
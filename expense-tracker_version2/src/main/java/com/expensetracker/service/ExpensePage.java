@@ -0,0 +1,18 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+
+import java.util.List;
+
+// One page of a user's expenses plus what the view needs to link to the neighbouring pages
+public record ExpensePage(List<Expense> items, int page, int size, int totalMatches,
+                          boolean hasNext, String nextCursor) {
+
+    public int totalPages() {
+        return Math.max(1, (totalMatches + size - 1) / size);
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.expensetracker.service;
+
+// One page request against a user's expenses. Filters are optional (null = no filter).
+// cursor is the nextCursor of the previous page; when present it positions the page by key
+// (keyset pagination) and page is only used for display.
+public record ExpenseQuery(String category, Double minAmount, Double maxAmount,
+                           Sort sort, Direction direction, int page, int size, String cursor) {
+
+    public static final int DEFAULT_SIZE = 25;
+    public static final int MAX_SIZE = 200;
+
+    public enum Sort { ID, DATE, AMOUNT, CATEGORY }
+
+    public enum Direction { ASC, DESC }
+
+    public ExpenseQuery {
+        if (category != null && category.isBlank()) {
+            category = null;
+        }
+        if (cursor != null && cursor.isBlank()) {
+            cursor = null;
+        }
+        sort = sort == null ? Sort.ID : sort;
+        direction = direction == null ? Direction.DESC : direction;
+        page = Math.max(page, 0);
+        size = size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+    }
+
+    public static ExpenseQuery firstPage() {
+        return new ExpenseQuery(null, null, null, null, null, 0, DEFAULT_SIZE, null);
+    }
+}
@@ -0,0 +1,321 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-user inverted index over expense descriptions, for ranked search without scanning rows.
+// Each user's words are kept in a sorted dictionary, so a query word finds every indexed word
+// it is a prefix of with one range lookup (the matches edge n-grams would give, without
+// storing the n-grams). Expenses get dense per-user slots: postings are int lists of slots and
+// a query scores into flat arrays. Kept in step with adds and deletes by ExpenseService.
+final class ExpenseSearchIndex {
+    private final ConcurrentHashMap<Long, UserIndex> users = new ConcurrentHashMap<>();
+
+    // Ranked expense ids (best first) and how many expenses matched in all
+    record Matches(long[] ids, int total) {
+        static final Matches NONE = new Matches(new long[0], 0);
+    }
+
+    void add(Expense expense) {
+        if (expense.getUserId() != null) {
+            users.computeIfAbsent(expense.getUserId(), userId -> new UserIndex()).addAll(List.of(expense));
+        }
+    }
+
+    void addAll(Collection<Expense> expenses) {
+        for (Map.Entry<Long, List<Expense>> user : byUser(expenses).entrySet()) {
+            users.computeIfAbsent(user.getKey(), userId -> new UserIndex()).addAll(user.getValue());
+        }
+    }
+
+    void remove(Expense expense) {
+        UserIndex index = expense.getUserId() == null ? null : users.get(expense.getUserId());
+        if (index != null) {
+            index.remove(expense);
+        }
+    }
+
+    void removeUser(Long userId) {
+        users.remove(userId);
+    }
+
+    // Replaces the whole index, building users' indexes in parallel on the common pool
+    void rebuild(Collection<Expense> expenses) {
+        Map<Long, UserIndex> built = new ConcurrentHashMap<>();
+        byUser(expenses).entrySet().parallelStream().forEach(user -> {
+            UserIndex index = new UserIndex();
+            index.addAll(user.getValue());
+            built.put(user.getKey(), index);
+        });
+        users.clear();
+        users.putAll(built);
+    }
+
+    // Every query word must match a word of the description, exactly or as its prefix
+    Matches search(Long userId, String text, int limit) {
+        List<String> words = words(text);
+        UserIndex index = users.get(userId);
+        if (index == null || words.isEmpty() || limit <= 0) {
+            return Matches.NONE;
+        }
+        return index.search(words, limit);
+    }
+
+    long documents() {
+        long documents = 0;
+        for (UserIndex index : users.values()) {
+            documents += index.documents();
+        }
+        return documents;
+    }
+
+    // Lower-cased runs of letters and digits, each word once
+    static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static Map<Long, List<Expense>> byUser(Collection<Expense> expenses) {
+        Map<Long, List<Expense>> byUser = new HashMap<>();
+        for (Expense expense : expenses) {
+            if (expense.getUserId() != null) {
+                byUser.computeIfAbsent(expense.getUserId(), userId -> new ArrayList<>()).add(expense);
+            }
+        }
+        return byUser;
+    }
+
+    private static final class UserIndex {
+        // Adds and deletes for one user can run concurrently; searches share the read side
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, Postings> postingsByWord = new TreeMap<>();
+        private final LongIntHashMap slotsById = new LongIntHashMap();
+        private long[] ids = new long[16];
+        // Words in each slot's description, for length normalisation
+        private int[] lengths = new int[16];
+        private int slotCount;
+        private int[] freeSlots = new int[16];
+        private int freeCount;
+
+        private void addAll(List<Expense> expenses) {
+            lock.writeLock().lock();
+            try {
+                for (Expense expense : expenses) {
+                    List<String> words = words(expense.getDescription());
+                    if (words.isEmpty() || slotsById.get(expense.getId()) >= 0) {
+                        continue;
+                    }
+                    int slot = allocate();
+                    ids[slot] = expense.getId();
+                    lengths[slot] = words.size();
+                    slotsById.put(expense.getId(), slot);
+                    for (String word : words) {
+                        postingsByWord.computeIfAbsent(word, w -> new Postings()).add(slot);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(Expense expense) {
+            lock.writeLock().lock();
+            try {
+                int slot = slotsById.remove(expense.getId());
+                if (slot < 0) {
+                    return;
+                }
+                for (String word : words(expense.getDescription())) {
+                    Postings postings = postingsByWord.get(word);
+                    if (postings != null && postings.remove(slot) && postings.size == 0) {
+                        postingsByWord.remove(word);
+                    }
+                }
+                if (freeCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+                }
+                freeSlots[freeCount++] = slot;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private int allocate() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (slotCount == ids.length) {
+                ids = Arrays.copyOf(ids, slotCount * 2);
+                lengths = Arrays.copyOf(lengths, slotCount * 2);
+            }
+            return slotCount++;
+        }
+
+        private int documents() {
+            lock.readLock().lock();
+            try {
+                return slotsById.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Each query word w scores idf(w) for a description holding w itself, or idf(w) * |w| / (2 * |word|)
+        // for its best word that w is a prefix of, so a prefix match counts at most half an exact one.
+        // idf is taken over every word w matches. Scores are summed over the query words and divided
+        // by the square root of the description's length; ties go to the newer expense.
+        private Matches search(List<String> words, int limit) {
+            lock.readLock().lock();
+            try {
+                List<WordMatches> matches = new ArrayList<>(words.size());
+                for (String word : words) {
+                    WordMatches wordMatches = wordMatches(word);
+                    if (wordMatches == null) {
+                        return Matches.NONE;
+                    }
+                    matches.add(wordMatches);
+                }
+                // The rarest query word alone decides the candidates; the others only probe them.
+                // candidateBySlot is the one array sized by the ledger (candidate + 1, 0 for none):
+                // zeroing it is cheaper than hashing every posting.
+                matches.sort(Comparator.comparingLong(WordMatches::slots));
+                int capacity = (int) Math.min(matches.get(0).slots(), slotCount);
+                int[] candidateBySlot = new int[slotCount];
+                int[] candidates = new int[capacity];
+                float[] scores = new float[capacity];
+                // How many query words each candidate has matched; one that misses a word falls
+                // behind and is never credited again
+                int[] matched = new int[capacity];
+                int count = 0;
+                for (int w = 0; w < matches.size(); w++) {
+                    WordMatches wordMatches = matches.get(w);
+                    // Best-weighted words first, so each candidate is credited with its best match
+                    for (int t = 0; t < wordMatches.postings().length; t++) {
+                        Postings postings = wordMatches.postings()[t];
+                        float weight = wordMatches.weights()[t];
+                        for (int p = 0; p < postings.size; p++) {
+                            int slot = postings.slots[p];
+                            int candidate = candidateBySlot[slot] - 1;
+                            if (w == 0 && candidate < 0) {
+                                candidate = count++;
+                                candidateBySlot[slot] = candidate + 1;
+                                candidates[candidate] = slot;
+                            }
+                            if (candidate >= 0 && matched[candidate] == w) {
+                                matched[candidate] = w + 1;
+                                scores[candidate] += weight;
+                            }
+                        }
+                    }
+                }
+
+                // Keep the best `limit` in a min-heap whose head is the weakest kept match. Candidates
+                // are visited last found first: postings mostly run in id order and equal scores go to
+                // the newer expense, so the other way round nearly every candidate displaces the head.
+                Comparator<Integer> ranking = (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b])
+                        : Long.compare(ids[candidates[a]], ids[candidates[b]]);
+                PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, count) + 1, ranking);
+                int total = 0;
+                for (int c = count - 1; c >= 0; c--) {
+                    if (matched[c] != matches.size()) {
+                        continue;
+                    }
+                    total++;
+                    scores[c] /= (float) Math.sqrt(lengths[candidates[c]]);
+                    if (best.size() < limit) {
+                        best.add(c);
+                    } else if (ranking.compare(c, best.peek()) > 0) {
+                        best.poll();
+                        best.add(c);
+                    }
+                }
+                long[] ranked = new long[best.size()];
+                for (int r = ranked.length - 1; r >= 0; r--) {
+                    ranked[r] = ids[candidates[best.poll()]];
+                }
+                return new Matches(ranked, total);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // The dictionary words starting with the query word, shortest (best-weighted) first; null if none
+        private WordMatches wordMatches(String word) {
+            NavigableMap<String, Postings> range = postingsByWord.subMap(word, true, word + Character.MAX_VALUE, false);
+            if (range.isEmpty()) {
+                return null;
+            }
+            List<Map.Entry<String, Postings>> terms = new ArrayList<>(range.entrySet());
+            terms.sort(Comparator.comparingInt(term -> term.getKey().length()));
+            long slots = 0;
+            for (Map.Entry<String, Postings> term : terms) {
+                slots += term.getValue().size;
+            }
+            double idf = Math.log(1.0 + (double) slotsById.size() / slots);
+            Postings[] postings = new Postings[terms.size()];
+            float[] weights = new float[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                int length = terms.get(t).getKey().length();
+                postings[t] = terms.get(t).getValue();
+                weights[t] = (float) (length == word.length() ? idf : idf * word.length() / (2.0 * length));
+            }
+            return new WordMatches(postings, weights, slots);
+        }
+    }
+
+    // slots counts postings across all the words, so a slot holding two of them counts twice
+    private record WordMatches(Postings[] postings, float[] weights, long slots) {}
+
+    // Unordered slots holding one word; a delete swaps the last slot into the gap
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
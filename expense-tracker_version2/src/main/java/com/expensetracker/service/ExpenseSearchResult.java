@@ -0,0 +1,12 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+
+import java.util.List;
+
+// The best-ranked expenses matching a search, best first; totalMatches counts every match,
+// not just the ones returned
+public record ExpenseSearchResult(String query, List<Expense> items, int totalMatches) {
+
+    public static final int DEFAULT_LIMIT = 50;
+}
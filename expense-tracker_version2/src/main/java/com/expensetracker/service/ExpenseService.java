@@ -1,64 +1,408 @@
 package com.expensetracker.service;
 
 import com.expensetracker.model.Expense;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.expensetracker.model.Money;
+import com.expensetracker.repository.ExpenseMutation;
+import com.expensetracker.repository.ExpenseStorage;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.GroupCommitWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class ExpenseService {
-    private static final String EXPENSES_FILE = "expenses.json";
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private List<Expense> expenses;
+    private static final Logger log = LoggerFactory.getLogger(ExpenseService.class);
+    private static final int RESIDENCY_STRIPES = 64;
+
+    private final ExpenseStorage expenseStorage;
+    private final ExpenseStore expenseStore;
+    private final ReentrantReadWriteLock persistenceLock = new ReentrantReadWriteLock();
     private final AtomicLong expenseIdCounter = new AtomicLong(1);
+    private final GroupCommitSettings groupCommitSettings;
+    // Null when group commit is disabled and mutations are persisted on the request thread
+    private final GroupCommitWriter<ExpenseMutation> groupCommitWriter;
+    // Lazy loading: the users whose expenses are in the store, weighted by their expense count.
+    // Null when every expense is loaded at startup.
+    private final Cache<Long, Integer> residentUsers;
+    // Striped by user. Loading and evicting a user take the write side; every operation on a
+    // user's expenses holds the read side, so the user can't be evicted halfway through it.
+    private final ReentrantReadWriteLock[] residencyLocks;
+    // Per-user counter bumped after every change to that user's expenses, so derived views can tell they're stale
+    private final ConcurrentHashMap<Long, AtomicLong> dataVersions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, UserExpenseIndex> userIndexes = new ConcurrentHashMap<>();
+    // Updated with the store on every add and delete rather than rebuilt on change
+    private final ExpenseSearchIndex searchIndex = new ExpenseSearchIndex();
+    // Per-user, per-category running statistics; flags unusually large expenses as they are added
+    private final SpendingAnomalyDetector anomalyDetector;
+    // Notified with the user id after that user's expenses change
+    private final List<Consumer<Long>> changeListeners = new CopyOnWriteArrayList<>();
+    // Versions restart at zero with the process, so tags carry the start time to stay unique
+    private final String versionEpoch = Long.toString(System.currentTimeMillis(), 36);
 
-    public ExpenseService() {
-        // Load expenses from file on startup
-        this.expenses = loadExpenses();
-        
-        // Set the next ID based on loaded expenses
-        if (!expenses.isEmpty()) {
-            long maxId = expenses.stream().mapToLong(Expense::getId).max().orElse(0L);
-            expenseIdCounter.set(maxId + 1);
+    private final Timer loadTimer;
+    private final Timer snapshotTimer;
+    private final Timer journalTimer;
+    private final Counter addedCounter;
+    private final Counter deletedCounter;
+    private final DistributionSummary indexSizes;
+    private final Counter userLoads;
+    private final Counter userEvictions;
+    private final Counter anomalyCounter;
+
+    public ExpenseService(ExpenseStorage expenseStorage, ExpenseStore.Engine storageEngine,
+                          GroupCommitSettings groupCommitSettings, MeterRegistry meterRegistry) {
+        this(expenseStorage, storageEngine, groupCommitSettings, LazyLoadingSettings.disabled(), meterRegistry);
+    }
+
+    public ExpenseService(ExpenseStorage expenseStorage, ExpenseStore.Engine storageEngine,
+                          GroupCommitSettings groupCommitSettings, LazyLoadingSettings lazyLoading,
+                          MeterRegistry meterRegistry) {
+        this(expenseStorage, storageEngine, groupCommitSettings, lazyLoading, AnomalySettings.defaults(),
+                meterRegistry);
+    }
+
+    @Autowired
+    public ExpenseService(ExpenseStorage expenseStorage,
+                          @Value("${expense.storage.engine:OBJECT}") ExpenseStore.Engine storageEngine,
+                          GroupCommitSettings groupCommitSettings,
+                          LazyLoadingSettings lazyLoading,
+                          AnomalySettings anomalySettings,
+                          MeterRegistry meterRegistry) {
+        this.expenseStorage = expenseStorage;
+        this.expenseStore = ExpenseStore.create(storageEngine);
+        this.anomalyDetector = new SpendingAnomalyDetector(anomalySettings);
+        this.groupCommitSettings = groupCommitSettings;
+        this.groupCommitWriter = groupCommitSettings.isEnabled()
+                ? new GroupCommitWriter<>("expenses", groupCommitSettings.getWindowMs(),
+                        groupCommitSettings.isVirtualThreads(), this::writeBatch)
+                : null;
+        if (lazyLoading.isEnabled()) {
+            if (!expenseStorage.loadsUsersSeparately()) {
+                throw new IllegalStateException("expense.storage.lazy.enabled needs expense.storage.shards > 1,"
+                        + " or every user load reads the whole ledger");
+            }
+            // The system scheduler makes idle users expire on time rather than on the next cache write
+            this.residentUsers = Caffeine.newBuilder()
+                    .maximumWeight(lazyLoading.getMaxResidentExpenses())
+                    .weigher((Long userId, Integer expenses) -> Math.max(1, expenses))
+                    .expireAfterAccess(Duration.ofSeconds(lazyLoading.getIdleSeconds()))
+                    .scheduler(Scheduler.systemScheduler())
+                    .removalListener((Long userId, Integer expenses, RemovalCause cause) -> {
+                        if (cause.wasEvicted()) {
+                            evictResident(userId);
+                        }
+                    })
+                    .build();
+            this.residencyLocks = new ReentrantReadWriteLock[RESIDENCY_STRIPES];
+            for (int i = 0; i < RESIDENCY_STRIPES; i++) {
+                residencyLocks[i] = new ReentrantReadWriteLock();
+            }
+        } else {
+            this.residentUsers = null;
+            this.residencyLocks = null;
+        }
+
+        this.loadTimer = persistenceTimer(meterRegistry, "load");
+        this.snapshotTimer = persistenceTimer(meterRegistry, "snapshot");
+        this.journalTimer = persistenceTimer(meterRegistry, "journal");
+        this.addedCounter = Counter.builder("expenses.added")
+                .description("Expenses added, including imports")
+                .register(meterRegistry);
+        this.deletedCounter = Counter.builder("expenses.deleted")
+                .description("Expenses deleted")
+                .register(meterRegistry);
+        this.indexSizes = DistributionSummary.builder("expenses.index.size")
+                .description("Expenses per user index, recorded on each rebuild")
+                .register(meterRegistry);
+        FunctionCounter.builder("expenses.persistence.bytes", expenseStorage, ExpenseStorage::getBytesWritten)
+                .description("Bytes written to expense storage (snapshots and journals for the file backend)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("expenses.ledger.size", expenseStore, ExpenseStore::size)
+                .description("Expenses held in memory")
+                .register(meterRegistry);
+        Gauge.builder("expenses.index.users", userIndexes, Map::size)
+                .description("Users with a cached query index")
+                .register(meterRegistry);
+        Gauge.builder("expenses.index.rows", this, ExpenseService::indexedRows)
+                .description("Expenses across all cached query indexes")
+                .register(meterRegistry);
+        Gauge.builder("expenses.search.documents", searchIndex, ExpenseSearchIndex::documents)
+                .description("Expenses in the description search index")
+                .register(meterRegistry);
+        Gauge.builder("expenses.anomaly.series", anomalyDetector, SpendingAnomalyDetector::series)
+                .description("User and category pairs with running amount statistics")
+                .register(meterRegistry);
+        this.anomalyCounter = Counter.builder("expenses.anomalies")
+                .description("Added expenses flagged as unusually large for their user and category")
+                .register(meterRegistry);
+        if (groupCommitWriter != null) {
+            Gauge.builder("expenses.group.commit.queue", groupCommitWriter, GroupCommitWriter::getQueueDepth)
+                    .description("Mutations waiting for the group-commit writer")
+                    .register(meterRegistry);
+        }
+        this.userLoads = Counter.builder("expenses.lazy.loads")
+                .description("Users whose expenses were loaded on first access")
+                .register(meterRegistry);
+        this.userEvictions = Counter.builder("expenses.lazy.evictions")
+                .description("Users whose expenses were dropped from memory while idle or over budget")
+                .register(meterRegistry);
+        if (residentUsers != null) {
+            Gauge.builder("expenses.lazy.resident.users", residentUsers, Cache::estimatedSize)
+                    .description("Users whose expenses are in memory")
+                    .register(meterRegistry);
         }
-        
-        System.out.println("✅ ExpenseService initialized with " + expenses.size() + " expenses from storage");
-        
-        // If no expenses exist, add some sample data for testing
-        if (expenses.isEmpty()) {
-            addSampleExpenses();
+
+        if (residentUsers != null) {
+            // Nothing is held up front: storage is only scanned for the next id
+            long maxId = loadTimer.record(expenseStorage::loadMaxId);
+            expenseIdCounter.set(maxId + 1);
+            log.info("ExpenseService initialized for lazy loading, next expense id {}", maxId + 1);
+            if (maxId == 0) {
+                addSampleExpenses();
+            }
+        } else {
+            // Load expenses from file on startup
+            List<Expense> expenses = loadExpenses();
+            expenseStore.addAll(expenses);
+            long indexStart = System.nanoTime();
+            searchIndex.rebuild(expenses);
+            log.info("Search index built over {} expenses in {} ms", expenses.size(),
+                    (System.nanoTime() - indexStart) / 1_000_000);
+            long statsStart = System.nanoTime();
+            anomalyDetector.rebuild(expenses);
+            log.info("Spending statistics rebuilt over {} expenses in {} ms", expenses.size(),
+                    (System.nanoTime() - statsStart) / 1_000_000);
+
+            // Set the next ID based on loaded expenses
+            if (!expenses.isEmpty()) {
+                long maxId = expenses.stream().mapToLong(Expense::getId).max().orElse(0L);
+                expenseIdCounter.set(maxId + 1);
+            }
+
+            log.info("ExpenseService initialized with {} expenses from storage", expenses.size());
+
+            // If no expenses exist, add some sample data for testing
+            if (expenses.isEmpty()) {
+                addSampleExpenses();
+            }
         }
     }
 
-    // Load expenses from JSON file
+    private static Timer persistenceTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("expenses.persistence")
+                .description("Time spent in expense file I/O")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    // Load expenses from the snapshot plus journal tail
     public List<Expense> loadExpenses() {
+        return loadTimer.record(expenseStorage::loadExpenses);
+    }
+
+    // Rewrite the full snapshot (compaction)
+    public void saveExpenses(List<Expense> expenses) {
+        snapshotTimer.record(() -> expenseStorage.saveExpenses(expenses));
+    }
+
+    // Adds and deletes reach storage one call per request or group-commit batch; any compaction
+    // that calls for is the backend's own
+    private void persist(List<ExpenseMutation> mutations) {
+        journalTimer.record(() -> expenseStorage.applyMutations(mutations));
+    }
+
+    // Mutations share the read side of the persistence lock so they run concurrently; the final
+    // flush at shutdown takes the write side so it can't interleave with a write
+    private Lock mutationLock() {
+        return persistenceLock.readLock();
+    }
+
+    // Group commit: the writer thread is the only one touching storage, so no lock is needed
+    private void writeBatch(List<ExpenseMutation> batch) {
+        persist(batch);
+    }
+
+    private void awaitIfDurable(CompletableFuture<Void> written) {
+        if (groupCommitSettings.getAcknowledgement() == GroupCommitSettings.Acknowledgement.DURABLE) {
+            written.join();
+        }
+    }
+
+    // Runs the action with the user's expenses in the store, loading them first if they aren't,
+    // and keeps them there until it returns. A plain call when lazy loading is off.
+    private <T> T withResident(Long userId, Supplier<T> action) {
+        if (residentUsers == null || userId == null) {
+            return action.get();
+        }
+        ReentrantReadWriteLock lock = residencyLock(userId);
+        lock.readLock().lock();
         try {
-            File file = new File(EXPENSES_FILE);
-            if (file.exists()) {
-                Expense[] expensesArray = objectMapper.readValue(file, Expense[].class);
-                System.out.println("✅ Loaded " + expensesArray.length + " expenses from file");
-                return new ArrayList<>(Arrays.asList(expensesArray));
+            if (residentUsers.getIfPresent(userId) == null) {
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if (residentUsers.getIfPresent(userId) == null) {
+                        loadResident(userId);
+                    }
+                } finally {
+                    // Downgrade, so an eviction can't slip in before the action has run
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
             }
-        } catch (IOException e) {
-            System.out.println("❌ Error loading expenses: " + e.getMessage());
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
         }
-        return new ArrayList<>();
     }
 
-    // Save expenses to JSON file
-    public void saveExpenses(List<Expense> expenses) {
+    private void withResident(Long userId, Runnable action) {
+        withResident(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private ReentrantReadWriteLock residencyLock(Long userId) {
+        return residencyLocks[Math.floorMod(Long.hashCode(userId), RESIDENCY_STRIPES)];
+    }
+
+    // Caller holds the user's residency write lock
+    private void loadResident(Long userId) {
+        // Writes still queued for the user must reach storage before they are read back
+        if (groupCommitWriter != null) {
+            groupCommitWriter.flush().join();
+        }
+        List<Expense> expenses = loadTimer.record(() -> expenseStorage.loadUser(userId));
+        // Rows an eviction still in flight hasn't dropped yet are superseded by storage
+        expenseStore.removeUser(userId);
+        expenseStore.addAll(expenses);
+        searchIndex.removeUser(userId);
+        searchIndex.addAll(expenses);
+        anomalyDetector.removeUser(userId);
+        anomalyDetector.addAll(expenses);
+        residentUsers.put(userId, expenses.size());
+        userLoads.increment();
+        log.debug("Loaded {} expenses for user ID {}", expenses.size(), userId);
+    }
+
+    // Removal listener, run on Caffeine's executor after a user expired or fell out of the budget
+    private void evictResident(Long userId) {
+        ReentrantReadWriteLock lock = residencyLock(userId);
+        lock.writeLock().lock();
+        try {
+            if (residentUsers.getIfPresent(userId) != null) {
+                return;  // loaded again since
+            }
+            // Storage becomes the only copy, so it must have every write made so far
+            if (groupCommitWriter != null) {
+                groupCommitWriter.flush().join();
+            }
+            int dropped = expenseStore.removeUser(userId);
+            userIndexes.remove(userId);
+            searchIndex.removeUser(userId);
+            anomalyDetector.removeUser(userId);
+            userEvictions.increment();
+            log.debug("Evicted {} expenses for idle user ID {}", dropped, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keep a resident user's weight in step with their expense count
+    private void reweigh(Long userId) {
+        if (residentUsers != null) {
+            residentUsers.put(userId, expenseStore.getExpenseCount(userId));
+        }
+    }
+
+    // Load a user's expenses ahead of their first request, e.g. right after login. A no-op
+    // unless lazy loading is on.
+    public void preload(Long userId) {
+        withResident(userId, () -> {});
+    }
+
+    // While lazy loading: every expense, taking resident users from the store (which may be ahead
+    // of storage) and everyone else from storage. The store is copied under every residency read
+    // lock, so no user is caught half loaded or half evicted and then skipped in storage.
+    private List<Expense> ledgerWithStorage() {
+        List<Expense> ledger;
+        int locked = 0;
+        try {
+            for (; locked < RESIDENCY_STRIPES; locked++) {
+                residencyLocks[locked].readLock().lock();
+            }
+            ledger = expenseStore.findAll();
+        } finally {
+            while (locked > 0) {
+                residencyLocks[--locked].readLock().unlock();
+            }
+        }
+        Set<Long> inMemory = new HashSet<>();
+        for (Expense expense : ledger) {
+            if (expense.getUserId() != null) {
+                inMemory.add(expense.getUserId());
+            }
+        }
+        for (Expense expense : loadTimer.record(() -> expenseStorage.readExpenses())) {
+            if (!inMemory.contains(expense.getUserId())) {
+                ledger.add(expense);
+            }
+        }
+        ledger.sort(Comparator.comparing(Expense::getId));
+        return ledger;
+    }
+
+    // Queue depth and batch sizes of the write-behind stage, or null when it is disabled
+    public GroupCommitWriter.Stats getGroupCommitStats() {
+        return groupCommitWriter == null ? null : groupCommitWriter.getStats();
+    }
+
+    @PreDestroy
+    public void compactOnShutdown() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.close();
+        }
+        persistenceLock.writeLock().lock();
         try {
-            objectMapper.writeValue(new File(EXPENSES_FILE), expenses);
-            System.out.println("✅ Saved " + expenses.size() + " expenses to file");
-        } catch (IOException e) {
-            System.out.println("❌ Error saving expenses: " + e.getMessage());
+            snapshotTimer.record(expenseStorage::flush);
+        } finally {
+            persistenceLock.writeLock().unlock();
         }
     }
 
@@ -68,99 +412,429 @@ public class ExpenseService {
             Expense expense1 = new Expense("Groceries", 150.75, "Food");
             expense1.setId(expenseIdCounter.getAndIncrement());
             expense1.setUserId(1L);
+            expense1.setDate(LocalDate.now());
 
             Expense expense2 = new Expense("Electricity Bill", 89.99, "Utilities");
             expense2.setId(expenseIdCounter.getAndIncrement());
             expense2.setUserId(1L);
+            expense2.setDate(LocalDate.now());
 
             Expense expense3 = new Expense("Dinner", 45.50, "Food");
             expense3.setId(expenseIdCounter.getAndIncrement());
             expense3.setUserId(1L);
+            expense3.setDate(LocalDate.now());
 
-            expenses.add(expense1);
-            expenses.add(expense2);
-            expenses.add(expense3);
+            expenseStore.add(expense1);
+            expenseStore.add(expense2);
+            expenseStore.add(expense3);
+            searchIndex.addAll(List.of(expense1, expense2, expense3));
+            anomalyDetector.addAll(List.of(expense1, expense2, expense3));
             
-            saveExpenses(expenses);
-            System.out.println("✅ Added " + expenses.size() + " sample expenses for testing");
+            saveExpenses(expenseStore.findAll());
+            reweigh(1L);
+            log.info("Added {} sample expenses for testing", expenseStore.size());
         } catch (Exception e) {
-            System.out.println("❌ Error adding sample expenses: " + e.getMessage());
+            log.error("Error adding sample expenses: {}", e.getMessage());
         }
     }
 
     // FIXED: Return void instead of boolean and add proper validation
     public void addExpense(Expense expense, Long userId) {
         try {
-            System.out.println("=== ADDING EXPENSE ===");
-            System.out.println("🔍 User ID: " + userId);
-            System.out.println("🔍 Expense Description: " + expense.getDescription());
-            System.out.println("🔍 Expense Amount: " + expense.getAmount());
-            System.out.println("🔍 Expense Category: " + expense.getCategory());
+            log.debug("Adding expense for user ID {}: description={}, amount={}, category={}",
+                    userId, expense.getDescription(), expense.getAmount(), expense.getCategory());
             
             // Validate inputs
             if (userId == null) {
                 throw new RuntimeException("User ID cannot be null");
             }
-            if (expense.getDescription() == null || expense.getDescription().trim().isEmpty()) {
-                throw new RuntimeException("Expense description cannot be empty");
-            }
-            if (expense.getAmount() == null || expense.getAmount() <= 0) {
-                throw new RuntimeException("Expense amount must be greater than 0");
-            }
-            if (expense.getCategory() == null || expense.getCategory().trim().isEmpty()) {
-                throw new RuntimeException("Expense category cannot be empty");
+            String validationError = validateExpense(expense);
+            if (validationError != null) {
+                throw new RuntimeException(validationError);
             }
             
             // Set expense properties
             expense.setId(expenseIdCounter.getAndIncrement());
             expense.setUserId(userId);
+            if (expense.getDate() == null) {
+                expense.setDate(LocalDate.now());
+            }
             
-            // Add to list
-            expenses.add(expense);
-            
-            // Save to file
-            saveExpenses(expenses);
+            // Save to file, then add to the store. The write goes (or is queued) before the expense
+            // is visible, so a delete of it can't reach storage ahead of it, and a failed write
+            // leaves nothing behind. The statistics take the expense before the store does, so a
+            // delete (which needs it in the store) can't reach them first.
+            if (groupCommitWriter != null) {
+                CompletableFuture<Void> written = withResident(userId, () -> {
+                    CompletableFuture<Void> queued = groupCommitWriter.submit(ExpenseMutation.add(expense));
+                    searchIndex.add(expense);
+                    flagIfAnomalous(expense);
+                    expenseStore.add(expense);
+                    markChanged(userId);
+                    return queued;
+                });
+                // The batch failed after the expense became visible; take it back out
+                try {
+                    awaitIfDurable(written);
+                } catch (RuntimeException e) {
+                    withResident(userId, () -> undoAdd(expense));
+                    throw e;
+                }
+            } else {
+                withResident(userId, () -> {
+                    Lock lock = mutationLock();
+                    lock.lock();
+                    try {
+                        persist(List.of(ExpenseMutation.add(expense)));
+                        searchIndex.add(expense);
+                        flagIfAnomalous(expense);
+                        expenseStore.add(expense);
+                        markChanged(userId);
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+            }
             
-            System.out.println("✅ Expense added successfully for user ID " + userId + ": " + 
-                expense.getDescription() + " - $" + expense.getAmount());
+            addedCounter.increment();
+            log.debug("Expense added successfully for user ID {}: {} - ${}",
+                    userId, expense.getDescription(), expense.getAmount());
                 
         } catch (Exception e) {
-            System.out.println("❌ Error adding expense: " + e.getMessage());
+            log.error("Error adding expense: {}", e.getMessage());
             throw new RuntimeException("Failed to add expense: " + e.getMessage());
         }
     }
 
+    // Takes back an add whose write failed, so memory doesn't keep an expense storage doesn't have
+    private void undoAdd(Expense expense) {
+        if (expenseStore.remove(expense.getId()) != null) {
+            searchIndex.remove(expense);
+            anomalyDetector.remove(expense);
+            markChanged(expense.getUserId());
+        }
+    }
+
+    private void flagIfAnomalous(Expense expense) {
+        ExpenseAnomaly anomaly = anomalyDetector.add(expense);
+        if (anomaly != null) {
+            anomalyCounter.increment();
+            log.debug("Expense {} flagged for user ID {}: {}x the usual {} amount", expense.getId(),
+                    expense.getUserId(), anomaly.ratio(), expense.getCategory());
+        }
+    }
+
+    // Returns why an expense can't be added, or null if it is valid
+    public String validateExpense(Expense expense) {
+        if (expense.getDescription() == null || expense.getDescription().trim().isEmpty()) {
+            return "Expense description cannot be empty";
+        }
+        // Under half a cent rounds to nothing; a missing amount is Money.NONE
+        if (expense.getAmountCents() <= 0) {
+            return "Expense amount must be greater than 0";
+        }
+        // Infinite and huge amounts saturate on the way to cents and land above the cap
+        if (expense.getAmountCents() > Money.MAX_CENTS) {
+            return "Expense amount cannot be more than " + Money.MAX_CENTS / 100;
+        }
+        if (expense.getCategory() == null || expense.getCategory().trim().isEmpty()) {
+            return "Expense category cannot be empty";
+        }
+        return null;
+    }
+
+    // Add a batch of already validated expenses: ids are taken as one block and the whole
+    // batch is persisted with a single write
+    public void addExpenses(List<Expense> batch, Long userId) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (userId == null) {
+                throw new RuntimeException("User ID cannot be null");
+            }
+            long firstId = expenseIdCounter.getAndAdd(batch.size());
+            List<ExpenseMutation> mutations = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Expense expense = batch.get(i);
+                expense.setId(firstId + i);
+                expense.setUserId(userId);
+                if (expense.getDate() == null) {
+                    expense.setDate(LocalDate.now());
+                }
+                mutations.add(ExpenseMutation.add(expense));
+            }
+
+            // Written (or queued) before the batch is visible, as in addExpense
+            if (groupCommitWriter != null) {
+                CompletableFuture<Void> written = withResident(userId, () -> {
+                    CompletableFuture<Void> queued = groupCommitWriter.submitAll(mutations);
+                    searchIndex.addAll(batch);
+                    anomalyCounter.increment(anomalyDetector.addAll(batch));
+                    expenseStore.addAll(batch);
+                    markChanged(userId);
+                    return queued;
+                });
+                // The batch failed after it became visible; take all of it back out, as in addExpense
+                try {
+                    awaitIfDurable(written);
+                } catch (RuntimeException e) {
+                    withResident(userId, () -> batch.forEach(this::undoAdd));
+                    throw e;
+                }
+            } else {
+                withResident(userId, () -> {
+                    Lock lock = mutationLock();
+                    lock.lock();
+                    try {
+                        persist(mutations);
+                        searchIndex.addAll(batch);
+                        anomalyCounter.increment(anomalyDetector.addAll(batch));
+                        expenseStore.addAll(batch);
+                        markChanged(userId);
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+            }
+
+            addedCounter.increment(batch.size());
+            log.debug("Added {} expenses in one batch for user ID {}", batch.size(), userId);
+        } catch (Exception e) {
+            log.error("Error adding expense batch: {}", e.getMessage());
+            throw new RuntimeException("Failed to add expenses: " + e.getMessage());
+        }
+    }
+
     // Get expenses by user ID
     public List<Expense> getExpensesByUserId(Long userId) {
         try {
-            List<Expense> userExpenses = expenses.stream()
-                    .filter(expense -> expense.getUserId() != null && expense.getUserId().equals(userId))
-                    .collect(Collectors.toList());
-            System.out.println("✅ Found " + userExpenses.size() + " expenses for user ID: " + userId);
+            List<Expense> userExpenses = withResident(userId, () -> new ArrayList<>(expenseStore.findByUserId(userId)));
+            log.debug("Found {} expenses for user ID: {}", userExpenses.size(), userId);
             return userExpenses;
         } catch (Exception e) {
-            System.out.println("❌ Error getting expenses for user " + userId + ": " + e.getMessage());
+            log.error("Error getting expenses for user {}: {}", userId, e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    // Per-category totals for a user, maintained incrementally on add/delete
+    public Map<String, CategoryTotal> getCategoryTotals(Long userId) {
+        return withResident(userId, () -> expenseStore.getCategoryTotals(userId));
+    }
+
+    public double getTotalSpent(Long userId) {
+        return Money.toAmount(getTotalSpentCents(userId));
+    }
+
+    public long getTotalSpentCents(Long userId) {
+        return withResident(userId, () -> expenseStore.getTotalCents(userId));
+    }
+
+    public int getExpenseCount(Long userId) {
+        return withResident(userId, () -> expenseStore.getExpenseCount(userId));
+    }
+
+    // Spending per month, oldest first, from the stores' precomputed rollups
+    public NavigableMap<YearMonth, MonthlyRollup> getMonthlyRollups(Long userId) {
+        return withResident(userId, () -> expenseStore.getMonthlyRollups(userId));
+    }
+
+    public MonthlyRollup getMonthlyRollup(Long userId, YearMonth month) {
+        MonthlyRollup rollup = withResident(userId, () -> expenseStore.getMonthlyRollups(userId).get(month));
+        return rollup == null ? MonthlyRollup.empty(month) : rollup;
+    }
+
+    // One page of a user's expenses, served from a sorted per-user index that is rebuilt
+    // only after the user's expenses change
+    public ExpensePage queryExpenses(Long userId, ExpenseQuery query) {
+        return withResident(userId, () -> {
+            long version = getDataVersion(userId);
+            UserExpenseIndex index = userIndexes.get(userId);
+            if (index == null || index.getVersion() != version) {
+                index = new UserExpenseIndex(version, expenseStore.findByUserId(userId));
+                userIndexes.put(userId, index);
+                indexSizes.record(index.size());
+            }
+            return index.query(query);
+        });
+    }
+
+    // Ranked search over the user's expense descriptions: every word of the text must match a
+    // description word exactly or as its prefix. Rows are indexed before they reach the store and
+    // unindexed after they leave it, so hits are resolved against the store and any row caught
+    // mid-add or mid-delete is skipped.
+    public ExpenseSearchResult searchExpenses(Long userId, String text, int limit) {
+        int cappedLimit = Math.min(Math.max(limit, 1), ExpenseQuery.MAX_SIZE);
+        return withResident(userId, () -> {
+            ExpenseSearchIndex.Matches matches = searchIndex.search(userId, text, cappedLimit);
+            List<Expense> items = new ArrayList<>(matches.ids().length);
+            for (long id : matches.ids()) {
+                Expense expense = expenseStore.findById(id);
+                if (expense != null && userId.equals(expense.getUserId())) {
+                    items.add(expense);
+                }
+            }
+            return new ExpenseSearchResult(text, items, matches.total());
+        });
+    }
+
+    // The user's expenses that were flagged as unusually large when added, by id (oldest first)
+    public Map<Long, ExpenseAnomaly> getAnomalies(Long userId) {
+        return withResident(userId, () -> anomalyDetector.anomalies(userId));
+    }
+
+    private double indexedRows() {
+        long rows = 0;
+        for (UserExpenseIndex index : userIndexes.values()) {
+            rows += index.size();
+        }
+        return rows;
+    }
+
+    // Changes whenever the user's expenses change
+    public long getDataVersion(Long userId) {
+        AtomicLong version = dataVersions.get(userId);
+        return version == null ? 0 : version.get();
+    }
+
+    // Called after the store is updated, so a reader that sees the new version also sees the new data
+    private void markChanged(Long userId) {
+        if (userId != null) {
+            reweigh(userId);
+            dataVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+            for (Consumer<Long> listener : changeListeners) {
+                listener.accept(userId);
+            }
+        }
+    }
+
+    // Opaque token that differs whenever the user's expenses differ, across restarts too (for ETags)
+    public String getDataVersionTag(Long userId) {
+        return versionEpoch + "-" + userId + "-" + getDataVersion(userId);
+    }
+
+    // Register for add/import/delete events; runs on the writing thread, so keep it cheap
+    public void addChangeListener(Consumer<Long> listener) {
+        changeListeners.add(listener);
+    }
+
+    // While lazy loading this only finds expenses of resident users; use getUserExpense for a
+    // user's own expense
+    public Expense getExpenseById(Long id) {
+        return expenseStore.findById(id);
+    }
+
+    // The expense if it belongs to the user, otherwise null
+    public Expense getUserExpense(Long userId, Long id) {
+        return withResident(userId, () -> {
+            Expense expense = expenseStore.findById(id);
+            return expense != null && userId.equals(expense.getUserId()) ? expense : null;
+        });
+    }
+
     // Get all expenses
     public List<Expense> getAllExpenses() {
-        return new ArrayList<>(expenses);
+        return residentUsers != null ? ledgerWithStorage() : expenseStore.findAll();
+    }
+
+    // Streams expenses to the action without copying the ledger (see ExpenseStore.forEachExpense).
+    // While lazy loading it streams from storage a part at a time instead: storage has every write
+    // the store does once queued ones are flushed, so no residency lock is held and no more than
+    // one shard or page is in memory however long the action takes.
+    public void forEachExpense(Consumer<Expense> action) {
+        if (residentUsers != null) {
+            if (groupCommitWriter != null) {
+                groupCommitWriter.flush().join();
+            }
+            expenseStorage.readExpenses(part -> part.forEach(action));
+            return;
+        }
+        expenseStore.forEachExpense(action);
+    }
+
+    // Cross-user scans such as admin reports, over one consistent view of the whole ledger
+    // (see ExpenseStore.withLedgerRows). While lazy loading the ledger is assembled first.
+    public <T> T scanLedger(Function<ExpenseStore.LedgerRows, T> scan) {
+        if (residentUsers != null) {
+            return scan.apply(ExpenseStore.rowsOf(ledgerWithStorage()));
+        }
+        return expenseStore.withLedgerRows(scan);
     }
 
-    // Delete expense
+    // While lazy loading the action runs on a copy, so a slow consumer doesn't keep the user resident
+    public void forEachExpense(Long userId, Consumer<Expense> action) {
+        if (residentUsers != null) {
+            withResident(userId, () -> expenseStore.findByUserId(userId)).forEach(action);
+            return;
+        }
+        expenseStore.forEachExpense(userId, action);
+    }
+
+    // Delete expense. While lazy loading only expenses of resident users are found; use
+    // deleteUserExpense to delete a user's own expense.
     public void deleteExpense(Long id) {
+        Expense expense = residentUsers != null ? expenseStore.findById(id) : null;
+        withResident(expense == null ? null : expense.getUserId(), () -> {
+            removeExpense(id);
+        });
+    }
+
+    // Deletes the expense only if it belongs to the user; false if the user has no such expense
+    public boolean deleteUserExpense(Long userId, Long id) {
+        return withResident(userId, () -> {
+            Expense expense = expenseStore.findById(id);
+            return expense != null && userId.equals(expense.getUserId()) && removeExpense(id) != null;
+        });
+    }
+
+    private Expense removeExpense(Long id) {
         try {
-            boolean removed = expenses.removeIf(expense -> expense.getId().equals(id));
-            if (removed) {
-                saveExpenses(expenses);
-                System.out.println("✅ Expense deleted: ID " + id);
+            Expense removed;
+            if (groupCommitWriter != null) {
+                // Queued, and under DURABLE written, before the expense leaves memory, so a failed
+                // batch leaves it in place like a failed write below
+                Expense existing = expenseStore.findById(id);
+                removed = null;
+                if (existing != null) {
+                    awaitIfDurable(groupCommitWriter.submit(ExpenseMutation.delete(id, existing.getUserId())));
+                    removed = expenseStore.remove(id);
+                }
+                if (removed != null) {
+                    searchIndex.remove(removed);
+                    anomalyDetector.remove(removed);
+                    markChanged(removed.getUserId());
+                }
+            } else {
+                // Written before the expense leaves memory, as in addExpense, so a failed write
+                // leaves it in place
+                Lock lock = mutationLock();
+                lock.lock();
+                try {
+                    Expense existing = expenseStore.findById(id);
+                    removed = null;
+                    if (existing != null) {
+                        persist(List.of(ExpenseMutation.delete(existing.getId(), existing.getUserId())));
+                        removed = expenseStore.remove(id);
+                    }
+                    if (removed != null) {
+                        searchIndex.remove(removed);
+                        anomalyDetector.remove(removed);
+                        markChanged(removed.getUserId());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (removed != null) {
+                deletedCounter.increment();
+                log.debug("Expense deleted: ID {}", id);
             } else {
-                System.out.println("⚠️ Expense not found for deletion: ID " + id);
+                log.warn("Expense not found for deletion: ID {}", id);
             }
+            return removed;
         } catch (Exception e) {
-            System.out.println("❌ Error deleting expense: " + e.getMessage());
+            log.error("Error deleting expense: {}", e.getMessage());
             throw new RuntimeException("Failed to delete expense: " + e.getMessage());
         }
     }
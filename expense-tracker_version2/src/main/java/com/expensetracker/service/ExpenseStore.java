@@ -0,0 +1,107 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// In-memory storage engine behind ExpenseService. Implementations must be safe for
+// concurrent request threads and keep per-user category totals and monthly rollups up to
+// date on add/remove.
+public interface ExpenseStore {
+
+    // OBJECT keeps Expense instances; COLUMNAR keeps primitive columns and materializes on read
+    enum Engine { OBJECT, COLUMNAR }
+
+    // Row values standing in for a missing user id or date in a LedgerRows scan
+    long NO_USER = Long.MIN_VALUE;
+    int NO_DATE = Integer.MIN_VALUE;
+
+    // One row of a cross-user scan as primitives, the amount in cents; a missing amount is passed as 0
+    @FunctionalInterface
+    interface RowSink {
+        void accept(long userId, long cents, int epochDay, String category);
+    }
+
+    // The whole ledger as numbered row slots that any number of threads may scan in ranges at
+    // once. Some slots may be empty; scan skips them.
+    interface LedgerRows {
+        int slots();
+
+        void scan(int from, int to, RowSink sink);
+    }
+
+    // Rows over a fixed list of expenses, e.g. a snapshot or a ledger assembled from the files
+    static LedgerRows rowsOf(List<Expense> expenses) {
+        return new LedgerRows() {
+            @Override
+            public int slots() {
+                return expenses.size();
+            }
+
+            @Override
+            public void scan(int from, int to, RowSink sink) {
+                for (int i = from; i < to; i++) {
+                    Expense expense = expenses.get(i);
+                    sink.accept(expense.getUserId() == null ? NO_USER : expense.getUserId(),
+                            Money.orZero(expense.getAmountCents()),
+                            expense.getDate() == null ? NO_DATE : Math.toIntExact(expense.getDate().toEpochDay()),
+                            expense.getCategory());
+                }
+            }
+        };
+    }
+
+    static ExpenseStore create(Engine engine) {
+        return engine == Engine.COLUMNAR ? new ColumnarExpenseStore() : new ObjectExpenseStore();
+    }
+
+    void add(Expense expense);
+
+    // Bulk insert used at startup and by imports
+    void addAll(List<Expense> expenses);
+
+    // Returns the removed expense, or null if no expense has that id
+    Expense remove(Long id);
+
+    // Drop every expense of one user, e.g. when lazy loading evicts them; returns how many were
+    // dropped. Callers make sure no other write for that user runs at the same time.
+    int removeUser(Long userId);
+
+    Expense findById(Long id);
+
+    // One user's expenses in insertion order; callers must not modify the list
+    List<Expense> findByUserId(Long userId);
+
+    // Read-only per-category totals for a user, keyed by category
+    Map<String, CategoryTotal> getCategoryTotals(Long userId);
+
+    // Sum of the user's amounts in cents
+    long getTotalCents(Long userId);
+
+    // Read-only per-month rollups for a user, oldest month first; undated expenses are not included
+    NavigableMap<YearMonth, MonthlyRollup> getMonthlyRollups(Long userId);
+
+    int getExpenseCount(Long userId);
+
+    // Point-in-time copy of every expense ordered by id (which is insertion order)
+    List<Expense> findAll();
+
+    int size();
+
+    // Visit every expense without building a list, for exports. Weakly consistent: writes made
+    // during the walk may or may not be seen, and no lock is held while the action runs.
+    void forEachExpense(Consumer<Expense> action);
+
+    // Same as forEachExpense, restricted to one user's expenses
+    void forEachExpense(Long userId, Consumer<Expense> action);
+
+    // Runs a cross-user scan (admin reports) over one consistent view of the ledger: either a
+    // snapshot, or the live rows with writers held off until the scan returns
+    <T> T withLedgerRows(Function<LedgerRows, T> scan);
+}
@@ -0,0 +1,14 @@
+package com.expensetracker.service;
+
+import java.util.List;
+
+// Outcome of a bulk import. Only the first few row errors are kept; errorCount has the total.
+public record ImportResult(long rowsRead, int imported, long errorCount, List<RowError> errors) {
+
+    // Row numbers are 1-based data rows (the CSV header is not counted)
+    public record RowError(long row, String message) {}
+
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+}
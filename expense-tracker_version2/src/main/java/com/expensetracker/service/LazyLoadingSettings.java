@@ -0,0 +1,32 @@
+package com.expensetracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// When enabled, ExpenseService keeps only recently used users' expenses in memory: a user is
+// loaded from their shard on first access and evicted once idle or when the resident expenses
+// outgrow the budget, least recently used first
+@Component
+public class LazyLoadingSettings {
+
+    private final boolean enabled;
+    // The budget counts expenses rather than users, so one heavy user weighs what they hold
+    private final long maxResidentExpenses;
+    private final long idleSeconds;
+
+    public LazyLoadingSettings(@Value("${expense.storage.lazy.enabled:false}") boolean enabled,
+                               @Value("${expense.storage.lazy.max-resident-expenses:100000}") long maxResidentExpenses,
+                               @Value("${expense.storage.lazy.idle-seconds:1800}") long idleSeconds) {
+        this.enabled = enabled;
+        this.maxResidentExpenses = maxResidentExpenses;
+        this.idleSeconds = idleSeconds;
+    }
+
+    public static LazyLoadingSettings disabled() {
+        return new LazyLoadingSettings(false, 0, 0);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getMaxResidentExpenses() { return maxResidentExpenses; }
+    public long getIdleSeconds() { return idleSeconds; }
+}
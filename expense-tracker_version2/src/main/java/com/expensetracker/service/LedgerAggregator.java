@@ -0,0 +1,180 @@
+package com.expensetracker.service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Parallel cross-user aggregation for admin reports. The ledger's row slots are split into ranges
+// on a fork-join pool; each range is folded into its own accumulator of primitive arrays (exact
+// long cents, no boxing and nothing shared between threads), and accumulators are merged pairwise as the
+// tasks join.
+public final class LedgerAggregator {
+    // Ranges at or below this size are scanned rather than split further
+    private static final int MIN_LEAF_ROWS = 1 << 15;
+    // Several leaves per worker, so one slow range doesn't leave the other workers idle
+    private static final int LEAVES_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+
+    public LedgerAggregator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public LedgerTotals aggregate(ExpenseStore.LedgerRows rows, YearMonth month) {
+        int monthStart = Math.toIntExact(month.atDay(1).toEpochDay());
+        int monthEnd = Math.toIntExact(month.plusMonths(1).atDay(1).toEpochDay());
+        int leafRows = Math.max(MIN_LEAF_ROWS, rows.slots() / (pool.getParallelism() * LEAVES_PER_WORKER) + 1);
+        Partial totals = pool.invoke(new RangeTask(rows, 0, rows.slots(), leafRows, monthStart, monthEnd));
+        return totals.toLedgerTotals(month);
+    }
+
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static final class RangeTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final ExpenseStore.LedgerRows rows;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+        private final int monthStart;
+        private final int monthEnd;
+
+        private RangeTask(ExpenseStore.LedgerRows rows, int from, int to, int leafRows, int monthStart, int monthEnd) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+            this.monthStart = monthStart;
+            this.monthEnd = monthEnd;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leafRows) {
+                Partial partial = new Partial(monthStart, monthEnd);
+                rows.scan(from, to, partial);
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(rows, from, mid, leafRows, monthStart, monthEnd);
+            left.fork();
+            Partial right = new RangeTask(rows, mid, to, leafRows, monthStart, monthEnd).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    // One range's totals. Users and categories get dense slots on first sight, and every sum
+    // lives in a primitive array indexed by slot.
+    private static final class Partial implements ExpenseStore.RowSink {
+        private final int monthStart;
+        private final int monthEnd;
+        private long expenseCount;
+        private long totalSpentCents;
+
+        private final LongIntHashMap userSlots = new LongIntHashMap();
+        private int userCount;
+        private long[] userIds = new long[64];
+        private long[] userCounts = new long[64];
+        private long[] userTotals = new long[64];
+        private long[] userMonthTotals = new long[64];
+
+        private final Map<String, Integer> categorySlots = new HashMap<>();
+        private String[] categoryNames = new String[16];
+        private long[] categoryCounts = new long[16];
+        private long[] categoryTotals = new long[16];
+
+        private Partial(int monthStart, int monthEnd) {
+            this.monthStart = monthStart;
+            this.monthEnd = monthEnd;
+        }
+
+        @Override
+        public void accept(long userId, long cents, int epochDay, String category) {
+            boolean inMonth = epochDay >= monthStart && epochDay < monthEnd;
+            expenseCount++;
+            totalSpentCents += cents;
+            if (userId != ExpenseStore.NO_USER) {
+                addUser(userId, 1, cents, inMonth ? cents : 0);
+            }
+            if (category != null) {
+                addCategory(category, 1, cents);
+            }
+        }
+
+        private void addUser(long userId, long count, long total, long monthTotal) {
+            int slot = userSlots.get(userId);
+            if (slot < 0) {
+                slot = userCount++;
+                if (slot == userIds.length) {
+                    int capacity = slot * 2;
+                    userIds = Arrays.copyOf(userIds, capacity);
+                    userCounts = Arrays.copyOf(userCounts, capacity);
+                    userTotals = Arrays.copyOf(userTotals, capacity);
+                    userMonthTotals = Arrays.copyOf(userMonthTotals, capacity);
+                }
+                userIds[slot] = userId;
+                userSlots.put(userId, slot);
+            }
+            userCounts[slot] += count;
+            userTotals[slot] += total;
+            userMonthTotals[slot] += monthTotal;
+        }
+
+        private void addCategory(String category, long count, long total) {
+            Integer slot = categorySlots.get(category);
+            if (slot == null) {
+                slot = categorySlots.size();
+                if (slot == categoryNames.length) {
+                    int capacity = slot * 2;
+                    categoryNames = Arrays.copyOf(categoryNames, capacity);
+                    categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+                    categoryTotals = Arrays.copyOf(categoryTotals, capacity);
+                }
+                categoryNames[slot] = category;
+                categorySlots.put(category, slot);
+            }
+            categoryCounts[slot] += count;
+            categoryTotals[slot] += total;
+        }
+
+        // Folds the smaller partial into the larger one and returns the larger
+        private Partial merge(Partial other) {
+            if (other.userCount > userCount) {
+                return other.merge(this);
+            }
+            expenseCount += other.expenseCount;
+            totalSpentCents += other.totalSpentCents;
+            for (int i = 0; i < other.userCount; i++) {
+                addUser(other.userIds[i], other.userCounts[i], other.userTotals[i], other.userMonthTotals[i]);
+            }
+            for (int i = 0; i < other.categorySlots.size(); i++) {
+                addCategory(other.categoryNames[i], other.categoryCounts[i], other.categoryTotals[i]);
+            }
+            return this;
+        }
+
+        private LedgerTotals toLedgerTotals(YearMonth month) {
+            Map<String, CategoryTotal> categories = new HashMap<>();
+            for (int i = 0; i < categorySlots.size(); i++) {
+                categories.put(categoryNames[i], new CategoryTotal(categoryTotals[i], categoryCounts[i]));
+            }
+            List<LedgerTotals.UserTotal> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                users.add(new LedgerTotals.UserTotal(userIds[i], userCounts[i], userTotals[i], userMonthTotals[i]));
+            }
+            return new LedgerTotals(month, expenseCount, totalSpentCents, Map.copyOf(categories), List.copyOf(users));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+// Cross-user totals (in cents) from one pass over the ledger (see LedgerAggregator). Category
+// totals cover every expense; per-user totals cover expenses that have a user.
+public record LedgerTotals(YearMonth month, long expenseCount, long totalSpentCents,
+                           Map<String, CategoryTotal> categories, List<UserTotal> users) {
+
+    public double totalSpent() {
+        return Money.toAmount(totalSpentCents);
+    }
+
+    // monthTotalCents is the user's spending in the aggregated month only
+    public record UserTotal(long userId, long count, long totalCents, long monthTotalCents) {
+
+        public double total() {
+            return Money.toAmount(totalCents);
+        }
+
+        public double monthTotal() {
+            return Money.toAmount(monthTotalCents);
+        }
+    }
+}
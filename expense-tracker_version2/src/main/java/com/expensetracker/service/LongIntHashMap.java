@@ -0,0 +1,102 @@
+package com.expensetracker.service;
+
+import java.util.Arrays;
+
+// Open-addressing long -> int map (ids to rows, users to accumulator slots) that doesn't box
+// every key. get returns -1 for a missing key.
+final class LongIntHashMap {
+    private static final int EMPTY = -1;
+    private long[] keys = new long[16];
+    private int[] values = filled(16);
+    private int size;
+
+    // The probe stops after keys.length slots: the columnar store calls get under an optimistic
+    // read, where a concurrent resize or backward shift can leave a table with no empty slot
+    // on the probe path. The caller's validate() then fails and the lookup is retried locked.
+    int get(long key) {
+        long[] keys = this.keys;
+        int[] values = this.values;
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (int probes = 0; probes < keys.length && values[i] != EMPTY; probes++, i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return EMPTY;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (values[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == EMPTY) {
+            size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    // Linear-probing delete with backward shift, so no tombstones accumulate
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (values[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == EMPTY) {
+            return EMPTY;
+        }
+        int removed = values[i];
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == EMPTY) {
+                break;
+            }
+            int home = slot(keys[j], mask);
+            boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = filled(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int[] filled(int capacity) {
+        int[] array = new int[capacity];
+        Arrays.fill(array, EMPTY);
+        return array;
+    }
+}
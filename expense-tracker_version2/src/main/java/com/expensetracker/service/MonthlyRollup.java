@@ -0,0 +1,40 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+// Precomputed spending (in cents) for one user in one calendar month, overall and per category.
+// Immutable; stores replace a month's rollup on every change to it.
+public record MonthlyRollup(YearMonth month, long totalCents, long count, Map<String, CategoryTotal> categories) {
+
+    public static MonthlyRollup empty(YearMonth month) {
+        return new MonthlyRollup(month, 0, 0, Map.of());
+    }
+
+    public MonthlyRollup plus(String category, long cents) {
+        Map<String, CategoryTotal> updated = new HashMap<>(categories);
+        if (category != null) {
+            updated.merge(category, new CategoryTotal(cents, 1), (current, added) -> current.plus(cents));
+        }
+        return new MonthlyRollup(month, totalCents + cents, count + 1, Map.copyOf(updated));
+    }
+
+    // Null once the month has no expenses left
+    public MonthlyRollup minus(String category, long cents) {
+        if (count <= 1) {
+            return null;
+        }
+        Map<String, CategoryTotal> updated = new HashMap<>(categories);
+        if (category != null) {
+            updated.computeIfPresent(category, (c, current) -> current.minus(cents));
+        }
+        return new MonthlyRollup(month, totalCents - cents, count - 1, Map.copyOf(updated));
+    }
+
+    public double total() {
+        return Money.toAmount(totalCents);
+    }
+}
@@ -0,0 +1,33 @@
+package com.expensetracker.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// One user's spending partitioned by month. Writers must be serialized per user (both stores
+// already do that); readers get a live, ordered, read-only view without locking, so "this
+// month", trends and ranges cost O(months) instead of a scan of the user's history.
+// Expenses without a date are not part of any month.
+final class MonthlyRollups {
+    private final ConcurrentSkipListMap<YearMonth, MonthlyRollup> months = new ConcurrentSkipListMap<>();
+    private final NavigableMap<YearMonth, MonthlyRollup> view = Collections.unmodifiableNavigableMap(months);
+
+    void record(LocalDate date, String category, long cents) {
+        if (date != null) {
+            YearMonth month = YearMonth.from(date);
+            months.put(month, months.getOrDefault(month, MonthlyRollup.empty(month)).plus(category, cents));
+        }
+    }
+
+    void unrecord(LocalDate date, String category, long cents) {
+        if (date != null) {
+            months.computeIfPresent(YearMonth.from(date), (month, current) -> current.minus(category, cents));
+        }
+    }
+
+    NavigableMap<YearMonth, MonthlyRollup> view() {
+        return view;
+    }
+}
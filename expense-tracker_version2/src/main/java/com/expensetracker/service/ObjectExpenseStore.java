@@ -0,0 +1,212 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Expense store that keeps Expense instances, safe for concurrent request threads.
+// Reads never block: each user's expenses are published as an immutable snapshot that
+// writers replace copy-on-write (one copy per write, wrapped unmodifiable and never touched
+// again once published). Writers lock only their own user's bucket, so
+// mutations for different users don't contend. Per-category totals are maintained alongside
+// the expenses so analytics never has to rescan a user's history.
+public class ObjectExpenseStore implements ExpenseStore {
+    private final ConcurrentHashMap<Long, Expense> expensesById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, UserBucket> expensesByUser = new ConcurrentHashMap<>();
+
+    private static final class UserBucket {
+        // Not a monitor, so a virtual thread waiting on a busy bucket unmounts instead of pinning
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile List<Expense> expenses = List.of();
+        private volatile long totalCents;
+        private final Map<String, CategoryTotal> categoryTotals = new ConcurrentHashMap<>();
+        private final MonthlyRollups monthlyRollups = new MonthlyRollups();
+
+        // Callers hold the bucket lock
+        private void record(Expense expense) {
+            long cents = Money.orZero(expense.getAmountCents());
+            totalCents += cents;
+            if (expense.getCategory() != null) {
+                categoryTotals.merge(expense.getCategory(), new CategoryTotal(cents, 1),
+                        (current, added) -> current.plus(cents));
+            }
+            monthlyRollups.record(expense.getDate(), expense.getCategory(), cents);
+        }
+
+        private void unrecord(Expense expense) {
+            long cents = Money.orZero(expense.getAmountCents());
+            totalCents -= cents;
+            if (expense.getCategory() != null) {
+                categoryTotals.computeIfPresent(expense.getCategory(), (category, current) -> current.minus(cents));
+            }
+            monthlyRollups.unrecord(expense.getDate(), expense.getCategory(), cents);
+        }
+    }
+
+    @Override
+    public void add(Expense expense) {
+        if (expense.getUserId() == null) {
+            expensesById.put(expense.getId(), expense);
+            return;
+        }
+        UserBucket bucket = expensesByUser.computeIfAbsent(expense.getUserId(), id -> new UserBucket());
+        bucket.lock.lock();
+        try {
+            expensesById.put(expense.getId(), expense);
+            List<Expense> updated = new ArrayList<>(bucket.expenses.size() + 1);
+            updated.addAll(bucket.expenses);
+            updated.add(expense);
+            bucket.expenses = Collections.unmodifiableList(updated);
+            bucket.record(expense);
+        } finally {
+            bucket.lock.unlock();
+        }
+    }
+
+    // One bucket copy per user instead of one per expense
+    @Override
+    public void addAll(List<Expense> expenses) {
+        Map<Long, List<Expense>> byUser = new HashMap<>();
+        for (Expense expense : expenses) {
+            if (expense.getUserId() == null) {
+                expensesById.put(expense.getId(), expense);
+            } else {
+                byUser.computeIfAbsent(expense.getUserId(), id -> new ArrayList<>()).add(expense);
+            }
+        }
+        for (Map.Entry<Long, List<Expense>> entry : byUser.entrySet()) {
+            UserBucket bucket = expensesByUser.computeIfAbsent(entry.getKey(), id -> new UserBucket());
+            bucket.lock.lock();
+            try {
+                List<Expense> updated = new ArrayList<>(bucket.expenses.size() + entry.getValue().size());
+                updated.addAll(bucket.expenses);
+                updated.addAll(entry.getValue());
+                bucket.expenses = Collections.unmodifiableList(updated);
+                for (Expense expense : entry.getValue()) {
+                    expensesById.put(expense.getId(), expense);
+                    bucket.record(expense);
+                }
+            } finally {
+                bucket.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Expense remove(Long id) {
+        Expense expense = expensesById.get(id);
+        if (expense == null) {
+            return null;
+        }
+        if (expense.getUserId() == null) {
+            return expensesById.remove(id, expense) ? expense : null;
+        }
+        UserBucket bucket = expensesByUser.get(expense.getUserId());
+        bucket.lock.lock();
+        try {
+            if (!expensesById.remove(id, expense)) {
+                return null;  // lost the race to another delete
+            }
+            List<Expense> updated = new ArrayList<>(bucket.expenses);
+            updated.remove(expense);
+            bucket.expenses = Collections.unmodifiableList(updated);
+            bucket.unrecord(expense);
+        } finally {
+            bucket.lock.unlock();
+        }
+        return expense;
+    }
+
+    // The bucket is unlinked first, so readers holding its snapshot keep a consistent view
+    @Override
+    public int removeUser(Long userId) {
+        UserBucket bucket = expensesByUser.remove(userId);
+        if (bucket == null) {
+            return 0;
+        }
+        bucket.lock.lock();
+        try {
+            for (Expense expense : bucket.expenses) {
+                expensesById.remove(expense.getId(), expense);
+            }
+            return bucket.expenses.size();
+        } finally {
+            bucket.lock.unlock();
+        }
+    }
+
+    @Override
+    public Expense findById(Long id) {
+        return expensesById.get(id);
+    }
+
+    // Immutable snapshot, replaced copy-on-write by writers
+    @Override
+    public List<Expense> findByUserId(Long userId) {
+        UserBucket bucket = expensesByUser.get(userId);
+        return bucket == null ? List.of() : bucket.expenses;
+    }
+
+    @Override
+    public Map<String, CategoryTotal> getCategoryTotals(Long userId) {
+        UserBucket bucket = expensesByUser.get(userId);
+        return bucket == null ? Map.of() : Collections.unmodifiableMap(bucket.categoryTotals);
+    }
+
+    @Override
+    public long getTotalCents(Long userId) {
+        UserBucket bucket = expensesByUser.get(userId);
+        return bucket == null ? 0 : bucket.totalCents;
+    }
+
+    @Override
+    public NavigableMap<YearMonth, MonthlyRollup> getMonthlyRollups(Long userId) {
+        UserBucket bucket = expensesByUser.get(userId);
+        return bucket == null ? Collections.emptyNavigableMap() : bucket.monthlyRollups.view();
+    }
+
+    @Override
+    public int getExpenseCount(Long userId) {
+        return findByUserId(userId).size();
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        List<Expense> all = new ArrayList<>(expensesById.values());
+        all.sort(Comparator.comparing(Expense::getId));
+        return all;
+    }
+
+    @Override
+    public int size() {
+        return expensesById.size();
+    }
+
+    @Override
+    public void forEachExpense(Consumer<Expense> action) {
+        expensesById.values().forEach(action);
+    }
+
+    @Override
+    public void forEachExpense(Long userId, Consumer<Expense> action) {
+        findByUserId(userId).forEach(action);
+    }
+
+    // Scans a snapshot of the references, so writers are never blocked
+    @Override
+    public <T> T withLedgerRows(Function<LedgerRows, T> scan) {
+        return scan.apply(ExpenseStore.rowsOf(List.of(expensesById.values().toArray(new Expense[0]))));
+    }
+}
@@ -0,0 +1,158 @@
+package com.expensetracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Holds the compiled recommendation rules. They come from the rules file when it exists and
+// from the bundled recommendation-rules.json otherwise. A background check every
+// reload-interval-ms recompiles the file when its timestamp or size changes. Evaluations in
+// flight keep the rules they started with. A file that doesn't compile is logged and the
+// previous rules stay in force.
+@Component
+public class RecommendationEngine {
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEngine.class);
+    private static final String BUNDLED_RULES = "/recommendation-rules.json";
+
+    private final Path rulesFile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService reloader;
+    private final Counter reloads;
+    private final Counter failedReloads;
+    private volatile RecommendationRules rules;
+    // Timestamp and size of the file the current rules came from; null for the bundled rules
+    private volatile String loadedStamp;
+    // Counts rule changes, so responses can be tagged with the rules they were built from
+    private final AtomicLong generation = new AtomicLong();
+    // Serializes reloads. Held across the file read and parse, so it is a ReentrantLock rather
+    // than a monitor to keep a virtual thread calling reloadIfChanged from pinning its carrier.
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    public RecommendationEngine(@Value("${analytics.rules.file:recommendation-rules.json}") String rulesFile,
+                                @Value("${analytics.rules.reload-interval-ms:2000}") long reloadIntervalMs,
+                                MeterRegistry meterRegistry) {
+        this.rulesFile = Path.of(rulesFile).toAbsolutePath();
+        this.reloads = Counter.builder("analytics.rules.reloads").tag("outcome", "success")
+                .description("Recommendation rules files compiled after a change")
+                .register(meterRegistry);
+        this.failedReloads = Counter.builder("analytics.rules.reloads").tag("outcome", "failure")
+                .description("Recommendation rules files compiled after a change")
+                .register(meterRegistry);
+        this.rules = loadBundled();
+        reloadIfChanged();
+        Gauge.builder("analytics.rules.count", this, engine -> engine.getRules().size())
+                .description("Recommendation rules in force")
+                .register(meterRegistry);
+        // 0 turns the background check off; reloadIfChanged can still be called directly
+        if (reloadIntervalMs > 0) {
+            this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "recommendation-rules-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.reloader = null;
+        }
+    }
+
+    public RecommendationRules getRules() {
+        return rules;
+    }
+
+    // Bumped once the reload listeners have run, so a tag carrying the new generation is never
+    // paired with results computed from the old rules
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // Called after new rules are in force, e.g. to drop results computed with the old ones
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    // Recompiles the rules file if it changed since it was last read; true if the rules were replaced.
+    // A file that has gone away leaves the last rules in force.
+    public boolean reloadIfChanged() {
+        reloadLock.lock();
+        try {
+            String stamp = stampOf(rulesFile);
+            if (stamp == null || stamp.equals(loadedStamp)) {
+                return false;
+            }
+            try {
+                RecommendationRules compiled = RecommendationRules.compile(
+                        Arrays.asList(objectMapper.readValue(rulesFile.toFile(), RecommendationRule[].class)));
+                rules = compiled;
+                loadedStamp = stamp;
+                reloads.increment();
+                log.info("Loaded {} recommendation rules from {}", compiled.size(), rulesFile);
+            } catch (IOException | IllegalArgumentException e) {
+                // Remember the broken version so it is reported once, not on every check
+                loadedStamp = stamp;
+                failedReloads.increment();
+                log.error("Error loading recommendation rules from {}, keeping the previous rules: {}",
+                        rulesFile, e.getMessage());
+                return false;
+            }
+            for (Runnable listener : reloadListeners) {
+                listener.run();
+            }
+            generation.incrementAndGet();
+            return true;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private RecommendationRules loadBundled() {
+        try (InputStream in = RecommendationEngine.class.getResourceAsStream(BUNDLED_RULES)) {
+            if (in == null) {
+                log.warn("No bundled recommendation rules found, starting without rules");
+                return RecommendationRules.NONE;
+            }
+            return RecommendationRules.compile(Arrays.asList(objectMapper.readValue(in, RecommendationRule[].class)));
+        } catch (IOException e) {
+            log.error("Error loading bundled recommendation rules: {}", e.getMessage());
+            throw new RuntimeException("Failed to load bundled recommendation rules: " + e.getMessage());
+        }
+    }
+
+    private static String stampOf(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.lastModifiedTime() + "/" + attributes.size();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.expensetracker.service;
+
+// One spending recommendation as written in the rules file: when metric <op> threshold holds,
+// message is shown. Messages may use {category} and {share} for CATEGORY_SHARE rules.
+public record RecommendationRule(String id, Metric metric, String category, String op, double threshold,
+                                 String message) {
+
+    public enum Metric {
+        // This month's spending as a percentage of the user's monthly income
+        INCOME_SPENT,
+        // This month's spending as a percentage of the user's monthly expense limit
+        LIMIT_SPENT,
+        // A category's percentage of all the user's spending; every category when category is null
+        CATEGORY_SHARE
+    }
+}
@@ -0,0 +1,216 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A rules file compiled for evaluation. Rules are grouped by what they read: the month's spend
+// against income or limit, one named category, or every category. A user is then evaluated
+// with one pass over their category totals, each category probing only the rules about it.
+// Percent thresholds are compared exactly in cents (part * 100 <op> threshold * whole), and
+// messages are pre-split so a fixed one is returned as is. Immutable once compiled.
+public final class RecommendationRules {
+    public static final RecommendationRules NONE = compile(List.of());
+
+    private final int size;
+    private final Check[] incomeChecks;
+    private final Check[] limitChecks;
+    private final Check[] anyCategoryChecks;
+    private final Map<String, Check[]> categoryChecks;
+
+    private enum Comparison {
+        GT(">"), GE(">="), LT("<"), LE("<=");
+
+        private final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        private boolean test(double value, double threshold) {
+            return switch (this) {
+                case GT -> value > threshold;
+                case GE -> value >= threshold;
+                case LT -> value < threshold;
+                case LE -> value <= threshold;
+            };
+        }
+
+        private static Comparison of(String symbol) {
+            for (Comparison comparison : values()) {
+                if (comparison.symbol.equals(symbol)) {
+                    return comparison;
+                }
+            }
+            return null;
+        }
+    }
+
+    // order is the rule's position in the file, which is the order its messages are shown in
+    private record Check(int order, Comparison comparison, double threshold, Template message) {
+
+        // part as a percentage of whole, against the threshold
+        private boolean test(long part, long whole) {
+            return whole > 0 && comparison.test(part * 100.0, threshold * whole);
+        }
+    }
+
+    private record Hit(int order, String message) {}
+
+    private RecommendationRules(int size, List<Check> incomeChecks, List<Check> limitChecks,
+                                List<Check> anyCategoryChecks, Map<String, List<Check>> categoryChecks) {
+        this.size = size;
+        this.incomeChecks = incomeChecks.toArray(new Check[0]);
+        this.limitChecks = limitChecks.toArray(new Check[0]);
+        this.anyCategoryChecks = anyCategoryChecks.toArray(new Check[0]);
+        Map<String, Check[]> byCategory = new HashMap<>();
+        categoryChecks.forEach((category, checks) -> byCategory.put(category, checks.toArray(new Check[0])));
+        this.categoryChecks = Map.copyOf(byCategory);
+    }
+
+    // Throws IllegalArgumentException naming the first rule that can't be compiled
+    public static RecommendationRules compile(List<RecommendationRule> rules) {
+        List<Check> income = new ArrayList<>();
+        List<Check> limit = new ArrayList<>();
+        List<Check> anyCategory = new ArrayList<>();
+        Map<String, List<Check>> byCategory = new HashMap<>();
+        for (int order = 0; order < rules.size(); order++) {
+            RecommendationRule rule = rules.get(order);
+            String name = rule.id() == null ? "#" + (order + 1) : rule.id();
+            if (rule.metric() == null) {
+                throw new IllegalArgumentException("Rule " + name + " has no metric");
+            }
+            Comparison comparison = Comparison.of(rule.op());
+            if (comparison == null) {
+                throw new IllegalArgumentException("Rule " + name + " has unknown op " + rule.op()
+                        + " (use >, >=, < or <=)");
+            }
+            if (rule.message() == null || rule.message().isBlank()) {
+                throw new IllegalArgumentException("Rule " + name + " has no message");
+            }
+            Template message = Template.parse(rule.message(), rule.metric() == RecommendationRule.Metric.CATEGORY_SHARE,
+                    name);
+            Check check = new Check(order, comparison, rule.threshold(), message);
+            switch (rule.metric()) {
+                case INCOME_SPENT -> income.add(check);
+                case LIMIT_SPENT -> limit.add(check);
+                case CATEGORY_SHARE -> {
+                    if (rule.category() == null) {
+                        anyCategory.add(check);
+                    } else {
+                        byCategory.computeIfAbsent(rule.category(), c -> new ArrayList<>()).add(check);
+                    }
+                }
+            }
+        }
+        return new RecommendationRules(rules.size(), income, limit, anyCategory, byCategory);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Messages of every rule that holds for one user's aggregates, in rules-file order.
+    // Shares are of totalCents; income and limit rules are skipped while those aren't set.
+    public List<String> evaluate(long monthSpentCents, long incomeCents, long limitCents,
+                                 Map<String, CategoryTotal> categories, long totalCents) {
+        List<Hit> hits = new ArrayList<>();
+        for (Check check : incomeChecks) {
+            if (check.test(monthSpentCents, incomeCents)) {
+                hits.add(new Hit(check.order(), check.message().render(null, null)));
+            }
+        }
+        for (Check check : limitChecks) {
+            if (check.test(monthSpentCents, limitCents)) {
+                hits.add(new Hit(check.order(), check.message().render(null, null)));
+            }
+        }
+        if (totalCents > 0 && (anyCategoryChecks.length > 0 || !categoryChecks.isEmpty())) {
+            for (Map.Entry<String, CategoryTotal> category : categories.entrySet()) {
+                long cents = category.getValue().totalCents();
+                // Formatted once for all the rules that fire on this category
+                String share = null;
+                for (Check check : anyCategoryChecks) {
+                    if (check.test(cents, totalCents)) {
+                        share = share == null ? String.valueOf(Money.percent(cents, totalCents)) : share;
+                        hits.add(new Hit(check.order(), check.message().render(category.getKey(), share)));
+                    }
+                }
+                Check[] named = categoryChecks.get(category.getKey());
+                if (named != null) {
+                    for (Check check : named) {
+                        if (check.test(cents, totalCents)) {
+                            share = share == null ? String.valueOf(Money.percent(cents, totalCents)) : share;
+                            hits.add(new Hit(check.order(), check.message().render(category.getKey(), share)));
+                        }
+                    }
+                }
+            }
+        }
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        hits.sort(Comparator.comparingInt(Hit::order));
+        List<String> messages = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            messages.add(hit.message());
+        }
+        return messages;
+    }
+
+    // A message split at its placeholders: literal parts interleaved with CATEGORY or SHARE
+    private record Template(String[] parts, int[] placeholders, String fixed, int length) {
+        private static final int CATEGORY = 0;
+        private static final int SHARE = 1;
+
+        private static Template parse(String message, boolean categoryRule, String rule) {
+            List<String> parts = new ArrayList<>();
+            List<Integer> placeholders = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = message.indexOf('{', start)) >= 0) {
+                int close = message.indexOf('}', open);
+                if (close < 0) {
+                    break;
+                }
+                String name = message.substring(open + 1, close);
+                int placeholder = switch (name) {
+                    case "category" -> CATEGORY;
+                    case "share" -> SHARE;
+                    default -> throw new IllegalArgumentException("Rule " + rule + " uses unknown {" + name + "}");
+                };
+                if (!categoryRule) {
+                    throw new IllegalArgumentException("Rule " + rule + " uses {" + name
+                            + "}, which only CATEGORY_SHARE rules have");
+                }
+                parts.add(message.substring(start, open));
+                placeholders.add(placeholder);
+                start = close + 1;
+            }
+            parts.add(message.substring(start));
+            return new Template(parts.toArray(new String[0]),
+                    placeholders.stream().mapToInt(Integer::intValue).toArray(),
+                    placeholders.isEmpty() ? message : null, message.length());
+        }
+
+        private String render(String category, String share) {
+            if (fixed != null) {
+                return fixed;
+            }
+            StringBuilder text = new StringBuilder(length + 16);
+            for (int i = 0; i < placeholders.length; i++) {
+                text.append(parts[i]);
+                if (placeholders[i] == CATEGORY) {
+                    text.append(category);
+                } else {
+                    text.append(share);
+                }
+            }
+            return text.append(parts[placeholders.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Running amount statistics per user and category (count, mean and sum of squared deviations,
+// Welford's method), so each added expense is judged against the user's history in that
+// category in O(1) and constant memory. Deletes take the expense back out exactly the same way.
+// Flags are kept only for expenses that were flagged. Kept in step with adds and deletes by
+// ExpenseService; at startup the ledger is replayed in id (insertion) order, which recomputes
+// the flags against what came before each expense, less any expenses deleted since.
+public final class SpendingAnomalyDetector {
+    private final AnomalySettings settings;
+    private final ConcurrentHashMap<Long, UserStats> users = new ConcurrentHashMap<>();
+
+    public SpendingAnomalyDetector(AnomalySettings settings) {
+        this.settings = settings;
+    }
+
+    // Adds the expense to its category's statistics; returns its flag if it stood out from the
+    // expenses before it, else null
+    public ExpenseAnomaly add(Expense expense) {
+        if (!settings.isEnabled() || expense.getUserId() == null) {
+            return null;
+        }
+        return users.computeIfAbsent(expense.getUserId(), userId -> new UserStats()).add(expense, settings);
+    }
+
+    // In id order, so a batch is judged the same way as the adds it replaces; returns how many were flagged
+    public int addAll(Collection<Expense> expenses) {
+        if (!settings.isEnabled()) {
+            return 0;
+        }
+        int flagged = 0;
+        for (Map.Entry<Long, List<Expense>> user : byUser(expenses).entrySet()) {
+            flagged += users.computeIfAbsent(user.getKey(), userId -> new UserStats()).addAll(user.getValue(), settings);
+        }
+        return flagged;
+    }
+
+    public void remove(Expense expense) {
+        UserStats stats = expense.getUserId() == null ? null : users.get(expense.getUserId());
+        if (stats != null) {
+            stats.remove(expense);
+        }
+    }
+
+    public void removeUser(Long userId) {
+        users.remove(userId);
+    }
+
+    // Replaces all statistics, replaying users in parallel on the common pool
+    public void rebuild(Collection<Expense> expenses) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Map<Long, UserStats> built = new ConcurrentHashMap<>();
+        byUser(expenses).entrySet().parallelStream().forEach(user -> {
+            UserStats stats = new UserStats();
+            stats.addAll(user.getValue(), settings);
+            built.put(user.getKey(), stats);
+        });
+        users.clear();
+        users.putAll(built);
+    }
+
+    // The user's flagged expenses by id, oldest first
+    public Map<Long, ExpenseAnomaly> anomalies(Long userId) {
+        UserStats stats = users.get(userId);
+        return stats == null ? Map.of() : stats.anomalies();
+    }
+
+    // User and category pairs with statistics
+    public long series() {
+        long series = 0;
+        for (UserStats stats : users.values()) {
+            series += stats.series();
+        }
+        return series;
+    }
+
+    private static Map<Long, List<Expense>> byUser(Collection<Expense> expenses) {
+        Map<Long, List<Expense>> byUser = new HashMap<>();
+        for (Expense expense : expenses) {
+            if (expense.getUserId() != null) {
+                byUser.computeIfAbsent(expense.getUserId(), userId -> new ArrayList<>()).add(expense);
+            }
+        }
+        for (List<Expense> user : byUser.values()) {
+            user.sort(Comparator.comparing(Expense::getId));
+        }
+        return byUser;
+    }
+
+    private static final class UserStats {
+        // Adds and deletes for one user can run concurrently
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, RunningStats> categories = new HashMap<>();
+        private final TreeMap<Long, ExpenseAnomaly> flagged = new TreeMap<>();
+
+        private ExpenseAnomaly add(Expense expense, AnomalySettings settings) {
+            lock.lock();
+            try {
+                return addLocked(expense, settings);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int addAll(List<Expense> expenses, AnomalySettings settings) {
+            lock.lock();
+            try {
+                int flagged = 0;
+                for (Expense expense : expenses) {
+                    if (addLocked(expense, settings) != null) {
+                        flagged++;
+                    }
+                }
+                return flagged;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpenseAnomaly addLocked(Expense expense, AnomalySettings settings) {
+            long cents = Money.orZero(expense.getAmountCents());
+            RunningStats stats = categories.computeIfAbsent(expense.getCategory(), category -> new RunningStats());
+            ExpenseAnomaly anomaly = null;
+            if (stats.count >= settings.getMinSamples() && stats.isOutlier(cents, settings)) {
+                anomaly = new ExpenseAnomaly(expense.getId(), expense.getDescription(), expense.getCategory(),
+                        expense.getDate(), cents, Math.round(stats.mean));
+                flagged.put(expense.getId(), anomaly);
+            }
+            stats.add(cents);
+            return anomaly;
+        }
+
+        private void remove(Expense expense) {
+            lock.lock();
+            try {
+                RunningStats stats = categories.get(expense.getCategory());
+                if (stats != null && stats.remove(Money.orZero(expense.getAmountCents()))) {
+                    categories.remove(expense.getCategory());
+                }
+                flagged.remove(expense.getId());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Map<Long, ExpenseAnomaly> anomalies() {
+            lock.lock();
+            try {
+                return flagged.isEmpty() ? Map.of() : new TreeMap<>(flagged);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int series() {
+            lock.lock();
+            try {
+                return categories.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Welford's running mean and sum of squared deviations, in cents
+    private static final class RunningStats {
+        private long count;
+        private double mean;
+        private double m2;
+
+        private void add(long cents) {
+            count++;
+            double delta = cents - mean;
+            mean += delta / count;
+            m2 += delta * (cents - mean);
+        }
+
+        // The inverse of add; true once nothing is left
+        private boolean remove(long cents) {
+            if (count <= 1) {
+                count = 0;
+                mean = 0;
+                m2 = 0;
+                return true;
+            }
+            double previousMean = (count * mean - cents) / (count - 1);
+            m2 = Math.max(0, m2 - (cents - previousMean) * (cents - mean));
+            mean = previousMean;
+            count--;
+            return false;
+        }
+
+        // A category where every amount so far was the same has no spread, so any amount over the
+        // ratio stands out
+        private boolean isOutlier(long cents, AnomalySettings settings) {
+            if (mean <= 0 || cents < settings.getMinRatio() * mean) {
+                return false;
+            }
+            double standardDeviation = Math.sqrt(m2 / (count - 1));
+            return standardDeviation == 0 || (cents - mean) >= settings.getMinZScore() * standardDeviation;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory user directory indexed by id, username and email.
+// Lookups are lock-free; UserService serializes registrations so the
+// uniqueness check and the insert happen atomically.
+public class UserDirectory {
+    private final ConcurrentHashMap<Long, User> usersById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, User> usersByEmail = new ConcurrentHashMap<>();
+    // Highest id ever added. Only a registration whose write failed is removed, and its id
+    // is not handed out again
+    private final AtomicLong maxId = new AtomicLong();
+
+    public void add(User user) {
+        usersById.put(user.getId(), user);
+        maxId.accumulateAndGet(user.getId(), Math::max);
+        if (user.getUsername() != null) {
+            usersByUsername.put(user.getUsername(), user);
+        }
+        if (user.getEmail() != null) {
+            usersByEmail.put(user.getEmail(), user);
+        }
+    }
+
+    // Takes back a user whose registration could not be written
+    public void remove(User user) {
+        usersById.remove(user.getId(), user);
+        if (user.getUsername() != null) {
+            usersByUsername.remove(user.getUsername(), user);
+        }
+        if (user.getEmail() != null) {
+            usersByEmail.remove(user.getEmail(), user);
+        }
+    }
+
+    public User findById(Long id) {
+        return id == null ? null : usersById.get(id);
+    }
+
+    public User findByUsername(String username) {
+        return username == null ? null : usersByUsername.get(username);
+    }
+
+    public User findByEmail(String email) {
+        return email == null ? null : usersByEmail.get(email);
+    }
+
+    public long maxId() {
+        return maxId.get();
+    }
+
+    // Point-in-time copy of every user ordered by id
+    public List<User> findAll() {
+        List<User> all = new ArrayList<>(usersById.values());
+        all.sort(Comparator.comparing(User::getId));
+        return all;
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+}
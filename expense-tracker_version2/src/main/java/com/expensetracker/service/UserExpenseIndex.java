@@ -0,0 +1,234 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Sorted views of one user's expenses, used to answer paged queries.
+// Built from the store on the first query after the user's data changes (tagged with the
+// data version it was built from) and then shared by every query until the next change.
+// Each sort order is an array sorted by (key, id), so range filters on the sort key and
+// keyset cursors are binary searches; only filters on other fields need a scan.
+final class UserExpenseIndex {
+    private static final Comparator<String> CATEGORIES = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<LocalDate> DATES = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<Expense> BY_ID = Comparator.comparing(Expense::getId);
+    private static final Comparator<Expense> BY_DATE =
+            Comparator.comparing(Expense::getDate, DATES).thenComparing(BY_ID);
+    // A missing amount sorts as zero, which is also what the amount filters take it for
+    private static final Comparator<Expense> BY_AMOUNT =
+            Comparator.comparingLong((Expense e) -> Money.orZero(e.getAmountCents())).thenComparing(BY_ID);
+    private static final Comparator<Expense> BY_CATEGORY =
+            Comparator.comparing(Expense::getCategory, CATEGORIES).thenComparing(BY_ID);
+
+    private final long version;
+    private final Expense[] byId;
+    // Secondary orders are sorted on first use
+    private volatile Expense[] byDate;
+    private volatile Expense[] byAmount;
+    private volatile Expense[] byCategory;
+
+    UserExpenseIndex(long version, List<Expense> expenses) {
+        this.version = version;
+        this.byId = expenses.toArray(new Expense[0]);
+        Arrays.sort(byId, BY_ID);  // already id order in practice, so this is a linear pass
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int size() {
+        return byId.length;
+    }
+
+    ExpensePage query(ExpenseQuery query) {
+        Expense[] sorted = sorted(query.sort());
+        Comparator<Expense> order = comparator(query.sort());
+
+        // Narrow to the slice matching the filter on the sort key, if there is one
+        int lo = 0;
+        int hi = sorted.length;
+        if (query.sort() == ExpenseQuery.Sort.AMOUNT) {
+            // Missing amounts sit among the zeros, so the slice matches what matches() would
+            if (query.minAmount() != null) {
+                long min = Money.toCents(query.minAmount());
+                lo = lowerBound(sorted, lo, hi, e -> Money.orZero(e.getAmountCents()) < min);
+            }
+            if (query.maxAmount() != null) {
+                long max = Money.toCents(query.maxAmount());
+                hi = lowerBound(sorted, lo, hi, e -> Money.orZero(e.getAmountCents()) <= max);
+            }
+        } else if (query.sort() == ExpenseQuery.Sort.CATEGORY && query.category() != null) {
+            lo = lowerBound(sorted, lo, hi, e -> CATEGORIES.compare(e.getCategory(), query.category()) < 0);
+            hi = lowerBound(sorted, lo, hi, e -> CATEGORIES.compare(e.getCategory(), query.category()) <= 0);
+        }
+
+        // Whatever the slice doesn't cover is checked row by row
+        boolean residual = (query.category() != null && query.sort() != ExpenseQuery.Sort.CATEGORY)
+                || ((query.minAmount() != null || query.maxAmount() != null)
+                    && query.sort() != ExpenseQuery.Sort.AMOUNT);
+        Predicate<Expense> matches = residual ? e -> matches(e, query) : e -> true;
+
+        int totalMatches = residual ? count(sorted, lo, hi, matches) : hi - lo;
+        boolean ascending = query.direction() == ExpenseQuery.Direction.ASC;
+        int step = ascending ? 1 : -1;
+
+        int position;
+        Expense after = decodeCursor(query.cursor(), query.sort());
+        if (after != null) {
+            // Keyset: jump straight past the last row of the previous page
+            int firstAfter = lowerBound(sorted, lo, hi, e -> order.compare(e, after) <= 0);
+            position = ascending ? firstAfter : lowerBound(sorted, lo, hi, e -> order.compare(e, after) < 0) - 1;
+        } else {
+            position = ascending ? lo : hi - 1;
+            long skip = (long) query.page() * query.size();
+            if (!residual) {
+                position += (int) Math.min(skip, hi - lo) * step;
+            } else {
+                for (; skip > 0 && position >= lo && position < hi; position += step) {
+                    if (matches.test(sorted[position])) {
+                        skip--;
+                    }
+                }
+            }
+        }
+
+        List<Expense> items = new ArrayList<>(query.size());
+        for (; position >= lo && position < hi && items.size() < query.size(); position += step) {
+            if (matches.test(sorted[position])) {
+                items.add(sorted[position]);
+            }
+        }
+        boolean hasNext = false;
+        for (; position >= lo && position < hi; position += step) {
+            if (matches.test(sorted[position])) {
+                hasNext = true;
+                break;
+            }
+        }
+        String nextCursor = hasNext ? encodeCursor(items.get(items.size() - 1), query.sort()) : null;
+        return new ExpensePage(items, query.page(), query.size(), totalMatches, hasNext, nextCursor);
+    }
+
+    private Expense[] sorted(ExpenseQuery.Sort sort) {
+        switch (sort) {
+            case DATE -> {
+                Expense[] sorted = byDate;
+                if (sorted == null) {
+                    sorted = byId.clone();
+                    Arrays.sort(sorted, BY_DATE);
+                    byDate = sorted;
+                }
+                return sorted;
+            }
+            case AMOUNT -> {
+                Expense[] sorted = byAmount;
+                if (sorted == null) {
+                    sorted = byId.clone();
+                    Arrays.sort(sorted, BY_AMOUNT);
+                    byAmount = sorted;
+                }
+                return sorted;
+            }
+            case CATEGORY -> {
+                Expense[] sorted = byCategory;
+                if (sorted == null) {
+                    sorted = byId.clone();
+                    Arrays.sort(sorted, BY_CATEGORY);
+                    byCategory = sorted;
+                }
+                return sorted;
+            }
+            default -> {
+                return byId;
+            }
+        }
+    }
+
+    private static Comparator<Expense> comparator(ExpenseQuery.Sort sort) {
+        return switch (sort) {
+            case DATE -> BY_DATE;
+            case AMOUNT -> BY_AMOUNT;
+            case CATEGORY -> BY_CATEGORY;
+            case ID -> BY_ID;
+        };
+    }
+
+    private static boolean matches(Expense expense, ExpenseQuery query) {
+        if (query.category() != null && !query.category().equals(expense.getCategory())) {
+            return false;
+        }
+        long cents = Money.orZero(expense.getAmountCents());
+        return (query.minAmount() == null || cents >= Money.toCents(query.minAmount()))
+                && (query.maxAmount() == null || cents <= Money.toCents(query.maxAmount()));
+    }
+
+    private static int count(Expense[] sorted, int lo, int hi, Predicate<Expense> matches) {
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            if (matches.test(sorted[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // First index in [lo, hi) whose row is not "before"; rows are sorted so "before" is a prefix
+    private static int lowerBound(Expense[] sorted, int lo, int hi, Predicate<Expense> before) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (before.test(sorted[mid])) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Cursor = base64url("<sort key>|<id>"), opaque to the page
+    private static String encodeCursor(Expense last, ExpenseQuery.Sort sort) {
+        String key = switch (sort) {
+            case DATE -> last.getDate() == null ? "" : last.getDate().toString();
+            case AMOUNT -> last.getAmount() == null ? "" : String.valueOf(last.getAmount());
+            case CATEGORY -> last.getCategory() == null ? "" : last.getCategory();
+            case ID -> "";
+        };
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Rebuilds the last row of the previous page as a probe for the comparator; null if unusable
+    private static Expense decodeCursor(String cursor, ExpenseQuery.Sort sort) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            String key = decoded.substring(0, separator);
+            Expense probe = new Expense();
+            probe.setId(Long.parseLong(decoded.substring(separator + 1)));
+            if (sort == ExpenseQuery.Sort.DATE) {
+                probe.setDate(key.isEmpty() ? null : LocalDate.parse(key));
+            } else if (sort == ExpenseQuery.Sort.AMOUNT) {
+                probe.setAmount(key.isEmpty() ? null : Double.valueOf(key));
+            } else if (sort == ExpenseQuery.Sort.CATEGORY) {
+                probe.setCategory(key.isEmpty() ? null : key);
+            }
+            return probe;
+        } catch (RuntimeException e) {
+            // A stale or hand-edited cursor just falls back to offset paging
+            return null;
+        }
+    }
+}
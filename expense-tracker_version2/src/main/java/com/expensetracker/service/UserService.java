@@ -1,62 +1,186 @@
 package com.expensetracker.service;
 
 import com.expensetracker.model.User;
-import com.expensetracker.repository.UserRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.GroupCommitWriter;
+import com.expensetracker.repository.UserStorage;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Service
 public class UserService {
-    private final UserRepository userRepository;
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
+    private final UserStorage userStorage;
+    private final UserDirectory userDirectory = new UserDirectory();
+    private final GroupCommitSettings groupCommitSettings;
+    // Null when group commit is disabled and users are written on the request thread
+    private final GroupCommitWriter<User> groupCommitWriter;
+    // Serializes registrations; held across the storage write when group commit is off,
+    // so it is a ReentrantLock to keep virtual request threads from pinning while they wait
+    private final ReentrantLock registrationLock = new ReentrantLock();
+
+    private final Timer saveTimer;
+    private final Counter registrations;
+    private final Counter rejectedRegistrations;
+    private final Counter logins;
+    private final Counter failedLogins;
     
-    public UserService(UserRepository userRepository) {
-        this.userRepository = userRepository;
-        System.out.println("✅ UserService initialized");
+    public UserService(UserStorage userStorage, GroupCommitSettings groupCommitSettings,
+                       MeterRegistry meterRegistry) {
+        this.userStorage = userStorage;
+        this.groupCommitSettings = groupCommitSettings;
+        this.saveTimer = persistenceTimer(meterRegistry, "save");
+        this.registrations = outcomeCounter(meterRegistry, "users.registrations", "success");
+        this.rejectedRegistrations = outcomeCounter(meterRegistry, "users.registrations", "rejected");
+        this.logins = outcomeCounter(meterRegistry, "users.logins", "success");
+        this.failedLogins = outcomeCounter(meterRegistry, "users.logins", "failure");
+        // Every queued registration is covered by one write (for users.json, a single rewrite of
+        // the current directory)
+        this.groupCommitWriter = groupCommitSettings.isEnabled()
+                ? new GroupCommitWriter<>("users", groupCommitSettings.getWindowMs(),
+                        groupCommitSettings.isVirtualThreads(),
+                        this::writeBatch)
+                : null;
+        // Load users once; every later read is served from the in-memory directory
+        List<User> loaded = persistenceTimer(meterRegistry, "load").record(userStorage::loadUsers);
+        for (User user : loaded) {
+            userDirectory.add(user);
+        }
+        Gauge.builder("users.count", userDirectory, UserDirectory::size)
+                .description("Registered users")
+                .register(meterRegistry);
+        if (groupCommitWriter != null) {
+            Gauge.builder("users.group.commit.queue", groupCommitWriter, GroupCommitWriter::getQueueDepth)
+                    .description("Registrations waiting for the group-commit writer")
+                    .register(meterRegistry);
+        }
+        log.info("UserService initialized with {} users", userDirectory.size());
     }
     
     public boolean registerUser(User user) {
         try {
-            List<User> users = userRepository.loadUsers();
-            
-            // Check if user exists
-            for (User u : users) {
-                if (u.getUsername().equals(user.getUsername()) || u.getEmail().equals(user.getEmail())) {
+            CompletableFuture<Void> written;
+            registrationLock.lock();
+            try {
+                // Check if user exists
+                if (userDirectory.findByUsername(user.getUsername()) != null
+                        || userDirectory.findByEmail(user.getEmail()) != null) {
+                    rejectedRegistrations.increment();
                     return false;
                 }
+                
+                // Generate ID
+                Long newId = userDirectory.maxId() + 1;
+                user.setId(newId);
+                
+                if (groupCommitWriter == null) {
+                    // Write through to storage before the user becomes visible
+                    addUsers(List.of(user), () -> {
+                        List<User> users = userDirectory.findAll();
+                        users.add(user);
+                        return users;
+                    });
+                    userDirectory.add(user);
+                    registrations.increment();
+                    return true;
+                }
+                
+                userDirectory.add(user);
+                written = groupCommitWriter.submit(user);
+            } finally {
+                registrationLock.unlock();
             }
             
-            // Generate ID
-            Long newId = users.isEmpty() ? 1L : users.get(users.size() - 1).getId() + 1;
-            user.setId(newId);
-            
-            users.add(user);
-            userRepository.saveUsers(users);
+            // Wait outside the lock so concurrent registrations can share a batch. If the batch
+            // fails, writeBatch has already taken the user back out.
+            if (groupCommitSettings.getAcknowledgement() == GroupCommitSettings.Acknowledgement.DURABLE) {
+                written.join();
+            }
+            registrations.increment();
             return true;
             
         } catch (Exception e) {
-            System.out.println("❌ Error registering user: " + e.getMessage());
+            log.error("Error registering user: {}", e.getMessage());
             return false;
         }
     }
     
     public User loginUser(String username, String password) {
         try {
-            List<User> users = userRepository.loadUsers();
-            for (User user : users) {
-                if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                    return user;
-                }
+            User user = userDirectory.findByUsername(username);
+            if (user != null && user.getPassword() != null && user.getPassword().equals(password)) {
+                logins.increment();
+                return user;
             }
+            failedLogins.increment();
             return null;
         } catch (Exception e) {
-            System.out.println("❌ Error logging in: " + e.getMessage());
+            log.error("Error logging in: {}", e.getMessage());
             return null;
         }
     }
     
+    // Runs on the group-commit writer. Under DURABLE a failed batch is reported to its callers as
+    // failed registrations, so it leaves the directory here, before the next batch's rewrite of
+    // users.json can copy it. Under IMMEDIATE the users were already told they are registered;
+    // they stay, and the next batch writes them.
+    private void writeBatch(List<User> batch) {
+        try {
+            addUsers(batch, userDirectory::findAll);
+        } catch (RuntimeException e) {
+            if (groupCommitSettings.getAcknowledgement() == GroupCommitSettings.Acknowledgement.DURABLE) {
+                registrationLock.lock();
+                try {
+                    batch.forEach(userDirectory::remove);
+                } finally {
+                    registrationLock.unlock();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void addUsers(List<User> added, Supplier<List<User>> directory) {
+        saveTimer.record(() -> userStorage.addUsers(added, directory));
+    }
+
+    private static Timer persistenceTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("users.persistence")
+                .description("Time spent in user storage I/O")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder(name).tag("outcome", outcome).register(meterRegistry);
+    }
+    
     public List<User> getAllUsers() {
-        return userRepository.loadUsers();
+        return userDirectory.findAll();
+    }
+    
+    // Queue depth and batch sizes of the write-behind stage, or null when it is disabled
+    public GroupCommitWriter.Stats getGroupCommitStats() {
+        return groupCommitWriter == null ? null : groupCommitWriter.getStats();
+    }
+    
+    @PreDestroy
+    public void flushPendingWrites() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.close();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.service.AdminAnalyticsService;
+import com.expensetracker.service.AdminReport;
+import com.expensetracker.service.AnalyticsCache;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import com.expensetracker.service.RecommendationEngine;
+import com.expensetracker.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Admin endpoints answer only to admin.usernames, and take request parameters within bounds
+class AdminControllerTests {
+
+    @TempDir
+    Path tempDir;
+
+    private AdminAnalyticsService adminAnalyticsService;
+    private RecommendationEngine recommendationEngine;
+    private AdminController controller;
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 1);
+        ExpenseService expenseService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT,
+                GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+        UserService userService = new UserService(new UserRepository(tempDir.resolve("users.json").toString()),
+                GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+        adminAnalyticsService = new AdminAnalyticsService(expenseService, userService, 2, new SimpleMeterRegistry());
+        recommendationEngine = new RecommendationEngine(tempDir.resolve("rules.json").toString(), 0,
+                new SimpleMeterRegistry());
+        controller = new AdminController(userService, expenseService, null,
+                new AnalyticsCache(expenseService, recommendationEngine, 100, 300), adminAnalyticsService, null, "root");
+
+        // Users 1-3 get the sample expenses; these are three more spenders this month
+        for (long userId = 90; userId < 93; userId++) {
+            Expense expense = new Expense("Lunch", 10.0 + userId, "Food");
+            expense.setDate(LocalDate.now());
+            expenseService.addExpense(expense, userId);
+        }
+        session = new MockHttpSession();
+        session.setAttribute("user", user("root"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        adminAnalyticsService.shutdown();
+        recommendationEngine.close();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+
+    // Stream.limit rejects a negative size, and a huge one would list every user
+    @Test
+    void topIsClampedInsteadOfFailing() {
+        ResponseEntity<AdminReport> negative = controller.showAdminAnalytics(YearMonth.now(), -5, session);
+        assertThat(negative.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(negative.getBody().topSpenders()).isEmpty();
+
+        ResponseEntity<AdminReport> huge = controller.showAdminAnalytics(YearMonth.now(), Integer.MAX_VALUE, session);
+        assertThat(huge.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(huge.getBody().topSpenders()).extracting(AdminReport.UserSpend::userId).contains(90L, 91L, 92L);
+
+        assertThat(controller.showAdminAnalytics(YearMonth.now(), 2, session).getBody().topSpenders()).hasSize(2);
+    }
+
+    @Test
+    void analyticsAreForAdminsOnly() {
+        session.setAttribute("user", user("alice"));
+        assertThat(controller.showAdminAnalytics(null, 10, session).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void persistenceStatsAreForAdminsOnly() {
+        assertThat(controller.showPersistenceStats(session).getBody()).containsKeys("expenses", "users");
+
+        session.setAttribute("user", user("alice"));
+        assertThat(controller.showPersistenceStats(session).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        session.removeAttribute("user");
+        assertThat(controller.showPersistenceStats(session).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void analyticsCacheStatsAreForAdminsOnly() {
+        assertThat(controller.showAnalyticsCacheStats(session).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        session.setAttribute("user", user("alice"));
+        assertThat(controller.showAnalyticsCacheStats(session).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        session.removeAttribute("user");
+        assertThat(controller.showAnalyticsCacheStats(session).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+}
@@ -0,0 +1,131 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.AnalyticsCache;
+import com.expensetracker.service.AnalyticsService;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import com.expensetracker.service.RecommendationEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Conditional GETs on the analytics API: 304 while the data, the day and the rules are unchanged
+class AnalyticsApiControllerTests {
+
+    // Users 1-3 get the sample expenses
+    private static final long USER = 80L;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseService expenseService;
+    private RecommendationEngine recommendationEngine;
+    private AnalyticsApiController controller;
+    private MockHttpSession session;
+    private MockHttpServletResponse lastResponse;
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 1);
+        expenseService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        recommendationEngine = new RecommendationEngine(tempDir.resolve("rules.json").toString(), 0, meterRegistry);
+        AnalyticsService analyticsService = new AnalyticsService(expenseService,
+                new AnalyticsCache(expenseService, recommendationEngine, 100, 300), recommendationEngine, meterRegistry);
+        controller = new AnalyticsApiController(analyticsService, expenseService, recommendationEngine);
+
+        User user = new User();
+        user.setId(USER);
+        user.setUsername("user" + USER);
+        user.setMonthlyIncome(1000.0);
+        user.setMonthlyExpenseLimit(500.0);
+        session = new MockHttpSession();
+        session.setAttribute("user", user);
+        addExpense("Lunch", 12.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recommendationEngine.close();
+    }
+
+    private void addExpense(String description, double amount) {
+        Expense expense = new Expense(description, amount, "Food");
+        expense.setDate(LocalDate.now());
+        expenseService.addExpense(expense, USER);
+    }
+
+    private ResponseEntity<Object> get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/analytics/categories");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        lastResponse = new MockHttpServletResponse();
+        return controller.getCategorySpending(session, new ServletWebRequest(request, lastResponse));
+    }
+
+    @Test
+    void anUnchangedTagIsNotModified() {
+        ResponseEntity<Object> first = get(null);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String etag = first.getHeaders().getETag();
+        // Names the day, since the figures move on with it
+        assertThat(etag).contains(LocalDate.now().toString());
+
+        assertThat(get(etag)).isNull();
+        assertThat(lastResponse.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(get(etag)).isNull();
+    }
+
+    @Test
+    void aDataChangeChangesTheTag() {
+        String etag = get(null).getHeaders().getETag();
+
+        addExpense("Dinner", 30.0);
+        ResponseEntity<Object> changed = get(etag);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+    }
+
+    // New rules change the recommendations without any change to the user's expenses
+    @Test
+    void aRulesReloadChangesTheTag() throws Exception {
+        String etag = get(null).getHeaders().getETag();
+
+        Files.writeString(tempDir.resolve("rules.json"), """
+                [{"id": "any", "metric": "LIMIT_SPENT", "op": ">=", "threshold": 0, "message": "Noted"}]
+                """);
+        assertThat(recommendationEngine.reloadIfChanged()).isTrue();
+        ResponseEntity<Object> reloaded = get(etag);
+        assertThat(reloaded.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(reloaded.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(get(reloaded.getHeaders().getETag())).isNull();
+    }
+
+    @Test
+    void signedOutIsUnauthorized() {
+        session.removeAttribute("user");
+        assertThat(get(null).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+}
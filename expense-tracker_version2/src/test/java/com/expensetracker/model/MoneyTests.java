@@ -0,0 +1,104 @@
+package com.expensetracker.model;
+
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Amounts as long cents: conversion, validation and rounding, and exact totals through ExpenseService
+class MoneyTests {
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseRepository newRepository() {
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 200, 1);
+    }
+
+    @Test
+    void amountsConvertToTheNearestCent() {
+        assertThat(Money.toCents(19.99)).isEqualTo(1999);
+        assertThat(Money.toCents(0.1 + 0.2)).isEqualTo(30);
+        assertThat(Money.toCents(0.005)).isEqualTo(1);
+        assertThat(Money.toCents(-2.5)).isEqualTo(-250);
+        assertThat(Money.toAmount(1999)).isEqualTo(19.99);
+        assertThat(Money.orZero(Money.NONE)).isZero();
+        assertThat(Money.orZero(42)).isEqualTo(42);
+    }
+
+    @Test
+    void onlyFiniteAmountsUpToTheCapAreValid() {
+        assertThat(Money.isValidAmount(0)).isTrue();
+        assertThat(Money.isValidAmount(1e9)).isTrue();
+        assertThat(Money.isValidAmount(-1e9)).isTrue();
+        assertThat(Money.isValidAmount(1e9 + 0.01)).isFalse();
+        assertThat(Money.isValidAmount(Double.NaN)).isFalse();
+        assertThat(Money.isValidAmount(Double.POSITIVE_INFINITY)).isFalse();
+        assertThat(Money.isValidAmount(Double.NEGATIVE_INFINITY)).isFalse();
+    }
+
+    @Test
+    void percentagesAndSharesRoundHalfUp() {
+        assertThat(Money.percent(1, 3)).isEqualTo(33.33);
+        assertThat(Money.percent(2, 3)).isEqualTo(66.67);
+        assertThat(Money.percent(1, 8)).isEqualTo(12.5);
+        assertThat(Money.percent(5, 5)).isEqualTo(100.0);
+        assertThat(Money.percent(5, 0)).isZero();
+        assertThat(Money.divide(5, 2)).isEqualTo(3);
+        assertThat(Money.divide(4, 3)).isEqualTo(1);
+        assertThat(Money.divide(-5, 2)).isEqualTo(-2);
+        assertThat(Money.divide(1000, 30)).isEqualTo(33);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void centTotalsStayExactAndTheFilesKeepDecimalAmounts(ExpenseStore.Engine engine) throws Exception {
+        ExpenseService expenseService = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        // 0.1 and 0.2 have no exact double; summed as doubles, 3000 of them drift off 450.00
+        for (int i = 0; i < 3000; i++) {
+            Expense expense = new Expense("Item " + i, i % 2 == 0 ? 0.1 : 0.2, i % 3 == 0 ? "Food" : "Travel");
+            expense.setDate(LocalDate.of(2024, 5, 1 + i % 28));
+            expenseService.addExpense(expense, 9L);
+        }
+        Expense removed = expenseService.getExpensesByUserId(9L).get(0);
+        expenseService.deleteExpense(removed.getId());
+
+        assertThat(expenseService.getTotalSpentCents(9L)).isEqualTo(44_990);
+        assertThat(expenseService.getTotalSpent(9L)).isEqualTo(449.9);
+        assertThat(expenseService.getCategoryTotals(9L).get("Food").totalCents()
+                + expenseService.getCategoryTotals(9L).get("Travel").totalCents()).isEqualTo(44_990);
+        assertThat(expenseService.getMonthlyRollup(9L, YearMonth.of(2024, 5)).total()).isEqualTo(449.9);
+
+        // Invalid below half a cent, as before for zero
+        assertThat(expenseService.validateExpense(new Expense("Dust", 0.004, "Food"))).isNotNull();
+        assertThat(expenseService.validateExpense(new Expense("Gum", 0.01, "Food"))).isNull();
+        // Amounts that would saturate or overflow the cent totals are refused
+        for (double amount : new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 1e18}) {
+            assertThat(Money.isValidAmount(amount)).isFalse();
+            assertThat(expenseService.validateExpense(new Expense("Yacht", amount, "Travel"))).isNotNull();
+        }
+        assertThat(expenseService.validateExpense(new Expense("House", 1e9, "Housing"))).isNull();
+        assertThat(expenseService.validateExpense(new Expense("Island", 1e9 + 0.01, "Housing"))).isNotNull();
+
+        expenseService.compactOnShutdown();
+        String json = Files.readString(tempDir.resolve("expenses.json"));
+        assertThat(json).contains("\"amount\":0.2").doesNotContain("amountCents");
+        ExpenseService restarted = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        assertThat(restarted.getTotalSpentCents(9L)).isEqualTo(44_990);
+    }
+}
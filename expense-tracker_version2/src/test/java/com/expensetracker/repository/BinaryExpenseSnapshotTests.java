@@ -0,0 +1,147 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The columnar .bin snapshot reads back exactly what was written, nulls included
+class BinaryExpenseSnapshotTests {
+
+    @TempDir
+    Path tempDir;
+
+    private static Expense expense(long id, Long userId, String description, long cents, String category,
+                                   LocalDate date) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setUserId(userId);
+        expense.setDescription(description);
+        expense.setAmountCents(cents);
+        expense.setCategory(category);
+        expense.setDate(date);
+        return expense;
+    }
+
+    private List<Expense> roundTrip(List<Expense> expenses) throws IOException {
+        File file = tempDir.resolve("expenses.bin").toFile();
+        BinaryExpenseSnapshot.write(file, expenses);
+        return BinaryExpenseSnapshot.read(file);
+    }
+
+    @Test
+    void rowsRoundTripWithNullsAndUnicode() throws IOException {
+        List<Expense> ledger = List.of(
+                expense(1, 7L, "Rent", 90_000, "Housing", LocalDate.of(2024, 1, 1)),
+                expense(2, null, null, Money.NONE, null, null),
+                expense(3, 7L, "Café crème ☕", 450, "Café & Bäckerei", LocalDate.of(1969, 12, 31)),
+                expense(4, Long.MAX_VALUE, "", Money.MAX_CENTS, "食費", LocalDate.of(2024, 2, 29)),
+                expense(5, 8L, "Refund", -1_999, "Housing", LocalDate.of(2024, 3, 15)));
+
+        assertThat(roundTrip(ledger)).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(ledger);
+    }
+
+    // Each category is stored once and shared by every row that has it
+    @Test
+    void categoriesAreSharedThroughTheDictionary() throws IOException {
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            ledger.add(expense(id, id % 3, "Item " + id, id * 100, id % 2 == 0 ? "Food" : "Travel",
+                    LocalDate.of(2024, 1, 1).plusDays(id)));
+        }
+
+        List<Expense> loaded = roundTrip(ledger);
+        assertThat(loaded).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(ledger);
+        assertThat(loaded.get(3).getCategory()).isSameAs(loaded.get(1).getCategory());
+        assertThat(loaded.get(2).getCategory()).isSameAs(loaded.get(0).getCategory());
+        String bytes = Files.readString(tempDir.resolve("expenses.bin"), StandardCharsets.ISO_8859_1);
+        assertThat(bytes.split("Food", -1)).hasSize(2);
+        assertThat(bytes.split("Travel", -1)).hasSize(2);
+    }
+
+    @Test
+    void emptyLedgerRoundTrips() throws IOException {
+        assertThat(roundTrip(List.of())).isEmpty();
+    }
+
+    @Test
+    void convertsAJsonSnapshot() throws IOException {
+        List<Expense> ledger = List.of(
+                expense(1, 1L, "Coffee", 350, "Food", LocalDate.of(2024, 5, 1)),
+                expense(2, 2L, "Bus", 275, "Travel", null));
+        File json = tempDir.resolve("expenses.json").toFile();
+        new ObjectMapper().findAndRegisterModules().writeValue(json, ledger);
+        File binary = tempDir.resolve("expenses.bin").toFile();
+
+        assertThat(BinaryExpenseSnapshot.convertJson(json, binary)).isEqualTo(2);
+        assertThat(BinaryExpenseSnapshot.read(binary)).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(ledger);
+    }
+
+    // Cents are stored as longs, so no amount passes through a double on the way
+    @Test
+    void amountsRoundTripAsExactCents() throws IOException {
+        List<Expense> ledger = List.of(
+                expense(1, 1L, "Beyond a double's integers", (1L << 53) + 1, "Food", null),
+                expense(2, 1L, "A cent", 1, "Food", null));
+
+        assertThat(roundTrip(ledger)).extracting(Expense::getAmountCents).containsExactly((1L << 53) + 1, 1L);
+    }
+
+    // Version 2 snapshots held double amounts with NaN for none; they still load, as cents
+    @Test
+    void readsVersionTwoDoubleAmounts() throws IOException {
+        File file = tempDir.resolve("expenses.bin").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x45585042);
+            out.writeInt(2);
+            out.writeInt(2);
+            out.writeLong(1);
+            out.writeLong(2);
+            out.writeLong(5);
+            out.writeLong(Long.MIN_VALUE);
+            out.writeDouble(19.99);
+            out.writeDouble(Double.NaN);
+            out.writeInt((int) LocalDate.of(2024, 6, 1).toEpochDay());
+            out.writeInt(Integer.MIN_VALUE);
+            out.writeInt(1);
+            out.writeInt(4);
+            out.write("Food".getBytes(StandardCharsets.UTF_8));
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(3);
+            out.writeInt(-1);
+            out.writeInt(3);
+            out.write("Tea".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(BinaryExpenseSnapshot.read(file)).usingRecursiveFieldByFieldElementComparator().containsExactly(
+                expense(1, 5L, "Tea", 1999, "Food", LocalDate.of(2024, 6, 1)),
+                expense(2, null, null, Money.NONE, "Food", null));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path file = tempDir.resolve("expenses.bin");
+        Files.writeString(file, "[{\"id\": 1}]");
+
+        assertThatThrownBy(() -> BinaryExpenseSnapshot.read(file.toFile()))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Not a binary expense snapshot");
+    }
+}
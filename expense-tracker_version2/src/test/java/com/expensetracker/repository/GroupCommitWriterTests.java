@@ -0,0 +1,55 @@
+package com.expensetracker.repository;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Every submission racing close() is either written or refused; none is left queued with a
+// future that never completes
+class GroupCommitWriterTests {
+
+    private static final int THREADS = 8;
+
+    @RepeatedTest(20)
+    void submissionsRacingCloseAreWrittenOrRefused() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        GroupCommitWriter<Integer> writer = new GroupCommitWriter<>("test", 0,
+                batch -> written.addAndGet(batch.size()));
+        ConcurrentLinkedQueue<CompletableFuture<Void>> accepted = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 10_000; i++) {
+                        accepted.add(writer.submit(i));
+                    }
+                } catch (IllegalStateException e) {
+                    // Stopped: this submitter is done
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        start.countDown();
+        Thread.sleep(1);
+        writer.close();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        CompletableFuture.allOf(accepted.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        assertThat(written.get()).isEqualTo(accepted.size());
+        assertThat(writer.getQueueDepth()).isZero();
+        assertThat(writer.flush()).isCompleted();
+    }
+}
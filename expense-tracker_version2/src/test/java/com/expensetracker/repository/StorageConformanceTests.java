@@ -0,0 +1,356 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The contract ExpenseService and UserService rely on, run against every storage backend
+class StorageConformanceTests {
+
+    // FILE_UNJOURNALED applies each mutation by rewriting the shards it touches; FILE_BINARY
+    // keeps columnar .bin snapshots under the journal
+    enum Backend { FILE, FILE_BINARY, FILE_UNJOURNALED, H2 }
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Runnable> closers = new ArrayList<>();
+
+    private record Storage(ExpenseStorage expenses, UserStorage users) {}
+
+    // Opens the backend's files in tempDir; opening again sees what was written before
+    private Storage open(Backend backend) {
+        if (backend == Backend.H2) {
+            H2Storage storage = new H2Storage(tempDir.resolve("expense-tracker").toString(), 4, 0);
+            closers.add(storage::close);
+            return new Storage(storage, storage);
+        }
+        ExpenseRepository.SnapshotFormat format = backend == Backend.FILE_BINARY
+                ? ExpenseRepository.SnapshotFormat.BINARY
+                : ExpenseRepository.SnapshotFormat.JSON;
+        ExpenseRepository expenses = new ExpenseRepository(tempDir.resolve("expenses.json").toString(), format,
+                backend != Backend.FILE_UNJOURNALED, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 4);
+        closers.add(expenses::closeJournal);
+        return new Storage(expenses, new UserRepository(tempDir.resolve("users.json").toString()));
+    }
+
+    private void closeAll() {
+        closers.forEach(Runnable::run);
+        closers.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        closeAll();
+    }
+
+    private static Expense expense(long id, Long userId, String description, double amount) {
+        Expense expense = new Expense(description, amount, "Food");
+        expense.setId(id);
+        expense.setUserId(userId);
+        expense.setDate(LocalDate.of(2024, 1 + (int) (id % 12), 1 + (int) (id % 28)));
+        return expense;
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void emptyStorageLoadsNothing(Backend backend) {
+        Storage storage = open(backend);
+        assertThat(storage.expenses().loadExpenses()).isEmpty();
+        assertThat(storage.expenses().loadUser(1L)).isEmpty();
+        assertThat(storage.expenses().loadMaxId()).isZero();
+        assertThat(storage.users().loadUsers()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void savedExpensesRoundTripInIdOrder(Backend backend) {
+        Storage storage = open(backend);
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            ledger.add(expense(id, id % 5 == 0 ? null : id % 3, "Item " + id, id * 1.25));
+        }
+        storage.expenses().saveExpenses(ledger);
+        closeAll();
+
+        Storage reopened = open(backend);
+        List<Expense> loaded = reopened.expenses().loadExpenses();
+        assertThat(loaded).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(ledger);
+        assertThat(reopened.expenses().readExpenses()).extracting(Expense::getId)
+                .containsExactlyElementsOf(loaded.stream().map(Expense::getId).toList());
+        assertThat(reopened.expenses().loadMaxId()).isEqualTo(50);
+        assertThat(reopened.expenses().loadUser(2L)).extracting(Expense::getId)
+                .containsExactlyElementsOf(ledger.stream().filter(e -> Long.valueOf(2).equals(e.getUserId()))
+                        .map(Expense::getId).toList());
+
+        // A full save replaces, it doesn't merge
+        reopened.expenses().saveExpenses(List.of(expense(7, 1L, "Only", 1.0)));
+        assertThat(reopened.expenses().loadExpenses()).extracting(Expense::getDescription).containsExactly("Only");
+    }
+
+    // Past two of H2's pages, so paging carries on across a full page and stops after a short one
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void partsTogetherHoldTheWholeLedger(Backend backend) {
+        Storage storage = open(backend);
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 20_001; id++) {
+            ledger.add(expense(id, id % 7, "Item " + id, 1.0));
+        }
+        storage.expenses().saveExpenses(ledger);
+
+        List<Long> ids = new ArrayList<>();
+        List<Integer> partSizes = new ArrayList<>();
+        storage.expenses().readExpenses(part -> {
+            partSizes.add(part.size());
+            part.forEach(expense -> ids.add(expense.getId()));
+        });
+        assertThat(ids).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(
+                ledger.stream().map(Expense::getId).toList());
+        assertThat(partSizes).hasSizeGreaterThan(1).allSatisfy(size -> assertThat(size).isLessThan(20_001));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void mutationsApplyInOrderAndSurviveAReopen(Backend backend) {
+        Storage storage = open(backend);
+        storage.expenses().saveExpenses(List.of(expense(1, 1L, "Rent", 900.0), expense(2, 2L, "Coffee", 3.5)));
+        storage.expenses().applyMutations(List.of(
+                ExpenseMutation.add(expense(3, 1L, "Taxi", 12.0)),
+                ExpenseMutation.delete(3L, 1L),
+                ExpenseMutation.add(expense(4, 1L, "Lunch", 9.0)),
+                ExpenseMutation.delete(2L, 2L),
+                ExpenseMutation.add(expense(5, 2L, "Tea", 2.0))));
+        storage.expenses().applyMutations(List.of(ExpenseMutation.add(expense(6, 3L, "Books", 20.0))));
+        closeAll();
+
+        Storage reopened = open(backend);
+        assertThat(reopened.expenses().loadExpenses()).extracting(Expense::getId).containsExactly(1L, 4L, 5L, 6L);
+        assertThat(reopened.expenses().loadUser(1L)).extracting(Expense::getDescription).containsExactly("Rent", "Lunch");
+        assertThat(reopened.expenses().loadMaxId()).isEqualTo(6);
+
+        // Whatever compaction a backend does leaves the same ledger behind
+        reopened.expenses().flush();
+        assertThat(reopened.expenses().loadExpenses()).extracting(Expense::getId).containsExactly(1L, 4L, 5L, 6L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void mutationsKeepEveryoneElsesRows(Backend backend) {
+        Storage storage = open(backend);
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            ledger.add(expense(id, id % 4, "Item " + id, 1.0));
+        }
+        storage.expenses().saveExpenses(ledger);
+
+        // User 1 loses an expense and gains one, user 2 is emptied; users 0 and 3 aren't mentioned
+        List<Expense> user1 = new ArrayList<>(storage.expenses().loadUser(1L));
+        List<ExpenseMutation> mutations = new ArrayList<>();
+        mutations.add(ExpenseMutation.delete(user1.remove(0).getId(), 1L));
+        Expense added = expense(41, 1L, "New", 2.0);
+        user1.add(added);
+        mutations.add(ExpenseMutation.add(added));
+        for (Expense expense : storage.expenses().loadUser(2L)) {
+            mutations.add(ExpenseMutation.delete(expense.getId(), 2L));
+        }
+        storage.expenses().applyMutations(mutations);
+        assertThat(storage.expenses().loadUser(1L)).extracting(Expense::getId)
+                .containsExactlyElementsOf(user1.stream().map(Expense::getId).toList());
+        assertThat(storage.expenses().loadUser(2L)).isEmpty();
+        assertThat(storage.expenses().loadUser(0L)).hasSize(10);
+        assertThat(storage.expenses().loadUser(3L)).hasSize(10);
+        assertThat(storage.expenses().loadExpenses()).hasSize(30);
+    }
+
+    // The file backend folds a journal once it reaches the compaction threshold, by itself
+    @Test
+    void fileJournalIsCompactedAtTheThreshold() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 10, 1);
+        closers.add(repository::closeJournal);
+        Path journal = tempDir.resolve("expenses.journal");
+        for (long id = 1; id <= 9; id++) {
+            repository.applyMutations(List.of(ExpenseMutation.add(expense(id, 1L, "Item " + id, 1.0))));
+        }
+        assertThat(Files.readAllLines(journal)).hasSize(9);
+        repository.applyMutations(List.of(ExpenseMutation.add(expense(10, 1L, "Item 10", 1.0))));
+        assertThat(journal).doesNotExist();
+        assertThat(repository.loadUser(1L)).hasSize(10);
+    }
+
+    // A snapshot that can't be read (here truncated) is never overwritten with just the journal tail
+    @Test
+    void unreadableSnapshotLeavesTheJournalInPlace() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 10, 1);
+        closers.add(repository::closeJournal);
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            ledger.add(expense(id, 1L, "Item " + id, 1.0));
+        }
+        repository.saveExpenses(ledger);
+        Path snapshot = tempDir.resolve("expenses.json");
+        byte[] intact = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(intact, intact.length / 2));
+
+        for (long id = 6; id <= 15; id++) {
+            repository.applyMutations(List.of(ExpenseMutation.add(expense(id, 1L, "Item " + id, 1.0))));
+        }
+        assertThatThrownBy(() -> repository.loadUser(1L)).hasMessageStartingWith("Failed to load expenses");
+        assertThat(Files.readAllLines(tempDir.resolve("expenses.journal"))).hasSize(10);
+
+        // Once the snapshot reads again nothing is missing, and the next compaction goes through
+        Files.write(snapshot, intact);
+        assertThat(repository.loadUser(1L)).hasSize(15);
+        repository.flush();
+        assertThat(tempDir.resolve("expenses.journal")).doesNotExist();
+        assertThat(repository.loadUser(1L)).hasSize(15);
+    }
+
+    // A torn record is cut off on replay, even when the compaction that would fold it away
+    // fails, so appends after it aren't lost behind it on the next replay
+    @Test
+    void tornJournalTailIsCutBeforeTheNextAppend() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 100, 1);
+        repository.applyMutations(List.of(ExpenseMutation.add(expense(1, 1L, "Item 1", 1.0)),
+                ExpenseMutation.add(expense(2, 1L, "Item 2", 1.0))));
+        repository.closeJournal();
+        Path journal = tempDir.resolve("expenses.journal");
+        long intact = Files.size(journal);
+        Files.writeString(journal, "{\"op\":\"ADD\",\"expense\":{\"id\":3", StandardOpenOption.APPEND);
+        // The compaction on load can't create its temporary file while a directory holds its name
+        Path blocker = Files.createDirectory(tempDir.resolve("expenses.json.tmp"));
+
+        ExpenseRepository reopened = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 100, 1);
+        closers.add(reopened::closeJournal);
+        assertThat(reopened.loadExpenses()).extracting(Expense::getId).containsExactly(1L, 2L);
+        assertThat(Files.size(journal)).isEqualTo(intact);
+        reopened.applyMutations(List.of(ExpenseMutation.add(expense(4, 1L, "Item 4", 1.0))));
+        assertThat(reopened.loadUser(1L)).extracting(Expense::getId).containsExactly(1L, 2L, 4L);
+
+        Files.delete(blocker);
+        reopened.flush();
+        assertThat(reopened.loadExpenses()).extracting(Expense::getId).containsExactly(1L, 2L, 4L);
+    }
+
+    // Switching snapshot-format either way keeps the ledger: a compaction drops the other
+    // format's snapshot along with the journal it predates
+    @Test
+    void snapshotFormatCanBeSwitchedBackAndForth() {
+        ExpenseRepository json = snapshotRepository(ExpenseRepository.SnapshotFormat.JSON);
+        json.saveExpenses(List.of(expense(1, 1L, "Rent", 900.0), expense(2, 1L, "Tea", 2.0),
+                expense(3, 2L, "Bus", 3.0)));
+        json.closeJournal();
+
+        ExpenseRepository binary = snapshotRepository(ExpenseRepository.SnapshotFormat.BINARY);
+        binary.applyMutations(List.of(ExpenseMutation.add(expense(4, 1L, "Lunch", 9.0)),
+                ExpenseMutation.delete(1L, 1L)));
+        binary.flush();
+        binary.applyMutations(List.of(ExpenseMutation.add(expense(5, 2L, "Taxi", 12.0))));
+        binary.closeJournal();
+        assertThat(tempDir.resolve("expenses.json")).doesNotExist();
+
+        ExpenseRepository jsonAgain = snapshotRepository(ExpenseRepository.SnapshotFormat.JSON);
+        assertThat(jsonAgain.loadExpenses()).extracting(Expense::getId).containsExactly(2L, 3L, 4L, 5L);
+        jsonAgain.applyMutations(List.of(ExpenseMutation.delete(3L, 2L)));
+        jsonAgain.flush();
+        jsonAgain.closeJournal();
+        assertThat(tempDir.resolve("expenses.bin")).doesNotExist();
+
+        ExpenseRepository binaryAgain = snapshotRepository(ExpenseRepository.SnapshotFormat.BINARY);
+        closers.add(binaryAgain::closeJournal);
+        assertThat(binaryAgain.loadExpenses()).extracting(Expense::getId).containsExactly(2L, 4L, 5L);
+    }
+
+    private ExpenseRepository snapshotRepository(ExpenseRepository.SnapshotFormat format) {
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(), format, true,
+                ExpenseRepository.FsyncPolicy.NEVER, 0, 100, 1);
+    }
+
+    // Without a journal the rewrite is the write, so its failure reaches the caller
+    @Test
+    void failedRewriteWithoutJournalIsReported() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, false, ExpenseRepository.FsyncPolicy.NEVER, 0, 10, 1);
+        repository.applyMutations(List.of(ExpenseMutation.add(expense(1, 1L, "Item 1", 1.0))));
+        // The temporary file can't be created while a directory holds its name
+        Files.createDirectory(tempDir.resolve("expenses.json.tmp"));
+
+        assertThatThrownBy(() -> repository.applyMutations(List.of(ExpenseMutation.add(expense(2, 1L, "Item 2", 1.0)))))
+                .hasMessageStartingWith("Failed to save expenses");
+        assertThat(repository.loadUser(1L)).extracting(Expense::getId).containsExactly(1L);
+    }
+
+    // Under ALWAYS each compaction forces the snapshot and its directory down before the journal goes
+    @Test
+    void compactionUnderAlwaysFsyncKeepsEveryRecord() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.ALWAYS, 0, 4, 2);
+        for (long id = 1; id <= 10; id++) {
+            repository.applyMutations(List.of(ExpenseMutation.add(expense(id, id % 2, "Item " + id, 1.0))));
+        }
+        repository.closeJournal();
+        assertThat(tempDir.resolve("expenses-shards/shard-00-of-02.json.tmp")).doesNotExist();
+
+        ExpenseRepository reopened = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.ALWAYS, 0, 4, 2);
+        closers.add(reopened::closeJournal);
+        assertThat(reopened.loadExpenses()).extracting(Expense::getId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void addedUsersAreLoadedBack(Backend backend) {
+        Storage storage = open(backend);
+        List<User> directory = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setUsername("user" + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setPassword("secret");
+            user.setFirstName("First" + id);
+            user.setLastName("Last" + id);
+            user.setMonthlyIncome(1000.0 * id);
+            user.setMonthlyExpenseLimit(500.0 * id);
+            directory.add(user);
+            List<User> snapshot = List.copyOf(directory);
+            storage.users().addUsers(List.of(user), () -> snapshot);
+        }
+        closeAll();
+
+        List<User> loaded = open(backend).users().loadUsers();
+        assertThat(loaded).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(directory);
+    }
+
+    // An unreadable users.json fails the load rather than coming back as no users, which the
+    // next registration would then save over it
+    @Test
+    void unreadableUsersFileFailsTheLoad() throws Exception {
+        Path usersFile = tempDir.resolve("users.json");
+        Files.writeString(usersFile, "[{\"id\": 1, \"username\": \"user1\"");
+
+        assertThatThrownBy(() -> new UserRepository(usersFile.toString()).loadUsers())
+                .hasMessageStartingWith("Failed to load users");
+        assertThat(Files.readString(usersFile)).startsWith("[{\"id\": 1");
+    }
+}
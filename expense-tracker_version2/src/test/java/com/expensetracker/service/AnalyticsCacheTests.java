@@ -0,0 +1,173 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Cached analytics are served until the user's expenses, the day or the rules change, and never from a
+// load that raced a change
+class AnalyticsCacheTests {
+
+    // Users 1-3 get the sample expenses
+    private static final long USER = 70L;
+    private static final long OTHER_USER = 71L;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseService expenseService;
+    private RecommendationEngine recommendationEngine;
+    private final AtomicReference<LocalDate> today = new AtomicReference<>(LocalDate.of(2024, 3, 31));
+    private AnalyticsCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Map<String, Object>> loader = userId -> {
+        loads.incrementAndGet();
+        return Map.of("total", expenseService.getTotalSpentCents(userId));
+    };
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 1);
+        expenseService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        recommendationEngine = new RecommendationEngine(tempDir.resolve("rules.json").toString(), 0,
+                new SimpleMeterRegistry());
+        cache = new AnalyticsCache(expenseService, recommendationEngine, 100, 300, today::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recommendationEngine.close();
+    }
+
+    private Expense add(long userId, double amount) {
+        Expense expense = new Expense("Lunch", amount, "Food");
+        expenseService.addExpense(expense, userId);
+        return expense;
+    }
+
+    @Test
+    void servedFromCacheUntilTheUsersExpensesChange() {
+        add(USER, 10.0);
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1000L);
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1000L);
+        assertThat(loads).hasValue(1);
+
+        Expense second = add(USER, 5.0);
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1500L);
+        assertThat(loads).hasValue(2);
+
+        expenseService.deleteExpense(second.getId());
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1000L);
+        assertThat(loads).hasValue(3);
+
+        AnalyticsCache.Stats stats = cache.getStats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(3);
+        // One per change event, whether or not the user had an entry
+        assertThat(stats.invalidations()).isEqualTo(3);
+    }
+
+    @Test
+    void aChangeOnlyDropsThatUsersEntry() {
+        add(USER, 10.0);
+        add(OTHER_USER, 20.0);
+        cache.get(USER, loader);
+        cache.get(OTHER_USER, loader);
+
+        add(OTHER_USER, 1.0);
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1000L);
+        assertThat(cache.get(OTHER_USER, loader)).containsEntry("total", 2100L);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void invalidateAllDropsEveryEntry() {
+        add(USER, 10.0);
+        cache.get(USER, loader);
+        cache.get(OTHER_USER, loader);
+        assertThat(cache.getStats().size()).isEqualTo(2);
+
+        cache.invalidateAll();
+        assertThat(cache.getStats().size()).isZero();
+        // The add's event plus one per entry dropped
+        assertThat(cache.getStats().invalidations()).isEqualTo(3);
+        cache.get(USER, loader);
+        cache.get(OTHER_USER, loader);
+        assertThat(loads).hasValue(4);
+    }
+
+    // The entry is tagged with the version read before the load, so a change during it isn't masked
+    @Test
+    void aLoadThatRacedAChangeIsNotServed() {
+        add(USER, 10.0);
+        Map<String, Object> stale = cache.get(USER, userId -> {
+            Map<String, Object> analytics = loader.apply(userId);
+            add(USER, 5.0);
+            return analytics;
+        });
+        assertThat(stale).containsEntry("total", 1000L);
+
+        assertThat(cache.get(USER, loader)).containsEntry("total", 1500L);
+        assertThat(loads).hasValue(2);
+    }
+
+    // Month-to-date figures and the budget burn-down move on at midnight with no change event
+    @Test
+    void aNewDayIsNotServedYesterdaysEntry() {
+        add(USER, 10.0);
+        cache.get(USER, loader);
+        cache.get(USER, loader);
+        assertThat(loads).hasValue(1);
+
+        today.set(LocalDate.of(2024, 4, 1));
+        cache.get(USER, loader);
+        cache.get(USER, loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    // An entry built while a reload was in progress carries the old generation and isn't served after it
+    @Test
+    void aLoadThatRacedARulesReloadIsNotServed() {
+        add(USER, 10.0);
+        Map<String, Object> built = cache.get(USER, userId -> {
+            Map<String, Object> analytics = loader.apply(userId);
+            reloadRules();
+            return analytics;
+        });
+        assertThat(built).containsEntry("total", 1000L);
+
+        cache.get(USER, loader);
+        cache.get(USER, loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    private void reloadRules() {
+        try {
+            Files.writeString(tempDir.resolve("rules.json"), """
+                    [{"id": "any", "metric": "LIMIT_SPENT", "op": ">=", "threshold": 0, "message": "Noted"}]
+                    """);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        assertThat(recommendationEngine.reloadIfChanged()).isTrue();
+    }
+}
@@ -0,0 +1,155 @@
+package com.expensetracker.service;
+
+import com.expensetracker.controller.AdminController;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Streaming CSV and JSON lines export, plain and gzipped, and who may export everything
+class ExpenseExportServiceTests {
+
+    // Users 1-3 get the sample expenses
+    private static final long USER = 50L;
+    private static final long OTHER_USER = 51L;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseService expenseService;
+    private ExpenseExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 1);
+        expenseService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        exportService = new ExpenseExportService(expenseService);
+
+        expenseService.addExpense(expense("Groceries, weekly", 45.2, "Food", LocalDate.of(2024, 3, 1)), USER);
+        expenseService.addExpense(expense("Train", 12.0, "Travel", LocalDate.of(2024, 3, 2)), USER);
+        expenseService.addExpense(expense("Rent", 900.0, "Housing", LocalDate.of(2024, 3, 1)), OTHER_USER);
+    }
+
+    private static Expense expense(String description, double amount, String category, LocalDate date) {
+        Expense expense = new Expense(description, amount, category);
+        expense.setDate(date);
+        return expense;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void fileNameAndContentTypeFollowTheFormat() {
+        assertThat(ExpenseExportService.fileName(ExpenseExportService.Format.CSV, false)).isEqualTo("expenses.csv");
+        assertThat(ExpenseExportService.fileName(ExpenseExportService.Format.JSONL, true)).isEqualTo("expenses.jsonl.gz");
+        assertThat(ExpenseExportService.contentType(ExpenseExportService.Format.CSV, false)).isEqualTo("text/csv");
+        assertThat(ExpenseExportService.contentType(ExpenseExportService.Format.JSONL, false))
+                .isEqualTo("application/x-ndjson");
+        assertThat(ExpenseExportService.contentType(ExpenseExportService.Format.CSV, true))
+                .isEqualTo("application/gzip");
+    }
+
+    @Test
+    void csvHasAHeaderAndOneRowPerExpenseOfTheUser() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportUserExpenses(USER, ExpenseExportService.Format.CSV, false, out);
+
+        assertThat(rows).isEqualTo(2);
+        // Rows are not sorted, and a description with a comma is quoted
+        assertThat(out.toString(StandardCharsets.UTF_8).lines())
+                .first().isEqualTo("id,userId,date,description,category,amount");
+        // Ids follow the sample expenses, so they are left out of the comparison
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().skip(1).map(row -> row.substring(row.indexOf(',') + 1)))
+                .containsExactlyInAnyOrder(
+                        "50,2024-03-01,\"Groceries, weekly\",Food,45.2",
+                        "50,2024-03-02,Train,Travel,12.0");
+    }
+
+    @Test
+    void jsonLinesHaveOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportUserExpenses(OTHER_USER, ExpenseExportService.Format.JSONL, false, out);
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8).lines()).singleElement().satisfies(line -> assertThat(line)
+                .contains("\"description\":\"Rent\"", "\"amount\":900.0", "\"userId\":51", "\"date\":\"2024-03-01\""));
+    }
+
+    @Test
+    void gzipWrapsTheSameRows() throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        exportService.exportAllExpenses(ExpenseExportService.Format.JSONL, false, plain);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        long rows = exportService.exportAllExpenses(ExpenseExportService.Format.JSONL, true, gzipped);
+
+        assertThat(rows).isEqualTo(expenseService.getAllExpenses().size());
+        assertThat(gunzip(gzipped.toByteArray())).isEqualTo(plain.toString(StandardCharsets.UTF_8));
+    }
+
+    // While lazy loading the export streams from storage, after the writes still queued for it
+    @Test
+    void lazyLoadingExportStreamsEveryUserFromStorage() throws IOException {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("lazy/expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 4);
+        ExpenseService lazyService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT,
+                new GroupCommitSettings(true, 50, GroupCommitSettings.Acknowledgement.IMMEDIATE),
+                new LazyLoadingSettings(true, 1000, 3600), new SimpleMeterRegistry());
+        for (long userId = 60; userId < 70; userId++) {
+            lazyService.addExpense(expense("Item " + userId, userId, "Food", LocalDate.of(2024, 3, 1)), userId);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = new ExpenseExportService(lazyService).exportAllExpenses(ExpenseExportService.Format.CSV, false, out);
+
+        assertThat(rows).isEqualTo(lazyService.getAllExpenses().size());
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().skip(1).map(row -> row.split(",")[1]))
+                .hasSize((int) rows)
+                .contains("60", "64", "69");
+        lazyService.compactOnShutdown();
+    }
+
+    @Test
+    void onlyAdminsExportEveryUsersExpenses() {
+        AdminController controller = new AdminController(null, expenseService, exportService, null, null, null,
+                " root , ops ");
+        MockHttpSession session = new MockHttpSession();
+        assertThat(controller.exportAllExpenses(ExpenseExportService.Format.CSV, false, session).getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+
+        session.setAttribute("user", user("alice"));
+        assertThat(controller.exportAllExpenses(ExpenseExportService.Format.CSV, false, session).getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+
+        session.setAttribute("user", user("ops"));
+        assertThat(controller.exportAllExpenses(ExpenseExportService.Format.CSV, true, session).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,134 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Bulk CSV and JSON lines import: valid rows go in together, rejected rows are reported by number
+class ExpenseImportServiceTests {
+
+    // Users 1-3 get the sample expenses
+    private static final long USER = 40L;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseService expenseService;
+    private ExpenseImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 1000, 1);
+        expenseService = new ExpenseService(repository, ExpenseStore.Engine.OBJECT, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        importService = new ExpenseImportService(expenseService);
+    }
+
+    private static InputStream text(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void formatComesFromTheFileExtension() {
+        assertThat(ExpenseImportService.formatFor("bank.jsonl")).isEqualTo(ExpenseImportService.Format.JSONL);
+        assertThat(ExpenseImportService.formatFor("BANK.JSON")).isEqualTo(ExpenseImportService.Format.JSONL);
+        assertThat(ExpenseImportService.formatFor("bank.csv")).isEqualTo(ExpenseImportService.Format.CSV);
+        assertThat(ExpenseImportService.formatFor("statement.txt")).isEqualTo(ExpenseImportService.Format.CSV);
+        assertThat(ExpenseImportService.formatFor(null)).isEqualTo(ExpenseImportService.Format.CSV);
+    }
+
+    @Test
+    void csvImportsTheValidRowsAndReportsTheRest() {
+        String csv = """
+                Date,Description,Amount,Category,Reference
+                2024-03-01,Groceries,45.20,Food,A1
+                2024-03-02,,10.00,Food,A2
+                2024-03-03,Train,abc,Travel,A3
+                not-a-date,Taxi,12.00,Travel,A4
+                ,Coffee,3.50,Food,A5
+                2024-03-05,Yacht,Infinity,Travel,A6
+                2024-03-06,Refund,-5.00,Food,A7
+                """;
+        ImportResult result = importService.importExpenses(text(csv), ExpenseImportService.Format.CSV, USER);
+
+        assertThat(result.rowsRead()).isEqualTo(7);
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.errorCount()).isEqualTo(5);
+        assertThat(result.hasErrors()).isTrue();
+        // Data rows count from 1, after the header
+        assertThat(result.errors()).extracting(ImportResult.RowError::row).containsExactly(2L, 3L, 4L, 6L, 7L);
+        assertThat(result.errors().get(0).message()).isEqualTo("Expense description cannot be empty");
+        assertThat(result.errors().get(1).message()).isEqualTo("Invalid amount: abc");
+        assertThat(result.errors().get(2).message()).startsWith("Invalid date");
+        assertThat(result.errors().get(3).message()).isEqualTo("Invalid amount: Infinity");
+
+        // Extra columns are ignored; a row without a date is dated today, like a form add
+        assertThat(expenseService.getExpensesByUserId(USER))
+                .extracting(Expense::getDescription, Expense::getAmountCents, Expense::getDate)
+                .containsExactly(
+                        tuple("Groceries", 4520L, LocalDate.of(2024, 3, 1)),
+                        tuple("Coffee", 350L, LocalDate.now()));
+        assertThat(expenseService.getTotalSpentCents(USER)).isEqualTo(4870);
+    }
+
+    @Test
+    void jsonLinesImportAndRejectWhatIsntAnObject() {
+        String jsonl = """
+                {"description": "Rent", "amount": 900, "category": "Housing", "date": "2024-04-01"}
+                {"DESCRIPTION": "Gas", "Amount": "60.10", "Category": "Utilities"}
+                [1, 2, 3]
+                {"description": "Gift", "amount": "NaN", "category": "Other"}
+                {"description": "Book", "amount": 12.5}
+                """;
+        ImportResult result = importService.importExpenses(text(jsonl), ExpenseImportService.Format.JSONL, USER);
+
+        assertThat(result.rowsRead()).isEqualTo(5);
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.errors()).extracting(ImportResult.RowError::message)
+                .containsExactly("Expected a JSON object", "Invalid amount: NaN", "Expense category cannot be empty");
+        assertThat(expenseService.getExpensesByUserId(USER)).extracting(Expense::getDescription)
+                .containsExactly("Rent", "Gas");
+    }
+
+    @Test
+    void onlyTheFirstRowErrorsAreKept() {
+        StringBuilder csv = new StringBuilder("description,amount,category\n");
+        for (int i = 0; i < 150; i++) {
+            csv.append("Item ").append(i).append(",0,Food\n");
+        }
+        csv.append("Last,1.00,Food\n");
+        ImportResult result = importService.importExpenses(text(csv.toString()), ExpenseImportService.Format.CSV, USER);
+
+        assertThat(result.errorCount()).isEqualTo(150);
+        assertThat(result.errors()).hasSize(100);
+        assertThat(result.imported()).isEqualTo(1);
+    }
+
+    // A stream that breaks off mid-way is refused as a whole, so nothing half-read is committed
+    @Test
+    void unreadableInputImportsNothing() {
+        String jsonl = """
+                {"description": "Rent", "amount": 900, "category": "Housing"}
+                {"description": "Gas", "amount":
+                """;
+        assertThatThrownBy(() -> importService.importExpenses(text(jsonl), ExpenseImportService.Format.JSONL, USER))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageStartingWith("Unreadable input after row 1");
+        assertThat(expenseService.getExpensesByUserId(USER)).isEmpty();
+    }
+}
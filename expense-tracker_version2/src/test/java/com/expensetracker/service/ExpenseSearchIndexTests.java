@@ -0,0 +1,154 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prefix search over expense descriptions, on its own and kept in step by ExpenseService
+class ExpenseSearchIndexTests {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseRepository newRepository() {
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 200, 4);
+    }
+
+    private static Expense expense(long id, long userId, String description) {
+        Expense expense = new Expense(description, 1.0, "Misc");
+        expense.setId(id);
+        expense.setUserId(userId);
+        return expense;
+    }
+
+    private static List<Long> ids(ExpenseSearchIndex.Matches matches) {
+        return Arrays.stream(matches.ids()).boxed().toList();
+    }
+
+    @Test
+    void wordsAreLowerCasedRunsOfLettersAndDigits() {
+        assertThat(ExpenseSearchIndex.words("Taxi to JFK, 2nd time (taxi!)"))
+                .containsExactly("taxi", "to", "jfk", "2nd", "time");
+        assertThat(ExpenseSearchIndex.words("  --  ")).isEmpty();
+        assertThat(ExpenseSearchIndex.words(null)).isEmpty();
+    }
+
+    @Test
+    void searchIsPerUserAndFollowsRemoves() {
+        ExpenseSearchIndex index = new ExpenseSearchIndex();
+        index.add(expense(1, 10, "Coffee beans"));
+        index.add(expense(2, 10, "Coffeehouse breakfast"));
+        index.add(expense(3, 11, "Coffee"));
+        index.addAll(List.of(expense(4, 10, "Bean bag"), expense(5, 10, "Coffee")));
+        assertThat(index.documents()).isEqualTo(5);
+
+        assertThat(index.search(10L, "coff", 10).total()).isEqualTo(3);
+        assertThat(ids(index.search(10L, "bean", 10))).containsExactlyInAnyOrder(1L, 4L);
+        assertThat(ids(index.search(11L, "coffee", 10))).containsExactly(3L);
+        // The limit caps the ids, not the count
+        assertThat(index.search(10L, "coffee", 1).ids()).hasSize(1);
+        assertThat(index.search(10L, "coffee", 1).total()).isEqualTo(3);
+        assertThat(index.search(10L, "", 10).total()).isZero();
+        assertThat(index.search(12L, "coffee", 10).total()).isZero();
+
+        index.remove(expense(1, 10, "Coffee beans"));
+        assertThat(ids(index.search(10L, "bean", 10))).containsExactly(4L);
+        index.removeUser(10L);
+        assertThat(index.search(10L, "coffee", 10).total()).isZero();
+        assertThat(index.documents()).isEqualTo(1);
+
+        index.rebuild(List.of(expense(6, 12, "Train"), expense(7, 12, "Training shoes")));
+        assertThat(index.search(11L, "coffee", 10).total()).isZero();
+        assertThat(ids(index.search(12L, "train", 10))).containsExactly(6L, 7L);
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.expensetracker.service.ExpenseServiceConcurrencyTests#engineAndWriteMode")
+    void searchIndexFollowsConcurrentAddsAndDeletesAndIsRebuiltAtLoad(ExpenseStore.Engine engine,
+                                                                     GroupCommitSettings writeMode) throws Exception {
+        String[] words = {"grocery", "groceries", "green", "coffee", "coffeehouse", "rent", "taxi", "tax", "gift"};
+        ExpenseService service = new ExpenseService(newRepository(), engine, writeMode, new SimpleMeterRegistry());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                long userId = 100 + thread % 2;
+                List<Long> mine = new ArrayList<>();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    String description = words[(thread + i) % words.length] + " " + words[(i * 7) % words.length]
+                            + " #" + i;
+                    Expense expense = new Expense(description, 1.0 + i % 40, "Misc");
+                    service.addExpense(expense, userId);
+                    mine.add(expense.getId());
+                    if (i % 3 == 2) {
+                        service.deleteUserExpense(userId, mine.remove(mine.size() / 2));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertSearchMatchesAScan(service, words);
+
+        // A fresh service rebuilds the index from the files
+        service.compactOnShutdown();
+        ExpenseService reloaded = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        assertSearchMatchesAScan(reloaded, words);
+
+        // Exact words outrank words they are a prefix of, and shorter descriptions outrank longer ones
+        Expense exact = new Expense("Tax refund", 5.0, "Misc");
+        Expense prefix = new Expense("Taxi home", 5.0, "Misc");
+        Expense longer = new Expense("Tax on the new laptop bag", 5.0, "Misc");
+        reloaded.addExpense(prefix, 300L);
+        reloaded.addExpense(longer, 300L);
+        reloaded.addExpense(exact, 300L);
+        assertThat(reloaded.searchExpenses(300L, "TAX", 10).items()).extracting(Expense::getId)
+                .containsExactly(exact.getId(), longer.getId(), prefix.getId());
+        assertThat(reloaded.searchExpenses(300L, "tax ref", 10).items()).extracting(Expense::getId)
+                .containsExactly(exact.getId());
+        assertThat(reloaded.searchExpenses(300L, "tax rent", 10).totalMatches()).isZero();
+        assertThat(reloaded.searchExpenses(100L, "refund", 10).totalMatches()).isZero();
+    }
+
+    private void assertSearchMatchesAScan(ExpenseService service, String[] words) {
+        for (long userId = 100; userId <= 101; userId++) {
+            List<Expense> expenses = service.getExpensesByUserId(userId);
+            for (String query : List.of("gro", "groceries", "coffee", "tax", "ta gr", "gift rent", "zzz")) {
+                List<String> queryWords = ExpenseSearchIndex.words(query);
+                List<Long> expected = expenses.stream()
+                        .filter(e -> queryWords.stream().allMatch(q -> ExpenseSearchIndex.words(e.getDescription())
+                                .stream().anyMatch(w -> w.startsWith(q))))
+                        .map(Expense::getId).sorted().toList();
+                ExpenseSearchResult result = service.searchExpenses(userId, query, ExpenseQuery.MAX_SIZE);
+                assertThat(result.totalMatches()).as(query).isEqualTo(expected.size());
+                assertThat(result.items()).hasSize(Math.min(expected.size(), ExpenseQuery.MAX_SIZE));
+                assertThat(expected).containsAll(result.items().stream().map(Expense::getId).toList());
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.H2Storage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ExpenseServiceConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int USERS = 8;
+    private static final int OPS_PER_THREAD = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseRepository newRepository() {
+        return newRepository(1);
+    }
+
+    private ExpenseRepository newRepository(int shards) {
+        return newRepository(shards, true);
+    }
+
+    private ExpenseRepository newRepository(int shards, boolean journal) {
+        // A low compaction threshold makes compaction run concurrently with appends
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, journal,
+                ExpenseRepository.FsyncPolicy.NEVER, 0, 200, shards);
+    }
+
+    private H2Storage newH2Storage() {
+        return new H2Storage(tempDir.resolve("expense-tracker").toString(), 4, 0);
+    }
+
+    static Stream<Arguments> engineAndWriteMode() {
+        GroupCommitSettings groupCommit = new GroupCommitSettings(true, 2, GroupCommitSettings.Acknowledgement.DURABLE);
+        // Virtual-thread mode: writers and request threads are all virtual
+        GroupCommitSettings virtualGroupCommit = new GroupCommitSettings(true, 2,
+                GroupCommitSettings.Acknowledgement.DURABLE, true);
+        return Stream.of(ExpenseStore.Engine.values()).flatMap(engine -> Stream.of(
+                Arguments.of(engine, GroupCommitSettings.disabled()),
+                Arguments.of(engine, groupCommit),
+                Arguments.of(engine, virtualGroupCommit)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engineAndWriteMode")
+    void concurrentAddDeleteAndReadLoseNoUpdates(ExpenseStore.Engine engine, GroupCommitSettings writeMode)
+            throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExpenseService expenseService = new ExpenseService(newRepository(), engine, writeMode, meterRegistry);
+        int sampleCount = expenseService.getAllExpenses().size();
+
+        ExecutorService executor = writeMode.isVirtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Long> kept = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            long userId = 100 + (t % USERS);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    Expense expense = new Expense("Item " + i, 1.0 + i, i % 2 == 0 ? "Food" : "Travel");
+                    expense.setDate(LocalDate.of(2024, 1 + i % 12, 1 + i % 28));
+                    expenseService.addExpense(expense, userId);
+                    // Delete every third expense again, read the user's list in between
+                    if (i % 3 == 0) {
+                        expenseService.deleteExpense(expense.getId());
+                    } else {
+                        kept.add(expense.getId());
+                    }
+                    assertThat(expenseService.getExpensesByUserId(userId)).doesNotContainNull();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int expectedPerThread = OPS_PER_THREAD - (OPS_PER_THREAD + 2) / 3;
+        assertThat(kept).hasSize(THREADS * expectedPerThread);
+        assertThat(expenseService.getAllExpenses()).hasSize(sampleCount + kept.size());
+        for (long userId = 100; userId < 100 + USERS; userId++) {
+            List<Expense> userExpenses = expenseService.getExpensesByUserId(userId);
+            assertThat(userExpenses).hasSize(THREADS / USERS * expectedPerThread);
+
+            // Running aggregates must agree with a rescan of the user's expenses
+            double scannedTotal = userExpenses.stream().mapToDouble(Expense::getAmount).sum();
+            long scannedFood = userExpenses.stream().filter(e -> e.getCategory().equals("Food")).count();
+            assertThat(expenseService.getTotalSpent(userId)).isCloseTo(scannedTotal, within(1e-6));
+            assertThat(expenseService.getCategoryTotals(userId).get("Food").count()).isEqualTo(scannedFood);
+
+            Map<YearMonth, Double> scannedByMonth = userExpenses.stream().collect(
+                    Collectors.groupingBy(e -> YearMonth.from(e.getDate()), Collectors.summingDouble(Expense::getAmount)));
+            Map<YearMonth, MonthlyRollup> rollups = expenseService.getMonthlyRollups(userId);
+            assertThat(rollups.keySet()).isEqualTo(scannedByMonth.keySet());
+            scannedByMonth.forEach((month, total) ->
+                    assertThat(rollups.get(month).total()).isCloseTo(total, within(1e-6)));
+        }
+
+        // Sample data is added at startup, not through addExpense, so the counters see only this run
+        int deletes = THREADS * (OPS_PER_THREAD - expectedPerThread);
+        assertThat(meterRegistry.get("expenses.added").counter().count()).isEqualTo(THREADS * OPS_PER_THREAD);
+        assertThat(meterRegistry.get("expenses.deleted").counter().count()).isEqualTo(deletes);
+        assertThat(meterRegistry.get("expenses.ledger.size").gauge().value()).isEqualTo(sampleCount + kept.size());
+
+        if (writeMode.isEnabled()) {
+            // DURABLE acknowledgement: every mutation was written by the time its call returned
+            assertThat(expenseService.getGroupCommitStats().committed()).isEqualTo(THREADS * OPS_PER_THREAD + deletes);
+            assertThat(expenseService.getGroupCommitStats().queueDepth()).isZero();
+        }
+
+        // Whatever mix of journal and compacted snapshot is on disk must replay to the same ledger
+        expenseService.compactOnShutdown();
+        List<Expense> reloaded = newRepository().loadExpenses();
+        assertThat(reloaded).extracting(Expense::getId)
+                .containsAll(kept)
+                .doesNotHaveDuplicates()
+                .hasSize(sampleCount + kept.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("engineAndWriteMode")
+    void failedWritesAreTakenBackOutOfMemory(ExpenseStore.Engine engine, GroupCommitSettings writeMode)
+            throws Exception {
+        ExpenseRepository repository = newRepository();
+        ExpenseService expenseService = new ExpenseService(repository, engine, writeMode, new SimpleMeterRegistry());
+        // A directory where the journal should be makes the next append fail
+        Path journal = tempDir.resolve("expenses.journal");
+        repository.closeJournal();
+        Files.deleteIfExists(journal);
+        Files.createDirectory(journal);
+
+        assertThatThrownBy(() -> expenseService.addExpense(new Expense("Lost", 12.5, "Food"), 30L))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(expenseService.getExpensesByUserId(30L)).isEmpty();
+        assertThat(expenseService.getTotalSpentCents(30L)).isZero();
+        assertThat(expenseService.searchExpenses(30L, "lost", 10).items()).isEmpty();
+        // The whole of a failed batch comes back out
+        assertThatThrownBy(() -> expenseService.addExpenses(List.of(new Expense("Lost too", 3.0, "Food"),
+                new Expense("Lost again", 4.0, "Travel")), 30L))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(expenseService.getExpensesByUserId(30L)).isEmpty();
+        assertThat(expenseService.getTotalSpentCents(30L)).isZero();
+        assertThat(expenseService.searchExpenses(30L, "lost", 10).items()).isEmpty();
+
+        Files.delete(journal);
+        expenseService.addExpense(new Expense("Kept", 7.25, "Food"), 30L);
+        assertThat(expenseService.getExpensesByUserId(30L)).extracting(Expense::getDescription).containsExactly("Kept");
+        expenseService.compactOnShutdown();
+    }
+
+    // Deletes are written before the expense leaves memory, so a failed one changes nothing
+    @ParameterizedTest
+    @MethodSource("engineAndWriteMode")
+    void failedDeleteKeepsTheExpense(ExpenseStore.Engine engine, GroupCommitSettings writeMode) throws Exception {
+        ExpenseRepository repository = newRepository();
+        ExpenseService expenseService = new ExpenseService(repository, engine, writeMode, new SimpleMeterRegistry());
+        Expense kept = new Expense("Kept", 7.25, "Food");
+        expenseService.addExpense(kept, 30L);
+        Path journal = tempDir.resolve("expenses.journal");
+        repository.closeJournal();
+        Files.deleteIfExists(journal);
+        Files.createDirectory(journal);
+
+        assertThatThrownBy(() -> expenseService.deleteUserExpense(30L, kept.getId()))
+                .hasMessageStartingWith("Failed to delete expense");
+        assertThat(expenseService.getExpensesByUserId(30L)).extracting(Expense::getId).containsExactly(kept.getId());
+        assertThat(expenseService.getTotalSpentCents(30L)).isEqualTo(725);
+        assertThat(expenseService.searchExpenses(30L, "kept", 10).items()).hasSize(1);
+
+        Files.delete(journal);
+        assertThat(expenseService.deleteUserExpense(30L, kept.getId())).isTrue();
+        assertThat(expenseService.getExpensesByUserId(30L)).isEmpty();
+        expenseService.compactOnShutdown();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void journalTailIsReplayedWithoutCompaction(ExpenseStore.Engine engine) {
+        ExpenseRepository repository = newRepository();
+        ExpenseService expenseService = new ExpenseService(repository, engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        Expense coffee = new Expense("Coffee", 3.5, "Food");
+        coffee.setDate(LocalDate.of(2024, 3, 15));
+        expenseService.addExpense(coffee, 7L);
+        repository.closeJournal();
+
+        ExpenseService restarted = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        assertThat(restarted.getExpensesByUserId(7L)).extracting(Expense::getDescription).containsExactly("Coffee");
+        assertThat(restarted.getExpensesByUserId(7L)).extracting(Expense::getDate).containsExactly(LocalDate.of(2024, 3, 15));
+        assertThat(restarted.getMonthlyRollup(7L, YearMonth.of(2024, 3)).total()).isEqualTo(3.5);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void ledgerSurvivesMigrationBetweenShardLayouts(ExpenseStore.Engine engine) {
+        ExpenseService single = new ExpenseService(newRepository(1), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        for (long userId = 1; userId <= 20; userId++) {
+            single.addExpense(new Expense("Item " + userId, (double) userId, "Food"), userId);
+        }
+        single.compactOnShutdown();
+        List<Long> ids = single.getAllExpenses().stream().map(Expense::getId).toList();
+
+        // Single file -> 4 shards: the old files are kept aside and each user lands in one shard
+        ExpenseRepository sharded = newRepository(4);
+        ExpenseService onShards = new ExpenseService(sharded, engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        assertThat(onShards.getAllExpenses()).extracting(Expense::getId).containsExactlyElementsOf(ids);
+        assertThat(tempDir.resolve("expenses.json")).doesNotExist();
+        assertThat(tempDir.resolve("expenses.json.migrated")).exists();
+        assertThat(tempDir.resolve("expenses-shards/shard-03-of-04.json")).exists();
+
+        // Mutations journal into the owning shard only
+        Expense extra = new Expense("Extra", 9.0, "Travel");
+        onShards.addExpense(extra, 7L);
+        onShards.deleteExpense(ids.get(0));
+        sharded.closeJournal();
+        assertThat(tempDir.resolve("expenses-shards").toFile().list((dir, name) -> name.endsWith(".journal")))
+                .containsExactlyInAnyOrder(
+                        String.format("shard-%02d-of-04.journal", sharded.shardOf(7L)),
+                        String.format("shard-%02d-of-04.journal", sharded.shardOf(1L)));
+
+        // 4 shards -> 3 shards -> single file again, replaying the journals on the way
+        List<Long> expected = new ArrayList<>(ids.subList(1, ids.size()));
+        expected.add(extra.getId());
+        for (int shards : new int[] {3, 1}) {
+            ExpenseService migrated = new ExpenseService(newRepository(shards), engine,
+                    GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+            assertThat(migrated.getAllExpenses()).extracting(Expense::getId).containsExactlyElementsOf(expected);
+            assertThat(migrated.getExpensesByUserId(7L)).extracting(Expense::getDescription)
+                    .containsExactly("Item 7", "Extra");
+        }
+        assertThat(tempDir.resolve("expenses.json")).exists();
+        assertThat(Files.exists(tempDir.resolve("expenses-shards/shard-00-of-03.json"))).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("engineAndWriteMode")
+    void lazyLoadingEvictsUnderLoadWithoutLosingWrites(ExpenseStore.Engine engine, GroupCommitSettings writeMode)
+            throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Room for about two users' expenses, so users are evicted and reloaded throughout
+        LazyLoadingSettings lazyLoading = new LazyLoadingSettings(true, 150, 3600);
+        ExpenseService expenseService = new ExpenseService(newRepository(4), engine, writeMode, lazyLoading,
+                meterRegistry);
+        int sampleCount = expenseService.getAllExpenses().size();
+        ExecutorService executor = writeMode.isVirtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(USERS);
+        ConcurrentLinkedQueue<Long> kept = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < USERS; t++) {
+            long userId = 100 + t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    Expense expense = new Expense("Item " + i, 1.0 + i, "Food");
+                    expenseService.addExpense(expense, userId);
+                    if (i % 4 == 0) {
+                        assertThat(expenseService.deleteUserExpense(userId, expense.getId())).isTrue();
+                    } else {
+                        kept.add(expense.getId());
+                    }
+                    assertThat(expenseService.getExpenseCount(userId)).isEqualTo(i + 1 - (i + 4) / 4);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Other users' ids can't be seen or deleted through the owner checks
+        Long othersId = expenseService.getExpensesByUserId(100L).get(0).getId();
+        assertThat(expenseService.getUserExpense(101L, othersId)).isNull();
+        assertThat(expenseService.deleteUserExpense(101L, othersId)).isFalse();
+        assertThat(expenseService.getUserExpense(100L, othersId)).isNotNull();
+
+        assertThat(meterRegistry.get("expenses.lazy.loads").counter().count()).isGreaterThan(USERS);
+        assertThat(meterRegistry.get("expenses.lazy.evictions").counter().count()).isPositive();
+        for (long userId = 100; userId < 100 + USERS; userId++) {
+            assertThat(expenseService.getExpensesByUserId(userId)).hasSize(75);
+            assertThat(expenseService.getTotalSpent(userId)).isCloseTo(75 * 51.0, within(1e-6));
+        }
+        // Evicted users come from the files, resident ones from memory
+        assertThat(expenseService.getAllExpenses()).extracting(Expense::getId)
+                .containsAll(kept)
+                .doesNotHaveDuplicates()
+                .hasSize(sampleCount + kept.size());
+
+        expenseService.compactOnShutdown();
+        assertThat(newRepository(4).loadExpenses()).extracting(Expense::getId)
+                .containsAll(kept)
+                .hasSize(sampleCount + kept.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void lazyWritesWithoutJournalKeepNonResidentUsersInTheShard(ExpenseStore.Engine engine) {
+        ExpenseService eager = new ExpenseService(newRepository(2, false), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        for (long userId = 1; userId <= 10; userId++) {
+            eager.addExpense(new Expense("Item " + userId, (double) userId, "Food"), userId);
+        }
+        List<Long> ids = eager.getAllExpenses().stream().map(Expense::getId).toList();
+
+        // Only user 5 is loaded; rewriting their shard must keep the other users in it
+        ExpenseService lazy = new ExpenseService(newRepository(2, false), engine, GroupCommitSettings.disabled(),
+                new LazyLoadingSettings(true, 1000, 3600), new SimpleMeterRegistry());
+        Expense extra = new Expense("Extra", 2.0, "Travel");
+        lazy.addExpense(extra, 5L);
+        assertThat(lazy.getExpensesByUserId(5L)).extracting(Expense::getDescription).containsExactly("Item 5", "Extra");
+
+        List<Long> expected = new ArrayList<>(ids);
+        expected.add(extra.getId());
+        assertThat(newRepository(2, false).loadExpenses()).extracting(Expense::getId)
+                .containsExactlyElementsOf(expected);
+    }
+
+    // Without shards a user's load would parse the whole ledger, so lazy loading refuses to start
+    @Test
+    void lazyLoadingNeedsMoreThanOneShard() {
+        assertThatThrownBy(() -> new ExpenseService(newRepository(1), ExpenseStore.Engine.OBJECT,
+                GroupCommitSettings.disabled(), new LazyLoadingSettings(true, 1000, 3600), new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("expense.storage.shards");
+    }
+
+    @ParameterizedTest
+    @MethodSource("engineAndWriteMode")
+    void h2BackendKeepsConcurrentWritesAcrossRestartsEagerAndLazy(ExpenseStore.Engine engine,
+                                                                GroupCommitSettings writeMode) throws Exception {
+        H2Storage storage = newH2Storage();
+        ExpenseService expenseService = new ExpenseService(storage, engine, writeMode, new SimpleMeterRegistry());
+        int sampleCount = expenseService.getAllExpenses().size();
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        ConcurrentLinkedQueue<Long> kept = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < USERS; t++) {
+            long userId = 100 + t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    Expense expense = new Expense("Item " + i, 1.0 + i, "Food");
+                    expense.setDate(LocalDate.of(2024, 1 + i % 12, 1 + i % 28));
+                    expenseService.addExpense(expense, userId);
+                    if (i % 4 == 0) {
+                        expenseService.deleteExpense(expense.getId());
+                    } else {
+                        kept.add(expense.getId());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        expenseService.compactOnShutdown();
+        storage.close();
+
+        // Rows are written in place: a restart sees every write, and a lazy service reads one user by index
+        H2Storage reopened = newH2Storage();
+        assertThat(reopened.loadExpenses()).extracting(Expense::getId)
+                .containsAll(kept)
+                .doesNotHaveDuplicates()
+                .hasSize(sampleCount + kept.size());
+        assertThat(reopened.loadMaxId()).isEqualTo(expenseService.getAllExpenses().stream()
+                .mapToLong(Expense::getId).max().orElseThrow());
+        ExpenseService lazy = new ExpenseService(reopened, engine, writeMode,
+                new LazyLoadingSettings(true, 150, 3600), new SimpleMeterRegistry());
+        for (long userId = 100; userId < 100 + USERS; userId++) {
+            assertThat(lazy.getExpensesByUserId(userId)).hasSize(75);
+            assertThat(lazy.getExpensesByUserId(userId).get(0).getDate()).isEqualTo(LocalDate.of(2024, 2, 2));
+            assertThat(lazy.getTotalSpent(userId)).isCloseTo(75 * 51.0, within(1e-6));
+        }
+        Expense extra = new Expense("Extra", 2.0, "Travel");
+        lazy.addExpense(extra, 100L);
+        assertThat(lazy.deleteUserExpense(101L, lazy.getExpensesByUserId(100L).get(0).getId())).isFalse();
+        lazy.compactOnShutdown();
+        reopened.close();
+
+        H2Storage last = newH2Storage();
+        assertThat(last.loadUser(100L)).hasSize(76).last().extracting(Expense::getDescription).isEqualTo("Extra");
+        assertThat(last.loadUser(101L)).hasSize(75);
+        last.close();
+    }
+}
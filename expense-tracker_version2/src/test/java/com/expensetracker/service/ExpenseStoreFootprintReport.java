@@ -0,0 +1,59 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Retained-heap comparison of the OBJECT and COLUMNAR storage engines.
+// Run each engine in its own JVM with enough heap for the row count, e.g.
+//   java -Xmx8g  -cp <test classpath> com.expensetracker.service.ExpenseStoreFootprintReport 1000000
+//   java -Xmx24g -cp <test classpath> com.expensetracker.service.ExpenseStoreFootprintReport 10000000 COLUMNAR
+public class ExpenseStoreFootprintReport {
+    private static final String[] CATEGORIES = {"Food", "Utilities", "Transport", "Shopping", "Entertainment", "Health"};
+    private static final int CHUNK = 100_000;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<ExpenseStore.Engine> engines = args.length > 1
+                ? List.of(ExpenseStore.Engine.valueOf(args[1]))
+                : List.of(ExpenseStore.Engine.values());
+
+        for (ExpenseStore.Engine engine : engines) {
+            long before = usedHeap();
+            ExpenseStore store = ExpenseStore.create(engine);
+            Random random = new Random(42);
+            // Load in chunks so the generator's own Expense objects don't inflate the columnar number
+            for (int start = 0; start < rows; start += CHUNK) {
+                store.addAll(generate(random, start, Math.min(CHUNK, rows - start)));
+            }
+            long retained = usedHeap() - before;
+
+            System.out.printf("%-8s rows=%,d retained=%,d MB (%.1f bytes/row)%n",
+                    engine, store.size(), retained >> 20, (double) retained / rows);
+            store = null;
+        }
+    }
+
+    private static List<Expense> generate(Random random, int firstId, int count) {
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Expense expense = new Expense("Expense " + (firstId + i), 1 + random.nextInt(50_000) / 100.0,
+                    // new String so both engines start from distinct category instances, as after JSON parsing
+                    new String(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            expense.setId((long) firstId + i + 1);
+            expense.setUserId(1L + random.nextInt(10_000));
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
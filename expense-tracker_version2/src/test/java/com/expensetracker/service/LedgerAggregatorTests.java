@@ -0,0 +1,96 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Cross-user totals from one parallel pass over the ledger rows
+class LedgerAggregatorTests {
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void parallelLedgerTotalsMatchASequentialRescan(ExpenseStore.Engine engine) {
+        // Enough rows for the fork-join split to produce several leaves, with freed slots in between
+        ExpenseStore store = ExpenseStore.create(engine);
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 200_000; id++) {
+            Expense expense = new Expense("Item " + id, (double) (id % 97), "Category " + id % 7);
+            expense.setId(id);
+            expense.setUserId(id % 11 == 0 ? null : id % 500);
+            expense.setDate(id % 13 == 0 ? null : LocalDate.of(2024, 1 + (int) (id % 12), 1 + (int) (id % 28)));
+            ledger.add(expense);
+        }
+        store.addAll(ledger);
+        for (long id = 3; id <= 200_000; id += 5) {
+            store.remove(id);
+        }
+        List<Expense> live = store.findAll();
+        YearMonth month = YearMonth.of(2024, 3);
+
+        LedgerAggregator aggregator = new LedgerAggregator(4);
+        LedgerTotals totals = store.withLedgerRows(rows -> aggregator.aggregate(rows, month));
+        aggregator.close();
+
+        assertThat(totals.expenseCount()).isEqualTo(live.size());
+        assertThat(totals.totalSpent()).isCloseTo(live.stream().mapToDouble(Expense::getAmount).sum(), within(1e-3));
+        Map<String, Double> byCategory = live.stream().collect(
+                Collectors.groupingBy(Expense::getCategory, Collectors.summingDouble(Expense::getAmount)));
+        assertThat(totals.categories().keySet()).isEqualTo(byCategory.keySet());
+        byCategory.forEach((category, total) ->
+                assertThat(totals.categories().get(category).total()).isCloseTo(total, within(1e-3)));
+
+        Map<Long, List<Expense>> byUser = live.stream().filter(e -> e.getUserId() != null)
+                .collect(Collectors.groupingBy(Expense::getUserId));
+        assertThat(totals.users()).hasSize(byUser.size());
+        for (LedgerTotals.UserTotal user : totals.users()) {
+            List<Expense> expenses = byUser.get(user.userId());
+            assertThat(user.count()).isEqualTo(expenses.size());
+            assertThat(user.total()).isCloseTo(expenses.stream().mapToDouble(Expense::getAmount).sum(), within(1e-6));
+            assertThat(user.monthTotal()).isCloseTo(expenses.stream()
+                    .filter(e -> e.getDate() != null && YearMonth.from(e.getDate()).equals(month))
+                    .mapToDouble(Expense::getAmount).sum(), within(1e-6));
+        }
+    }
+
+    // A list of expenses (as assembled while lazy loading) aggregates the same as the store's rows
+    @Test
+    void rowsOfAListAggregateLikeTheStore() {
+        List<Expense> ledger = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            Expense expense = new Expense("Item " + id, id % 10 == 0 ? null : (double) (id % 41), "Category " + id % 3);
+            expense.setId(id);
+            expense.setUserId(id % 17);
+            expense.setDate(LocalDate.of(2024, 1 + (int) (id % 2), 15));
+            ledger.add(expense);
+        }
+        ExpenseStore store = ExpenseStore.create(ExpenseStore.Engine.COLUMNAR);
+        store.addAll(ledger);
+        YearMonth month = YearMonth.of(2024, 2);
+
+        LedgerAggregator aggregator = new LedgerAggregator(2);
+        LedgerTotals fromStore = store.withLedgerRows(rows -> aggregator.aggregate(rows, month));
+        LedgerTotals fromList = aggregator.aggregate(ExpenseStore.rowsOf(ledger), month);
+        LedgerTotals empty = aggregator.aggregate(ExpenseStore.rowsOf(List.of()), month);
+        aggregator.close();
+
+        assertThat(fromList).isEqualTo(fromStore);
+        // Missing amounts count as zero
+        assertThat(fromList.expenseCount()).isEqualTo(5000);
+        assertThat(fromList.users()).hasSize(17);
+
+        assertThat(empty.expenseCount()).isZero();
+        assertThat(empty.categories()).isEmpty();
+        assertThat(empty.users()).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package com.expensetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LongIntHashMapTests {
+
+    @Test
+    void putGetAndRemoveAcrossResizes() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i * 31L, i);
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            assertThat(map.remove(i * 31L)).isEqualTo(i);
+        }
+
+        assertThat(map.size()).isEqualTo(500);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(map.get(i * 31L)).isEqualTo(i % 2 == 0 ? -1 : i);
+        }
+        assertThat(map.remove(7)).isEqualTo(-1);
+    }
+
+    // What an optimistic reader can see mid-write: a table with no empty slot. get must give up
+    // rather than probe forever, so the columnar store can validate and retry under the lock.
+    @Test
+    void getOnATableWithNoEmptySlotTerminates() throws Exception {
+        LongIntHashMap map = new LongIntHashMap();
+        long[] keys = new long[16];
+        int[] values = new int[16];
+        Arrays.fill(keys, 42);
+        Arrays.fill(values, 1);
+        set(map, "keys", keys);
+        set(map, "values", values);
+
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(5), () -> map.get(7))).isEqualTo(-1);
+    }
+
+    private static void set(LongIntHashMap map, String name, Object value) throws Exception {
+        Field field = LongIntHashMap.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(map, value);
+    }
+}
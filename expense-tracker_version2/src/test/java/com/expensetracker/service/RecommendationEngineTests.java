@@ -0,0 +1,157 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Recommendation rules: the bundled set, hot reload from a file, and what analytics makes of them
+class RecommendationEngineTests {
+
+    @TempDir
+    Path tempDir;
+
+    private ExpenseRepository newRepository() {
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 200, 1);
+    }
+
+    // Without a rules file the bundled rules stay in force and nothing is reloaded
+    @Test
+    void bundledRulesWithoutAFile() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RecommendationEngine engine = new RecommendationEngine(tempDir.resolve("missing.json").toString(), 0,
+                meterRegistry);
+        assertThat(engine.getRules().size()).isEqualTo(7);
+        assertThat(engine.reloadIfChanged()).isFalse();
+        assertThat(engine.getGeneration()).isZero();
+        assertThat(meterRegistry.get("analytics.rules.count").gauge().value()).isEqualTo(7.0);
+        engine.close();
+    }
+
+    // Listeners run before the generation moves on, so a tag with the new generation never
+    // goes with results cached under the old rules
+    @Test
+    void reloadListenersRunBeforeTheGenerationChanges() throws Exception {
+        Path rulesFile = tempDir.resolve("rules.json");
+        RecommendationEngine engine = new RecommendationEngine(rulesFile.toString(), 0, new SimpleMeterRegistry());
+        AtomicLong seen = new AtomicLong(-1);
+        engine.addReloadListener(() -> seen.set(engine.getGeneration()));
+
+        Files.writeString(rulesFile, """
+                [{"id": "any", "metric": "LIMIT_SPENT", "op": ">=", "threshold": 0, "message": "Noted"}]
+                """);
+        assertThat(engine.reloadIfChanged()).isTrue();
+        assertThat(seen).hasValue(0);
+        assertThat(engine.getGeneration()).isEqualTo(1);
+        assertThat(engine.getRules().size()).isEqualTo(1);
+        engine.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExpenseStore.Engine.class)
+    void recommendationRulesMatchTheOldMessagesAndHotReload(ExpenseStore.Engine engine) throws Exception {
+        // Users 1-3 get the sample expenses, so these start from 21
+        ExpenseService expenseService = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        Path rulesFile = tempDir.resolve("rules.json");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RecommendationEngine recommendationEngine = new RecommendationEngine(rulesFile.toString(), 0, meterRegistry);
+        AnalyticsService analyticsService = new AnalyticsService(expenseService,
+                new AnalyticsCache(expenseService, recommendationEngine, 100, 300), recommendationEngine, meterRegistry);
+
+        User over = newUser(21L, 1000.0, 500.0);
+        User under = newUser(22L, 10_000.0, 5000.0);
+        User unset = newUser(23L, 0.0, 0.0);
+        LocalDate today = LocalDate.now();
+        for (String[] row : new String[][] {{"Food", "600.00"}, {"Shopping", "400.00"}}) {
+            Expense expense = new Expense(row[0], Double.parseDouble(row[1]), row[0]);
+            expense.setDate(today);
+            expenseService.addExpense(expense, 21L);
+        }
+        Expense film = new Expense("Cinema", 100.0, "Entertainment");
+        film.setDate(today);
+        expenseService.addExpense(film, 22L);
+        // Last year's spending doesn't count towards this month's category shares
+        Expense lastYear = new Expense("Flights", 900.0, "Travel");
+        lastYear.setDate(today.minusYears(1));
+        expenseService.addExpense(lastYear, 22L);
+        expenseService.addExpense(new Expense("Taxi", 10.0, "Travel"), 23L);
+
+        // The bundled rules give the messages the hard-coded checks did, in the same order
+        assertThat(recommendationEngine.getRules().size()).isEqualTo(7);
+        assertThat(analyticsService.getSpendingRecommendations(21L, over)).containsExactly(
+                "💡 Track your expenses daily for better insights",
+                "📊 Review your spending patterns weekly",
+                "⚠️ You're spending over 80% of your income. Consider reducing non-essential expenses.",
+                "🚨 You've exceeded your monthly expense limit! Immediate action needed.",
+                "📊 Your Food spending is 60.0% of total. This seems high - consider budgeting for this category.",
+                "🛍️ Shopping expenses are significant. Consider a 24-hour cooling off period before purchases.",
+                "🍽️ Food expenses are substantial. Meal planning could help reduce costs.");
+        assertThat(analyticsService.getSpendingRecommendations(23L, unset)).last().isEqualTo(
+                "ℹ️ Set up your monthly income and expense limit for personalized recommendations");
+        Map<Long, List<String>> batch = analyticsService.evaluateRecommendations(List.of(over, under, unset));
+        assertThat(batch).containsOnlyKeys(21L, 22L);
+        assertThat(batch.get(22L)).containsExactly(
+                "📊 Your Entertainment spending is 100.0% of total. This seems high - consider budgeting for this category.",
+                "🎬 Entertainment spending is high. Look for free alternatives.",
+                "✅ Great job! You're spending less than 50% of your income.");
+        assertThat(analyticsService.getUserAnalytics(under).get("recommendations"))
+                .asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(5);
+
+        // A new file replaces the rules and drops analytics built with the old ones
+        Files.writeString(rulesFile, """
+                [{"id": "half-limit", "metric": "LIMIT_SPENT", "op": ">=", "threshold": 50, "message": "Half gone"},
+                 {"id": "travel", "metric": "CATEGORY_SHARE", "category": "Travel", "op": ">", "threshold": 0,
+                  "message": "{category} is {share}%"}]
+                """);
+        assertThat(recommendationEngine.getGeneration()).isZero();
+        assertThat(recommendationEngine.reloadIfChanged()).isTrue();
+        assertThat(recommendationEngine.reloadIfChanged()).isFalse();
+        assertThat(recommendationEngine.getGeneration()).isEqualTo(1);
+        assertThat(analyticsService.evaluateRecommendations(List.of(over, under, newUser(23L, 100.0, 20.0))))
+                .containsOnlyKeys(21L, 23L)
+                .containsEntry(21L, List.of("Half gone"))
+                .containsEntry(23L, List.of("Half gone", "Travel is 100.0%"));
+        assertThat(analyticsService.getUserAnalytics(under).get("recommendations"))
+                .asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(2);
+
+        // A file with errors is reported and the rules in force stay
+        Files.writeString(rulesFile, """
+                [{"id": "broken", "metric": "LIMIT_SPENT", "op": "=~", "threshold": 1, "message": "Never"}]
+                """);
+        assertThat(recommendationEngine.reloadIfChanged()).isFalse();
+        assertThat(recommendationEngine.getRules().size()).isEqualTo(2);
+        assertThat(recommendationEngine.getGeneration()).isEqualTo(1);
+        Files.writeString(rulesFile, "[{\"metric\": \"INCOME_SPENT\", \"op\": \">\", \"message\": \"{share}\"}]");
+        assertThat(recommendationEngine.reloadIfChanged()).isFalse();
+        assertThat(analyticsService.evaluateRecommendations(List.of(over))).containsEntry(21L, List.of("Half gone"));
+        assertThat(meterRegistry.get("analytics.rules.reloads").tag("outcome", "failure").counter().count())
+                .isEqualTo(2.0);
+        recommendationEngine.close();
+    }
+
+    private static User newUser(Long id, double monthlyIncome, double monthlyExpenseLimit) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setMonthlyIncome(monthlyIncome);
+        user.setMonthlyExpenseLimit(monthlyExpenseLimit);
+        return user;
+    }
+}
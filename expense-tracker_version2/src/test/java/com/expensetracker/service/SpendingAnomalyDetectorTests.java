@@ -0,0 +1,242 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.GroupCommitSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Per-category running statistics that flag unusually large expenses, on their own and through ExpenseService
+class SpendingAnomalyDetectorTests {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private long nextId = 1;
+
+    private ExpenseRepository newRepository() {
+        return new ExpenseRepository(tempDir.resolve("expenses.json").toString(),
+                ExpenseRepository.SnapshotFormat.JSON, true, ExpenseRepository.FsyncPolicy.NEVER, 0, 200, 4);
+    }
+
+    private Expense expense(long userId, double amount, String category) {
+        Expense expense = new Expense("Item", amount, category);
+        expense.setId(nextId++);
+        expense.setUserId(userId);
+        return expense;
+    }
+
+    @Test
+    void flaggedOnlyOnceACategoryHasEnoughHistory() {
+        SpendingAnomalyDetector detector = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        for (int i = 0; i < 4; i++) {
+            assertThat(detector.add(expense(40, 10.0, "Food"))).isNull();
+        }
+        assertThat(detector.add(expense(40, 100.0, "Food"))).isNull();
+
+        // Five earlier expenses of the same amount: no spread, so anything over the ratio stands out
+        SpendingAnomalyDetector fresh = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        for (int i = 0; i < 5; i++) {
+            fresh.add(expense(41, 10.0, "Food"));
+        }
+        Expense spike = expense(41, 100.0, "Food");
+        ExpenseAnomaly anomaly = fresh.add(spike);
+        assertThat(anomaly.expenseId()).isEqualTo(spike.getId());
+        assertThat(anomaly.typicalCents()).isEqualTo(1000);
+        assertThat(anomaly.ratio()).isEqualTo(10.0);
+        assertThat(fresh.anomalies(41L)).containsOnlyKeys(spike.getId());
+        // Categories and users are judged apart
+        assertThat(fresh.add(expense(41, 100.0, "Travel"))).isNull();
+        assertThat(fresh.add(expense(42, 100.0, "Food"))).isNull();
+        assertThat(fresh.series()).isEqualTo(3);
+    }
+
+    // Both the ratio and the z-score have to be exceeded
+    @Test
+    void farAboveTheSpreadButUnderTheRatioIsNotFlagged() {
+        SpendingAnomalyDetector detector = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        for (double amount : new double[] {10.0, 10.5, 9.5, 10.0, 10.2, 9.8}) {
+            detector.add(expense(40, amount, "Food"));
+        }
+        Expense underTheRatio = expense(40, 25.0, "Food");
+        assertThat(detector.add(underTheRatio)).isNull();
+        detector.remove(underTheRatio);
+        assertThat(detector.add(expense(40, 31.0, "Food"))).isNotNull();
+    }
+
+    @Test
+    void removesTakeExpensesBackOut() {
+        SpendingAnomalyDetector detector = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        List<Expense> usual = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Expense expense = expense(40, 10.0, "Food");
+            detector.add(expense);
+            usual.add(expense);
+        }
+        Expense spike = expense(40, 100.0, "Food");
+        assertThat(detector.add(spike)).isNotNull();
+
+        detector.remove(spike);
+        assertThat(detector.anomalies(40L)).isEmpty();
+        // Back to too little history
+        detector.remove(usual.get(0));
+        assertThat(detector.add(expense(40, 100.0, "Food"))).isNull();
+
+        // The category stays while the last add is in it
+        usual.subList(1, usual.size()).forEach(detector::remove);
+        assertThat(detector.series()).isEqualTo(1);
+        detector.removeUser(40L);
+        assertThat(detector.series()).isZero();
+        assertThat(detector.anomalies(40L)).isEmpty();
+    }
+
+    // Replaying in id order flags the same expenses whatever order the ledger comes in
+    @Test
+    void rebuildAndAddAllMatchOneByOneAdds() {
+        Random random = new Random(11);
+        List<Expense> ledger = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double amount = random.nextInt(50) == 0 ? 500.0 : 10.0 + random.nextInt(10);
+            ledger.add(expense(40 + random.nextInt(4), amount, "Category " + random.nextInt(3)));
+        }
+        SpendingAnomalyDetector oneByOne = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        ledger.forEach(oneByOne::add);
+
+        List<Expense> shuffled = new ArrayList<>(ledger);
+        Collections.shuffle(shuffled, random);
+        SpendingAnomalyDetector rebuilt = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        rebuilt.rebuild(shuffled);
+        SpendingAnomalyDetector batched = new SpendingAnomalyDetector(AnomalySettings.defaults());
+        int flagged = batched.addAll(shuffled);
+
+        int total = 0;
+        for (long userId = 40; userId < 44; userId++) {
+            assertThat(oneByOne.anomalies(userId)).isNotEmpty();
+            assertThat(rebuilt.anomalies(userId)).isEqualTo(oneByOne.anomalies(userId));
+            assertThat(batched.anomalies(userId)).isEqualTo(oneByOne.anomalies(userId));
+            total += oneByOne.anomalies(userId).size();
+        }
+        assertThat(flagged).isEqualTo(total);
+    }
+
+    @Test
+    void disabledKeepsNothing() {
+        SpendingAnomalyDetector detector = new SpendingAnomalyDetector(AnomalySettings.disabled());
+        for (int i = 0; i < 10; i++) {
+            detector.add(expense(40, 10.0, "Food"));
+        }
+        assertThat(detector.add(expense(40, 1000.0, "Food"))).isNull();
+        assertThat(detector.addAll(List.of(expense(40, 1000.0, "Food")))).isZero();
+        assertThat(detector.series()).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.expensetracker.service.ExpenseServiceConcurrencyTests#engineAndWriteMode")
+    void anomaliesAreFlaggedOnAddFollowDeletesAndAreRebuiltAtLoad(ExpenseStore.Engine engine,
+                                                                  GroupCommitSettings writeMode) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExpenseService service = new ExpenseService(newRepository(), engine, writeMode, LazyLoadingSettings.disabled(),
+                AnomalySettings.defaults(), meterRegistry);
+
+        // Groceries around 100, then a bill five times that
+        List<Long> groceries = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Expense expense = new Expense("Groceries " + i, 90.0 + i, "Food");
+            service.addExpense(expense, 30L);
+            groceries.add(expense.getId());
+        }
+        Expense bill = new Expense("Party groceries", 500.0, "Food");
+        service.addExpense(bill, 30L);
+        service.addExpense(new Expense("Big shop", 150.0, "Food"), 30L);
+        // Too few earlier taxis to judge by
+        for (int i = 0; i < 3; i++) {
+            service.addExpense(new Expense("Taxi", 10.0, "Travel"), 30L);
+        }
+        service.addExpense(new Expense("Airport taxi", 200.0, "Travel"), 30L);
+        assertThat(service.getAnomalies(30L)).containsOnlyKeys(bill.getId());
+        ExpenseAnomaly anomaly = service.getAnomalies(30L).get(bill.getId());
+        assertThat(anomaly.category()).isEqualTo("Food");
+        assertThat(anomaly.typicalAmount()).isEqualTo(99.5);
+        assertThat(anomaly.ratio()).isEqualTo(5.0);
+
+        // Deletes take expenses back out of the statistics: with four groceries left there is too little history
+        service.deleteUserExpense(30L, bill.getId());
+        assertThat(service.getAnomalies(30L)).isEmpty();
+        for (Long id : groceries.subList(0, 17)) {
+            service.deleteUserExpense(30L, id);
+        }
+        Expense second = new Expense("Second party", 800.0, "Food");
+        service.addExpense(second, 30L);
+        assertThat(service.getAnomalies(30L)).isEmpty();
+
+        // Concurrent adds and deletes of everyday amounts, each thread adding a few spikes it never deletes
+        ConcurrentLinkedQueue<Long> spikes = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                long userId = 100 + thread % 2;
+                List<Long> mine = new ArrayList<>();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    boolean spike = i % 100 == 50;
+                    Expense expense = new Expense("Lunch " + i, spike ? 500.0 : 10.0 + i % 5, "Food");
+                    service.addExpense(expense, userId);
+                    if (spike) {
+                        spikes.add(expense.getId());
+                    } else {
+                        mine.add(expense.getId());
+                    }
+                    if (i % 3 == 2) {
+                        service.deleteUserExpense(userId, mine.remove(mine.size() / 2));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        List<Long> flagged = new ArrayList<>(service.getAnomalies(100L).keySet());
+        flagged.addAll(service.getAnomalies(101L).keySet());
+        assertThat(flagged).containsExactlyInAnyOrderElementsOf(spikes);
+        assertThat(meterRegistry.get("expenses.anomalies").counter().count()).isEqualTo(1.0 + spikes.size());
+
+        // Rebuilt from the ledger by replaying it in id order, eagerly or per user when loaded lazily
+        service.compactOnShutdown();
+        ExpenseService reloaded = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new SimpleMeterRegistry());
+        ExpenseService lazy = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                new LazyLoadingSettings(true, 1000, 3600), new SimpleMeterRegistry());
+        for (ExpenseService restarted : List.of(reloaded, lazy)) {
+            List<Long> rebuilt = new ArrayList<>(restarted.getAnomalies(100L).keySet());
+            rebuilt.addAll(restarted.getAnomalies(101L).keySet());
+            assertThat(rebuilt).containsExactlyInAnyOrderElementsOf(spikes);
+            assertThat(restarted.getAnomalies(30L)).isEmpty();
+        }
+
+        ExpenseService disabled = new ExpenseService(newRepository(), engine, GroupCommitSettings.disabled(),
+                LazyLoadingSettings.disabled(), AnomalySettings.disabled(), new SimpleMeterRegistry());
+        assertThat(disabled.getAnomalies(100L)).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The in-memory index UserService looks users up in and takes new ids from
+class UserDirectoryTests {
+
+    private static User user(long id, String username, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+
+    @Test
+    void usersAreFoundByIdUsernameAndEmail() {
+        UserDirectory directory = new UserDirectory();
+        assertThat(directory.size()).isZero();
+        assertThat(directory.maxId()).isZero();
+        assertThat(directory.findAll()).isEmpty();
+
+        User alice = user(2, "alice", "alice@example.com");
+        directory.add(alice);
+        // A user without an email is only found by id and username
+        directory.add(user(1, "bob", null));
+
+        assertThat(directory.findById(2L)).isSameAs(alice);
+        assertThat(directory.findByUsername("alice")).isSameAs(alice);
+        assertThat(directory.findByEmail("alice@example.com")).isSameAs(alice);
+        assertThat(directory.findByUsername("bob").getId()).isEqualTo(1L);
+        assertThat(directory.findById(null)).isNull();
+        assertThat(directory.findByUsername(null)).isNull();
+        assertThat(directory.findByEmail(null)).isNull();
+        assertThat(directory.findByUsername("carol")).isNull();
+
+        // Ordered by id, not insertion
+        assertThat(directory.findAll()).extracting(User::getId).containsExactly(1L, 2L);
+        assertThat(directory.size()).isEqualTo(2);
+    }
+
+    @Test
+    void maxIdIsTheHighestIdAddedInAnyOrder() throws Exception {
+        UserDirectory directory = new UserDirectory();
+        directory.add(user(5, "five", null));
+        directory.add(user(3, "three", null));
+        assertThat(directory.maxId()).isEqualTo(5);
+
+        // Concurrent adds never leave the mark below an id that is present
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (long id = 6; id <= 1000; id++) {
+                long userId = id;
+                adds.add(executor.submit(() -> directory.add(user(userId, "user" + userId, null))));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(directory.maxId()).isEqualTo(1000);
+        assertThat(directory.size()).isEqualTo(997);
+    }
+
+    @Test
+    void removeTakesBackAUserButNotTheirId() {
+        UserDirectory directory = new UserDirectory();
+        User alice = user(1, "alice", "alice@example.com");
+        directory.add(alice);
+        User bob = user(2, "bob", null);
+        directory.add(bob);
+
+        directory.remove(bob);
+        assertThat(directory.findById(2L)).isNull();
+        assertThat(directory.findByUsername("bob")).isNull();
+        assertThat(directory.size()).isEqualTo(1);
+        // A later registration gets a fresh id rather than the failed one
+        assertThat(directory.maxId()).isEqualTo(2);
+
+        // Another user holding the same name is left alone
+        directory.remove(user(1, "alice", "alice@example.com"));
+        assertThat(directory.findByUsername("alice")).isSameAs(alice);
+        assertThat(directory.findByEmail("alice@example.com")).isSameAs(alice);
+    }
+}
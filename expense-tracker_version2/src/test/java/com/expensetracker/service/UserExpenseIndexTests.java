@@ -0,0 +1,186 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Offset and keyset (cursor) paging over one user's sorted expenses
+class UserExpenseIndexTests {
+
+    private static final String[] CATEGORIES = {"Food", "Travel", null, "Housing"};
+
+    // Repeated dates, amounts and categories, plus rows missing each, so ties are broken by id
+    private static List<Expense> expenses(int count) {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Expense expense = new Expense("Item " + i, i % 7 == 0 ? null : (double) (i % 5) * 10, CATEGORIES[i % 4]);
+            expense.setId((long) i);
+            expense.setUserId(60L);
+            expense.setDate(i % 6 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i % 9));
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static ExpenseQuery query(ExpenseQuery.Sort sort, ExpenseQuery.Direction direction, int page, int size,
+                                      String cursor) {
+        return new ExpenseQuery(null, null, null, sort, direction, page, size, cursor);
+    }
+
+    private static List<Long> ids(ExpensePage page) {
+        return page.items().stream().map(Expense::getId).toList();
+    }
+
+    private static String base64(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Stream<Arguments> sortAndDirection() {
+        return Stream.of(ExpenseQuery.Sort.values()).flatMap(sort ->
+                Stream.of(ExpenseQuery.Direction.values()).map(direction -> Arguments.of(sort, direction)));
+    }
+
+    @Test
+    void offsetPagesCoverTheMatchesInOrder() {
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses(10));
+
+        ExpensePage first = index.query(ExpenseQuery.firstPage());
+        assertThat(ids(first)).containsExactly(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L);
+        assertThat(first.hasNext()).isFalse();
+        assertThat(first.nextCursor()).isNull();
+
+        ExpensePage second = index.query(query(ExpenseQuery.Sort.ID, ExpenseQuery.Direction.ASC, 1, 4, null));
+        assertThat(ids(second)).containsExactly(5L, 6L, 7L, 8L);
+        assertThat(second.totalMatches()).isEqualTo(10);
+        assertThat(second.totalPages()).isEqualTo(3);
+        assertThat(second.hasPrevious()).isTrue();
+        assertThat(second.hasNext()).isTrue();
+
+        ExpensePage pastTheEnd = index.query(query(ExpenseQuery.Sort.ID, ExpenseQuery.Direction.ASC, 5, 4, null));
+        assertThat(pastTheEnd.items()).isEmpty();
+        assertThat(pastTheEnd.hasNext()).isFalse();
+    }
+
+    @Test
+    void filtersOnAndOffTheSortKey() {
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses(40));
+
+        // Range on the sort key is a slice; the category is checked row by row
+        ExpensePage page = index.query(new ExpenseQuery("Food", 10.0, 30.0, ExpenseQuery.Sort.AMOUNT,
+                ExpenseQuery.Direction.ASC, 0, 100, null));
+        assertThat(page.items()).allSatisfy(expense -> {
+            assertThat(expense.getCategory()).isEqualTo("Food");
+            assertThat(expense.getAmount()).isBetween(10.0, 30.0);
+        });
+        assertThat(page.items()).extracting(Expense::getAmount).isSorted();
+        assertThat(page.totalMatches()).isEqualTo(page.items().size()).isPositive();
+
+        // Category on the sort key is a slice; the range is checked row by row
+        ExpensePage byCategory = index.query(new ExpenseQuery("Travel", 20.0, null, ExpenseQuery.Sort.CATEGORY,
+                ExpenseQuery.Direction.DESC, 0, 100, null));
+        assertThat(byCategory.items()).allSatisfy(expense -> {
+            assertThat(expense.getCategory()).isEqualTo("Travel");
+            assertThat(expense.getAmount()).isGreaterThanOrEqualTo(20.0);
+        });
+        assertThat(ids(byCategory)).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    // A missing amount counts as zero whether the range is a slice of the amount order or checked row by row
+    @ParameterizedTest
+    @MethodSource("sortAndDirection")
+    void amountFiltersMatchTheSameRowsInEveryOrder(ExpenseQuery.Sort sort, ExpenseQuery.Direction direction) {
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses(40));
+        ExpenseQuery byId = new ExpenseQuery(null, 0.0, 20.0, ExpenseQuery.Sort.ID, ExpenseQuery.Direction.ASC,
+                0, 100, null);
+        List<Long> expected = ids(index.query(byId));
+        // Rows 7, 14, 21, 28 and 35 have no amount
+        assertThat(expected).contains(7L, 35L);
+
+        ExpensePage page = index.query(new ExpenseQuery(null, 0.0, 20.0, sort, direction, 0, 100, null));
+        assertThat(page.totalMatches()).isEqualTo(expected.size());
+        assertThat(ids(page)).containsExactlyInAnyOrderElementsOf(expected);
+
+        // Paging by cursor through the zeros and missing amounts finds the same rows
+        List<Long> byCursor = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ExpensePage next = index.query(new ExpenseQuery(null, 0.0, 20.0, sort, direction, pages, 3, cursor));
+            byCursor.addAll(ids(next));
+            cursor = next.nextCursor();
+            pages++;
+        } while (cursor != null);
+        assertThat(byCursor).isEqualTo(ids(page));
+    }
+
+    // Following nextCursor page by page visits every row once, in the same order as offset paging
+    @ParameterizedTest
+    @MethodSource("sortAndDirection")
+    void cursorsRoundTripThroughEveryPage(ExpenseQuery.Sort sort, ExpenseQuery.Direction direction) {
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses(53));
+
+        List<Long> byOffset = ids(index.query(query(sort, direction, 0, 100, null)));
+        List<Long> byCursor = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ExpensePage page = index.query(query(sort, direction, pages, 5, cursor));
+            byCursor.addAll(ids(page));
+            assertThat(page.nextCursor() != null).isEqualTo(page.hasNext());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(11);
+        assertThat(byCursor).isEqualTo(byOffset).hasSize(53);
+    }
+
+    // The cursor carries the key, not a position, so rows deleted before it don't shift the next page
+    @Test
+    void cursorSurvivesDeletesBeforeIt() {
+        List<Expense> expenses = expenses(20);
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses);
+        ExpensePage first = index.query(query(ExpenseQuery.Sort.DATE, ExpenseQuery.Direction.ASC, 0, 6, null));
+        List<Long> expected = ids(index.query(query(ExpenseQuery.Sort.DATE, ExpenseQuery.Direction.ASC, 0, 12, null)))
+                .subList(6, 12);
+
+        List<Expense> remaining = new ArrayList<>(expenses);
+        remaining.removeIf(expense -> ids(first).subList(0, 3).contains(expense.getId()));
+        UserExpenseIndex changed = new UserExpenseIndex(2, remaining);
+
+        ExpensePage second = changed.query(query(ExpenseQuery.Sort.DATE, ExpenseQuery.Direction.ASC, 1, 6,
+                first.nextCursor()));
+        assertThat(ids(second)).isEqualTo(expected);
+    }
+
+    // A cursor that can't be read falls back to offset paging on the requested page
+    @Test
+    void tamperedOrInvalidCursorsFallBackToTheOffset() {
+        UserExpenseIndex index = new UserExpenseIndex(1, expenses(30));
+        List<Long> secondPage = ids(index.query(query(ExpenseQuery.Sort.AMOUNT, ExpenseQuery.Direction.ASC, 1, 5, null)));
+
+        List<String> unusable = List.of(
+                "not base64!",
+                base64("no separator"),
+                base64("10.0|seven"),
+                base64("|"),
+                // A date order cursor handed to the amount order
+                base64("2024-01-05|3"));
+        for (String cursor : unusable) {
+            assertThat(ids(index.query(query(ExpenseQuery.Sort.AMOUNT, ExpenseQuery.Direction.ASC, 1, 5, cursor))))
+                    .as(cursor)
+                    .isEqualTo(secondPage);
+        }
+    }
+}
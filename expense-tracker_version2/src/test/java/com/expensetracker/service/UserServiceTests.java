@@ -0,0 +1,146 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.User;
+import com.expensetracker.repository.GroupCommitSettings;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.repository.UserStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A registration whose write fails is taken back, so it can't log in or hold the name
+class UserServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    // Fails every write while failing is set
+    private static class FlakyStorage implements UserStorage {
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final List<User> written = new ArrayList<>();
+
+        @Override
+        public List<User> loadUsers() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void addUsers(List<User> added, Supplier<List<User>> directory) {
+            if (failing.get()) {
+                throw new RuntimeException("disk full");
+            }
+            written.addAll(added);
+        }
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        return user;
+    }
+
+    @Test
+    void aFailedGroupCommitTakesTheUserBack() {
+        FlakyStorage storage = new FlakyStorage();
+        UserService userService = new UserService(storage,
+                new GroupCommitSettings(true, 1, GroupCommitSettings.Acknowledgement.DURABLE), new SimpleMeterRegistry());
+        try {
+            assertThat(userService.registerUser(user("alice"))).isFalse();
+            assertThat(userService.getAllUsers()).isEmpty();
+            assertThat(userService.loginUser("alice", "secret")).isNull();
+
+            // The name and email are free again
+            storage.failing.set(false);
+            assertThat(userService.registerUser(user("alice"))).isTrue();
+            assertThat(userService.loginUser("alice", "secret")).isNotNull();
+            assertThat(storage.written).extracting(User::getUsername).containsExactly("alice");
+        } finally {
+            userService.flushPendingWrites();
+        }
+    }
+
+    // Rewrites the whole directory like users.json, failing the first write once the next
+    // registration is queued behind it
+    private static class RewritingStorage implements UserStorage {
+        final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        volatile UserService userService;
+        volatile boolean failed;
+        volatile List<User> lastWrite = List.of();
+
+        @Override
+        public List<User> loadUsers() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void addUsers(List<User> added, Supplier<List<User>> directory) {
+            if (!failed) {
+                failed = true;
+                firstWriteStarted.countDown();
+                while (userService.getGroupCommitStats().queueDepth() == 0) {
+                    Thread.onSpinWait();
+                }
+                throw new RuntimeException("disk full");
+            }
+            lastWrite = directory.get();
+        }
+    }
+
+    @Test
+    void aFailedGroupCommitIsNotSavedByTheNextBatch() throws Exception {
+        RewritingStorage storage = new RewritingStorage();
+        UserService userService = new UserService(storage,
+                new GroupCommitSettings(true, 0, GroupCommitSettings.Acknowledgement.DURABLE), new SimpleMeterRegistry());
+        storage.userService = userService;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> alice = executor.submit(() -> userService.registerUser(user("alice")));
+            storage.firstWriteStarted.await();
+            Future<Boolean> bob = executor.submit(() -> userService.registerUser(user("bob")));
+
+            assertThat(alice.get(10, TimeUnit.SECONDS)).isFalse();
+            assertThat(bob.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(storage.lastWrite).extracting(User::getUsername).containsExactly("bob");
+            assertThat(userService.getAllUsers()).extracting(User::getUsername).containsExactly("bob");
+        } finally {
+            executor.shutdown();
+            userService.flushPendingWrites();
+        }
+    }
+
+    @Test
+    void aFailedUsersFileWriteRejectsTheRegistration() throws Exception {
+        Path usersFile = tempDir.resolve("users.json");
+        UserService userService = new UserService(new UserRepository(usersFile.toString()),
+                GroupCommitSettings.disabled(), new SimpleMeterRegistry());
+        // A non-empty directory where users.json should be makes the rewrite fail
+        Files.createDirectory(usersFile);
+        Files.createFile(usersFile.resolve("blocker"));
+
+        assertThat(userService.registerUser(user("alice"))).isFalse();
+        assertThat(userService.getAllUsers()).isEmpty();
+        assertThat(userService.loginUser("alice", "secret")).isNull();
+
+        Files.delete(usersFile.resolve("blocker"));
+        Files.delete(usersFile);
+        assertThat(userService.registerUser(user("alice"))).isTrue();
+        assertThat(new UserRepository(usersFile.toString()).loadUsers())
+                .extracting(User::getUsername).containsExactly("alice");
+    }
+}